@@ -76,14 +76,27 @@ public class Week implements Serializable {
 
 	/**
 	 * Restituisce un ArrayList contenente tutte le settimane a partire dalla
-	 * data attuale arrivando ad un anno di distanza dalla data attuale.
+	 * data attuale arrivando ad un anno di distanza dalla data attuale. Le
+	 * settimane vengono ricalcolate soltanto al cambio di settimana.
 	 * 
 	 * @return L'ArrayList delle settimane dei prossimi 365 giorni.
 	 */
-	public static ArrayList<Week> getNextYearWeeks() {
-		ArrayList<Week> allWeeks = new ArrayList<>();
-
+	public static synchronized ArrayList<Week> getNextYearWeeks() {
 		GregorianCalendar thisWeek = new GregorianCalendar();
+		long thisWeekStart = WeekBounds.getWeekStart(thisWeek).getTimeInMillis();
+
+		if (nextYearWeeks == null || nextYearWeeks.get(0).getStart().getTimeInMillis() != thisWeekStart) {
+			nextYearWeeks = computeNextYearWeeks(thisWeek);
+		}
+		return new ArrayList<>(nextYearWeeks);
+	}
+
+	/**
+	 * Calcola le settimane dalla data passata in input fino ad un anno di
+	 * distanza.
+	 */
+	private static ArrayList<Week> computeNextYearWeeks(GregorianCalendar thisWeek) {
+		ArrayList<Week> allWeeks = new ArrayList<>();
 
 		GregorianCalendar thisWeekAfterAnYear = (GregorianCalendar) thisWeek.clone();
 		thisWeekAfterAnYear.add(Calendar.YEAR, 1);
@@ -107,6 +120,7 @@ public class Week implements Serializable {
 	private static final long serialVersionUID = 3468338459207003613L;
 	public static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("E dd/MM/yyyy HH:mm:ss:SS");
 	private GregorianCalendar start, end;
+	private static ArrayList<Week> nextYearWeeks;
 
 	public static void main(String[] args) {
 		for (Week w : Week.getAllYearWeeks(new GregorianCalendar())) {
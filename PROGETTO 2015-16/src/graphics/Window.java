@@ -13,12 +13,7 @@ import java.awt.event.MouseEvent;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Calendar;
@@ -46,6 +41,8 @@ import javax.swing.SwingWorker;
 import javax.swing.border.LineBorder;
 import javax.swing.event.MenuEvent;
 import javax.swing.event.MenuListener;
+import javax.swing.event.TableModelEvent;
+import javax.swing.event.TableModelListener;
 import javax.swing.table.TableRowSorter;
 import calendar.Week;
 import combo.renderers.StadioComboRenderer;
@@ -67,6 +64,10 @@ import objectsTable.PrenotazioneTable;
 import objectsTable.PrenotazioneTableModel;
 import objectsTable.filter.PartitaRowFilter;
 import password.WeakPasswordException;
+import persistence.Archivio;
+import persistence.ArchivioFile;
+import persistence.ArchivioJdbc;
+import persistence.ArchivioMemoria;
 import struttura.Acquisto;
 import struttura.Mode;
 import struttura.Partita;
@@ -118,8 +119,8 @@ public class Window extends JFrame implements Serializable {
 		this.mainPanel.setLayout(new BorderLayout());
 
 		this.strutturaSportivaName = nomeStruttura;
-		this.strutturaSportiva_DB_File = new File(this.strutturaSportivaName + ".ser");
-		this.strutturaSportiva = this.loadStrutturaSportiva(this.strutturaSportiva_DB_File);
+		this.archivio = this.openArchivio();
+		this.strutturaSportiva = this.archivio.getStrutturaSportiva();
 
 		/*
 		 * In assenza dell'account del gestore, viene creato.
@@ -152,105 +153,60 @@ public class Window extends JFrame implements Serializable {
 	}
 
 	/**
-	 * Carica un oggetto {@link StrutturaSportiva} da file. Se il file non
-	 * esiste viene creato un nuovo oggetto StrutturaSportiva.
+	 * Apre l'{@link Archivio} in cui e' conservata la StrutturaSportiva,
+	 * scelto con la proprieta' di sistema {@code archivio}: {@code file} (il
+	 * default, lo snapshot {@code <nome>.ser} ed il suo journal),
+	 * {@code jdbc} (il database indicato dalla proprieta'
+	 * {@code archivio.jdbc.url}) oppure {@code memoria}.
 	 * 
-	 * @param DB_File
-	 *            Il file contenente l'oggetto StrutturaSportiva da caricare.
-	 * @return L'oggetto StrutturaSportiva presente nel file.
+	 * @return L'archivio aperto.
+	 * @author Maurizio
 	 */
-	protected StrutturaSportiva loadStrutturaSportiva(File DB_File) {
-
-		StrutturaSportiva strutturaSportiva = null;
-
-		if (DB_File.exists()) {
-
-			try {
-				/*
-				 * Se i costruttori lanciano un'eccezione, il try-finally NON
-				 * sar eseguito.
-				 */
-				FileInputStream fileInputStrem = new FileInputStream(DB_File);
-				ObjectInputStream objectInputStream = new ObjectInputStream(fileInputStrem);
+	protected Archivio openArchivio() {
+		String tipo = System.getProperty("archivio", "file");
+		Archivio archivio = null;
 
-				try {
-					strutturaSportiva = (StrutturaSportiva) objectInputStream.readObject();
-				} finally {
-					/*
-					 * Chiude i flussi di input.
-					 */
-					objectInputStream.close();
-					fileInputStrem.close();
-				}
-			} catch (FileNotFoundException e) {
+		try {
+			if (tipo.equalsIgnoreCase("memoria")) {
+				archivio = new ArchivioMemoria(this.strutturaSportivaName);
+			} else if (tipo.equalsIgnoreCase("jdbc")) {
+				archivio = ArchivioJdbc.apri(System.getProperty("archivio.jdbc.url",
+						"jdbc:h2:" + new File(this.strutturaSportivaName).getAbsolutePath()), this.strutturaSportivaName);
+			} else {
 				/*
-				 * NON SUCCEDE MAI perch viene fatto il controllo
-				 * sull'esistenza del file.
+				 * Dimensione del journal (in KB) e intervallo (in minuti) oltre
+				 * i quali viene salvato in background un nuovo snapshot.
 				 */
-				JOptionPane.showMessageDialog(Window.this, e.getMessage(), e.getClass().getSimpleName(),
-						JOptionPane.ERROR_MESSAGE);
-				e.printStackTrace();
-				System.exit(-1);
-			} catch (IOException e) {
-				JOptionPane.showMessageDialog(Window.this, e.getMessage(), e.getClass().getSimpleName(),
-						JOptionPane.ERROR_MESSAGE);
-				e.printStackTrace();
-				System.exit(-2);
-			} catch (ClassNotFoundException e) {
-				JOptionPane.showMessageDialog(Window.this, e.getMessage(), e.getClass().getSimpleName(),
-						JOptionPane.ERROR_MESSAGE);
-				e.printStackTrace();
-				System.exit(-3);
+				archivio = ArchivioFile.apri(new File(this.strutturaSportivaName + ".ser"), this.strutturaSportivaName,
+						Long.getLong("checkpoint.journal.kb", 4 * 1024) * 1024,
+						Long.getLong("checkpoint.minuti", 10) * 60 * 1000);
 			}
-		} else {// FILE DOES NOT EXIST
-			/*
-			 * Nel caso in cui il file non esiste viene creata una nuova istanza
-			 * di StrutturaSportiva.
-			 */
-			strutturaSportiva = new StrutturaSportiva(this.strutturaSportivaName);
+		} catch (IOException e) {
+			JOptionPane.showMessageDialog(Window.this, e.getMessage(), e.getClass().getSimpleName(),
+					JOptionPane.ERROR_MESSAGE);
+			e.printStackTrace();
+			System.exit(-2);
+		} catch (ClassNotFoundException e) {
+			JOptionPane.showMessageDialog(Window.this, e.getMessage(), e.getClass().getSimpleName(),
+					JOptionPane.ERROR_MESSAGE);
+			e.printStackTrace();
+			System.exit(-3);
 		}
 
-		return strutturaSportiva;
+		return archivio;
 	}
 
 	/**
-	 * Salva la {@link StrutturaSportiva} su file. Se il file non esiste ne
-	 * viene creato uno nuovo.
+	 * Salva la {@link StrutturaSportiva} nell'archivio. Ogni modifica e' gia'
+	 * stata passata all'archivio nel momento in cui e' stata effettuata, per
+	 * cui e' sufficiente forzarne la scrittura: il costo del salvataggio non
+	 * dipende dalla dimensione del database.
 	 * 
 	 * @author Maurizio
 	 */
 	public void storeStrutturaSportiva() {
 		try {
-			/*
-			 * Crea il file se non esiste.
-			 */
-			this.strutturaSportiva_DB_File.createNewFile();
-
-			/*
-			 * Se i costruttori lanciano un'eccezione, il blocco finally NON
-			 * sar eseguito.
-			 */
-			FileOutputStream fileOutputStream = new FileOutputStream(this.strutturaSportiva_DB_File);
-			ObjectOutputStream objectOutputStream = new ObjectOutputStream(fileOutputStream);
-
-			try {
-				objectOutputStream.writeObject(this.strutturaSportiva);
-			} finally {
-				/*
-				 * Chiude i flussi di output.
-				 */
-				objectOutputStream.close();
-				fileOutputStream.close();
-			}
-
-		} catch (FileNotFoundException e) {
-			/*
-			 * NON SUCCEDE MAI perch il file viene creato se non esiste.
-			 */
-			JOptionPane.showMessageDialog(Window.this, e.getMessage(), e.getClass().getSimpleName(),
-					JOptionPane.ERROR_MESSAGE);
-			e.printStackTrace();
-			System.exit(-1);
+			this.archivio.salva();
 		} catch (IOException e) {
 			JOptionPane.showMessageDialog(Window.this, e.getMessage(), e.getClass().getSimpleName(),
 					JOptionPane.ERROR_MESSAGE);
@@ -268,6 +224,25 @@ public class Window extends JFrame implements Serializable {
 		return this.strutturaSportiva;
 	}
 
+	/**
+	 * Aggiunge una nuova partita con valori di default, che l'utente potra'
+	 * poi modificare dalla tabella delle partite.
+	 * 
+	 * @author Maurizio
+	 */
+	private void addPartita() {
+		PartitaTableModel model = (PartitaTableModel) this.partitaTable.getModel();
+
+		/*
+		 * La tabella condivide la lista delle partite con la
+		 * StrutturaSportiva, per cui e' sufficiente notificare l'inserimento.
+		 */
+		this.strutturaSportiva.addPartita(new Partita());
+
+		int row = this.strutturaSportiva.getPartiteProgrammate().size() - 1;
+		model.fireTableRowsInserted(row, row);
+	}
+
 	/**
 	 * Imposta l'utente attualmente loggato ed aggiorna l'interfaccia grafica di
 	 * conseguenza.
@@ -364,7 +339,8 @@ public class Window extends JFrame implements Serializable {
 						TableRowSorter<PartitaTableModel> sorter = (TableRowSorter<PartitaTableModel>) partitaTable
 								.getRowSorter();
 						sorter.setRowFilter(new PartitaRowFilter(
-								new MatchByWeekFilter(((Week) weeks.getSelectedItem()).getStart())));
+								new MatchByWeekFilter(((Week) weeks.getSelectedItem()).getStart(),
+										Window.this.strutturaSportiva)));
 					}
 				});
 
@@ -768,7 +744,7 @@ public class Window extends JFrame implements Serializable {
 
 			@Override
 			public void actionPerformed(ActionEvent e) {
-				((PartitaTableModel) Window.this.partitaTable.getModel()).addPartita(new Partita());
+				Window.this.addPartita();
 			}
 		});
 
@@ -823,7 +799,7 @@ public class Window extends JFrame implements Serializable {
 				stadi.sort(Window.this.stadiComparator);
 
 				try {
-					ModificaStadioFrame modificaStadioFrame = new ModificaStadioFrame(stadi);
+					ModificaStadioFrame modificaStadioFrame = new ModificaStadioFrame(strutturaSportiva, stadi);
 					modificaStadioFrame.setLocationRelativeTo(Window.this);
 					modificaStadioFrame.setVisible(true);
 				} catch (Exception e2) {
@@ -993,6 +969,22 @@ public class Window extends JFrame implements Serializable {
 		this.partitaTable = new PartitaTable(Mode.GESTORE, this.strutturaSportiva.getPartiteProgrammate(),
 				this.strutturaSportiva);
 
+		/*
+		 * Le partite vengono modificate direttamente dalla tabella, per cui
+		 * le modifiche vanno notificate alla StrutturaSportiva.
+		 */
+		this.partitaTable.getModel().addTableModelListener(new TableModelListener() {
+
+			@Override
+			public void tableChanged(TableModelEvent e) {
+				if (e.getType() == TableModelEvent.UPDATE && e.getFirstRow() == e.getLastRow()
+						&& e.getFirstRow() != TableModelEvent.HEADER_ROW) {
+					Partita partita = ((PartitaTableModel) partitaTable.getModel()).getPartita(e.getFirstRow());
+					Window.this.strutturaSportiva.notificaPartitaModificata(partita);
+				}
+			}
+		});
+
 		this.partitaTable.addMouseListener(new MouseAdapter() {
 
 			@Override
@@ -1036,7 +1028,8 @@ public class Window extends JFrame implements Serializable {
 
 		/**
 		 * All'apertura della finestra viene eseguito il controllo per eliminare
-		 * le prenotazioni scadute, che sar ripetuto ad intervalli regolari.
+		 * le prenotazioni scadute, che sar ripetuto ogni
+		 * {@link StrutturaSportiva#INTERVALLO_CONTROLLO_SCADENZE}.
 		 */
 		@Override
 		public void windowOpened(WindowEvent windowevent) {
@@ -1049,14 +1042,17 @@ public class Window extends JFrame implements Serializable {
 					final TimerTask timerTask = new TimerTask() {
 						@Override
 						public void run() {
-							Window.this.strutturaSportiva.cancellaPrenotazioniScadute();
-							System.out.println("Controllate prenotazioni scadute " + new GregorianCalendar().getTime());
+							int cancellate = Window.this.strutturaSportiva.cancellaPrenotazioniScadute();
+
+							if (cancellate > 0) {
+								System.out.println("Cancellate " + cancellate + " prenotazioni scadute "
+										+ new GregorianCalendar().getTime());
+							}
 						}
 					};
 
 					final Timer timer = new Timer();
-					final int MINUTI = 1;
-					timer.schedule(timerTask, 0, 1000 * 60 * MINUTI);
+					timer.schedule(timerTask, 0, StrutturaSportiva.INTERVALLO_CONTROLLO_SCADENZE);
 					return null;
 				}
 			}.execute();
@@ -1149,10 +1145,7 @@ public class Window extends JFrame implements Serializable {
 						@Override
 						public void actionPerformed(ActionEvent e) {
 							Partita partitaPrenotata = prenotazione.getPartita();
-							partitaPrenotata.resetSeatStatus(prenotazione, SeatStatus.VENDUTO);
-
-							strutturaSportiva.addAcquisto(new Acquisto(prenotazione, strutturaSportiva));
-							prenotazione.getPosto().setStato(SeatStatus.VENDUTO);
+							strutturaSportiva.completaPrenotazioni(prenotazione.getCliente(), partitaPrenotata);
 
 							JOptionPane.showMessageDialog(Window.this.partitaTable,
 									"Complimenti, la prenotazione per questa partita e' stata completata con successo.",
@@ -1275,7 +1268,7 @@ public class Window extends JFrame implements Serializable {
 				this.addPartita.addActionListener(new ActionListener() {
 					@Override
 					public void actionPerformed(ActionEvent e) {
-						((PartitaTableModel) Window.this.partitaTable.getModel()).addPartita(new Partita());
+						Window.this.addPartita();
 					}
 				});
 
@@ -1288,10 +1281,15 @@ public class Window extends JFrame implements Serializable {
 
 						if (viewIndex != -1) {
 							Partita partita = partitaTable.getSelectedPartita();
-							Window.this.strutturaSportiva.cancellaPrenotazioniAcquistiScontiPerPartita(partita);
-
 							int modelIndex = partitaTable.convertRowIndexToModel(viewIndex);
-							((PartitaTableModel) partitaTable.getModel()).removePartita(modelIndex);
+
+							/*
+							 * La tabella condivide la lista delle partite con
+							 * la StrutturaSportiva, che si occupa della
+							 * rimozione.
+							 */
+							Window.this.strutturaSportiva.rimuoviPartita(partita);
+							((PartitaTableModel) partitaTable.getModel()).fireTableRowsDeleted(modelIndex, modelIndex);
 						}
 					}
 				});
@@ -1331,14 +1329,20 @@ public class Window extends JFrame implements Serializable {
 
 					if (viewIndex != -1) {
 						Prenotazione prenotazione = prenotazioniTable.getSelectedPrenotazione();
+						Cliente cliente = prenotazione.getCliente();
 						Partita partitaPrenotata = prenotazione.getPartita();
-						partitaPrenotata.resetSeatStatus(prenotazione, SeatStatus.VENDUTO);
+						Window.this.strutturaSportiva.completaPrenotazioni(cliente, partitaPrenotata);
 
-						int modelIndex = partitaTable.convertRowIndexToModel(viewIndex);
-						((PrenotazioneTableModel) prenotazioniTable.getModel()).removePrenotazione(modelIndex);
+						/* Vengono completate tutte le prenotazioni del cliente per la partita */
+						PrenotazioneTableModel model = (PrenotazioneTableModel) prenotazioniTable.getModel();
 
-						Window.this.strutturaSportiva.addAcquisto(new Acquisto(prenotazione, strutturaSportiva));
-						prenotazione.getPosto().setStato(SeatStatus.VENDUTO);
+						for (int i = model.getRowCount() - 1; i >= 0; i--) {
+							Prenotazione riga = model.getAcquisto(i);
+
+							if (riga.getCliente().equals(cliente) && riga.getPartita().equals(partitaPrenotata)) {
+								model.removePrenotazione(i);
+							}
+						}
 
 						JOptionPane.showMessageDialog(Window.this.partitaTable,
 								"Complimenti, la prenotazione per questa partita e' stata completata con successo.",
@@ -1359,7 +1363,8 @@ public class Window extends JFrame implements Serializable {
 					if (viewIndex != -1) {
 						Prenotazione prenotazione = prenotazioniTable.getSelectedPrenotazione();
 						Partita partitaPrenotata = prenotazione.getPartita();
-						partitaPrenotata.resetSeatStatus(prenotazione, SeatStatus.LIBERO);
+						Window.this.strutturaSportiva.aggiornaStatoPosto(partitaPrenotata, prenotazione.getPosto(),
+								SeatStatus.LIBERO);
 
 						int modelIndex = partitaTable.convertRowIndexToModel(viewIndex);
 						((PrenotazioneTableModel) prenotazioniTable.getModel()).removePrenotazione(modelIndex);
@@ -1453,5 +1458,5 @@ public class Window extends JFrame implements Serializable {
 	private ClosableTabbedPane tabbedPane;
 	private String strutturaSportivaName;
 	private StrutturaSportiva strutturaSportiva;
-	private File strutturaSportiva_DB_File;
+	private Archivio archivio;
 }
@@ -24,7 +24,6 @@ import javax.swing.border.EtchedBorder;
 import combo.renderers.StadioComboRenderer;
 import struttura.Stadio;
 import struttura.StrutturaSportiva;
-import struttura.filters.PurchaseByStadiumFilter;
 
 /**
  * Classe che modella un JPanel per la visualizzazione dell'incasso della
@@ -145,8 +144,8 @@ public class VisualizzaIncassoPanel extends JPanel implements Serializable {
 			public void itemStateChanged(ItemEvent e) {
 
 				if (e.getStateChange() == ItemEvent.SELECTED) {
-					String totale = CURRENCY_FORMATTER.format(struct.calcolaIncasso(struct
-							.getAcquistiFiltrati(new PurchaseByStadiumFilter((Stadio) comboStadi.getSelectedItem()))));
+					String totale = CURRENCY_FORMATTER.format(struct
+							.getIncassoPerStadio((Stadio) comboStadi.getSelectedItem()));
 					labelIncasso.setText("Incasso: " + totale);
 				}
 
@@ -177,7 +176,7 @@ public class VisualizzaIncassoPanel extends JPanel implements Serializable {
 												// e il revalidate() per
 												// rimuovere la combo
 				comboButtonPanel.revalidate();
-				String totale = CURRENCY_FORMATTER.format(struct.calcolaIncasso(struct.getAcquisti()));
+				String totale = CURRENCY_FORMATTER.format(struct.getIncassoTotale());
 				labelIncasso.setText("Incasso: " + totale);
 			}
 		});
@@ -198,8 +197,8 @@ public class VisualizzaIncassoPanel extends JPanel implements Serializable {
 				comboButtonPanel.removeAll();
 				comboButtonPanel.add(comboStadi);
 				comboButtonPanel.revalidate();
-				String totale = CURRENCY_FORMATTER.format(struct.calcolaIncasso(struct
-						.getAcquistiFiltrati(new PurchaseByStadiumFilter((Stadio) comboStadi.getSelectedItem()))));
+				String totale = CURRENCY_FORMATTER.format(struct
+						.getIncassoPerStadio((Stadio) comboStadi.getSelectedItem()));
 				labelIncasso.setText("Incasso: " + totale);
 			}
 		});
@@ -20,6 +20,7 @@ import javax.swing.SpinnerNumberModel;
 
 import combo.renderers.StadioComboRenderer;
 import struttura.Stadio;
+import struttura.StrutturaSportiva;
 
 /**
  * Classe che modella un frame per la modifica delle informazioni di uno Stadio
@@ -33,20 +34,27 @@ public class ModificaStadioFrame extends JFrame implements Serializable {
 	 * Crea un nuovo frame che permette di aggiungere sconti agli stadi passati
 	 * in input.
 	 * 
+	 * @param strutturaSportiva
+	 *            La StrutturaSportiva che gestisce gli stadi.
 	 * @param stadi
 	 *            Lo Stadio da modificare.
 	 * @throws IllegalArgumentException
 	 *             Se la dimensione degli stadi e' uguale a 0.
 	 * @throws NullPointerException
-	 *             Se l'ArrayList stadi e' null.
+	 *             Se la strutturaSportiva o l'ArrayList stadi sono null.
 	 * @author Maurizio Casciano
 	 * @author Gaetano Antonucci
 	 */
-	public ModificaStadioFrame(ArrayList<Stadio> stadi) throws IllegalArgumentException, NullPointerException {
+	public ModificaStadioFrame(StrutturaSportiva strutturaSportiva, ArrayList<Stadio> stadi)
+			throws IllegalArgumentException, NullPointerException {
 		super("Sconto Stadio");
 		this.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
 		this.setLayout(new GridLayout(4, 1, 10, 10));
 
+		if (strutturaSportiva == null) {
+			throw new NullPointerException("strutturaSportiva non puo' essere null");
+		}
+
 		if (stadi == null) {
 			throw new NullPointerException("stadi non pu essere null");
 		}
@@ -55,6 +63,7 @@ public class ModificaStadioFrame extends JFrame implements Serializable {
 			throw new IllegalArgumentException("E' richiesta la presenza di almeno uno stadio.");
 		}
 
+		this.strutturaSportiva = strutturaSportiva;
 		this.stadi = stadi;
 
 		this.init();
@@ -172,8 +181,7 @@ public class ModificaStadioFrame extends JFrame implements Serializable {
 				int capienza = (int) capienzaSpinner.getValue();
 				double prezzo = (double) prezzoSpinner.getValue();
 
-				stadio.setCapienzaStadio(capienza);
-				stadio.setPrezzoPerPartita(prezzo);
+				strutturaSportiva.modificaStadio(stadio, capienza, prezzo);
 
 				dispose();
 			}
@@ -207,6 +215,7 @@ public class ModificaStadioFrame extends JFrame implements Serializable {
 	private JPanel prezzoPartitaPanel;
 	private JButton applicaModificheButton, annullaButton;
 	private JPanel buttonPanel;
+	private StrutturaSportiva strutturaSportiva;
 
 	public static void main(String[] args) {
 
@@ -216,7 +225,7 @@ public class ModificaStadioFrame extends JFrame implements Serializable {
 		stadi.add(new Stadio("Olimpico", 60000, 30));
 		stadi.add(new Stadio("Camp Nou", 99354, 30));
 
-		ModificaStadioFrame scontoStadioFrame = new ModificaStadioFrame(stadi);
+		ModificaStadioFrame scontoStadioFrame = new ModificaStadioFrame(new StrutturaSportiva(""), stadi);
 		scontoStadioFrame.setLocationRelativeTo(null);
 		scontoStadioFrame.setVisible(true);
 	}
@@ -31,6 +31,7 @@ import javax.swing.JViewport;
 import javax.swing.SwingWorker;
 
 import struttura.Partita;
+import struttura.SeatStatus;
 import struttura.Settore;
 import struttura.Squadra;
 import struttura.Stadio;
@@ -147,9 +148,8 @@ public class StadiumPanel extends JPanel implements Serializable {
 
 			if ((i >= 3 && i <= 26) || (i >= 31 && i <= 58) || (i >= 61 && i <= 88) || (i >= 90 && i <= 239)) {
 				this.numeroSettori++;
-				final JButton settoreButton = new JButton();
-				settoreButton.setToolTipText("Prezzo: " + DecimalFormatSymbols.getInstance().getCurrencySymbol() + " "
-						+ this.strutturaSportiva.getBestAvailablePrice(this.partita, new GregorianCalendar()));
+				final Settore settore = this.getNextSettore();
+				final JButton settoreButton = this.creaSettoreButton(settore);
 				/*
 				 * Per ottenere il punto in cui inizia il trascinamento del
 				 * mouse.
@@ -163,7 +163,7 @@ public class StadiumPanel extends JPanel implements Serializable {
 				settoreButton.addMouseMotionListener(this.myMouseAdapter);
 
 				final SettoreStadioPanel settoreStadioPanel = new SettoreStadioPanel(this.strutturaSportiva,
-						this.cliente, this.partita, this.getNextSettore(), this.stadiumMode);
+						this.cliente, this.partita, settore, this.stadiumMode);
 
 				settoreButton.add(settoreStadioPanel);
 
@@ -211,9 +211,8 @@ public class StadiumPanel extends JPanel implements Serializable {
 			cellaPanel.setOpaque(true);
 
 			this.numeroSettori++;
-			final JButton settoreButton = new JButton();
-			settoreButton.setToolTipText("Prezzo: " + DecimalFormatSymbols.getInstance().getCurrencySymbol() + " "
-					+ this.strutturaSportiva.getBestAvailablePrice(this.partita, new GregorianCalendar()));
+			final Settore settore = this.getNextSettore();
+			final JButton settoreButton = this.creaSettoreButton(settore);
 			/*
 			 * Per ottenere il punto in cui inizia il trascinamento del mouse.
 			 */
@@ -226,7 +225,7 @@ public class StadiumPanel extends JPanel implements Serializable {
 			settoreButton.addMouseMotionListener(this.myMouseAdapter);
 
 			final SettoreStadioPanel settoreStadioPanel = new SettoreStadioPanel(this.strutturaSportiva, this.cliente,
-					this.partita, this.getNextSettore(), this.stadiumMode);
+					this.partita, settore, this.stadiumMode);
 
 			settoreButton.add(settoreStadioPanel);
 
@@ -256,9 +255,8 @@ public class StadiumPanel extends JPanel implements Serializable {
 			cellaPanel.setOpaque(true);
 
 			this.numeroSettori++;
-			final JButton settoreButton = new JButton();
-			settoreButton.setToolTipText("Prezzo: " + DecimalFormatSymbols.getInstance().getCurrencySymbol() + " "
-					+ this.strutturaSportiva.getBestAvailablePrice(this.partita, new GregorianCalendar()));
+			final Settore settore = this.getNextSettore();
+			final JButton settoreButton = this.creaSettoreButton(settore);
 			/*
 			 * Per ottenere il punto in cui inizia il trascinamento del mouse.
 			 */
@@ -271,7 +269,7 @@ public class StadiumPanel extends JPanel implements Serializable {
 			settoreButton.addMouseMotionListener(this.myMouseAdapter);
 
 			final SettoreStadioPanel settoreStadioPanel = new SettoreStadioPanel(this.strutturaSportiva, this.cliente,
-					this.partita, this.getNextSettore(), this.stadiumMode);
+					this.partita, settore, this.stadiumMode);
 
 			settoreButton.add(settoreStadioPanel);
 
@@ -303,9 +301,8 @@ public class StadiumPanel extends JPanel implements Serializable {
 
 			if ((i <= 149) || (i >= 151 && i <= 178) || (i >= 181 && i <= 208) || (i >= 213 && i <= 236)) {
 				this.numeroSettori++;
-				final JButton settoreButton = new JButton();
-				settoreButton.setToolTipText("Prezzo: " + DecimalFormatSymbols.getInstance().getCurrencySymbol() + " "
-						+ this.strutturaSportiva.getBestAvailablePrice(this.partita, new GregorianCalendar()));
+				final Settore settore = this.getNextSettore();
+				final JButton settoreButton = this.creaSettoreButton(settore);
 
 				/*
 				 * Per ottenere il punto in cui inizia il trascinamento del
@@ -320,7 +317,7 @@ public class StadiumPanel extends JPanel implements Serializable {
 				settoreButton.addMouseMotionListener(this.myMouseAdapter);
 
 				final SettoreStadioPanel settoreStadioPanel = new SettoreStadioPanel(this.strutturaSportiva,
-						this.cliente, this.partita, this.getNextSettore(), this.stadiumMode);
+						this.cliente, this.partita, settore, this.stadiumMode);
 
 				settoreButton.add(settoreStadioPanel);
 
@@ -461,6 +458,32 @@ public class StadiumPanel extends JPanel implements Serializable {
 		return this.stadiumMode;
 	}
 
+	/**
+	 * Crea il {@link JButton} che rappresenta il settore. Il tooltip mostra
+	 * il prezzo e i posti ancora liberi del settore, letti al momento in cui
+	 * il tooltip viene visualizzato.
+	 * 
+	 * @param settore
+	 *            Il settore rappresentato dal pulsante.
+	 * @return Il pulsante del settore.
+	 * @author Maurizio Casciano
+	 */
+	private JButton creaSettoreButton(final Settore settore) {
+		JButton settoreButton = new JButton() {
+
+			@Override
+			public String getToolTipText(MouseEvent event) {
+				return super.getToolTipText(event) + " - Posti liberi: " + settore.contaPosti(SeatStatus.LIBERO);
+			}
+
+			private static final long serialVersionUID = -4482915706183349273L;
+		};
+
+		settoreButton.setToolTipText("Prezzo: " + DecimalFormatSymbols.getInstance().getCurrencySymbol() + " "
+				+ this.strutturaSportiva.getBestAvailablePrice(this.partita, new GregorianCalendar()));
+		return settoreButton;
+	}
+
 	/**
 	 * Restituisce il prossimo Settore della lista.
 	 * 
@@ -8,8 +8,11 @@ import java.awt.event.MouseEvent;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.io.Serializable;
+import java.util.function.BiConsumer;
+
 import javax.swing.JButton;
 import javax.swing.JOptionPane;
+import javax.swing.SwingUtilities;
 
 import struttura.Acquisto;
 import struttura.AlreadyExistsObjectException;
@@ -101,21 +104,28 @@ public class StadiumSeatButton extends JButton implements Serializable {
 				switch (stadiumMode) {
 				case PRENOTAZIONE:
 					try {
-						if (isIndisponibile()) {
-							throw new PostoIndisponibileException();
-						}
-
 						if (strutturaSportiva.verificaAcquisto(cliente, partita)) {
 							throw new PrenotationNotAllowedException();
 						}
 
-						strutturaSportiva.addPrenotazione(new Prenotazione(strutturaSportiva, cliente, partita, settore,
-								numeroFila, numeroPosto));
+						/*
+						 * Il posto viene occupato prima di aggiungere la
+						 * prenotazione: se un altro terminale lo ha appena
+						 * occupato viene lanciata PostoIndisponibileException.
+						 */
+						strutturaSportiva.occupaPosto(partita, posto, SeatStatus.PRENOTATO);
 
-						posto.setStato(SeatStatus.PRENOTATO);
-						JOptionPane.showMessageDialog(null,
+						try {
+							strutturaSportiva.addPrenotazione(new Prenotazione(strutturaSportiva, cliente, partita,
+									settore, numeroFila, numeroPosto));
+						} catch (AlreadyExistsObjectException e2) {
+							strutturaSportiva.aggiornaStatoPosto(partita, posto, SeatStatus.LIBERO);
+							throw e2;
+						}
+
+						confermaQuandoPersistente(
 								"Complimenti, prenotazione aggiunta correttamente.\nN.B.: Si ricorda che la prenotazione scade 12 ore prima dell'inizio della partita.\nIn assenza di un acquisto ad essa collegato, la prenotazione, verra' cancellata automaticamente.",
-								"Prenotazione effettuata.", JOptionPane.INFORMATION_MESSAGE);
+								"Prenotazione effettuata.");
 
 					} catch (AlreadyExistsObjectException e2) {
 						JOptionPane.showMessageDialog(null, e2.getMessage(), "Prenotazione gia' presente",
@@ -131,23 +141,25 @@ public class StadiumSeatButton extends JButton implements Serializable {
 
 				case ACQUISTO:
 					try {
-						if (isIndisponibile()) {
-							throw new PostoIndisponibileException();
-						}
-
 						if (!strutturaSportiva.verificaPrenotazione(cliente, partita)) {
-							strutturaSportiva.addAcquisto(new Acquisto(cliente, partita, settore, numeroFila,
-									numeroPosto, strutturaSportiva));
+							strutturaSportiva.occupaPosto(partita, posto, SeatStatus.VENDUTO);
+
+							try {
+								strutturaSportiva.addAcquisto(new Acquisto(cliente, partita, settore, numeroFila,
+										numeroPosto, strutturaSportiva));
+							} catch (AlreadyExistsObjectException e2) {
+								strutturaSportiva.aggiornaStatoPosto(partita, posto, SeatStatus.LIBERO);
+								throw e2;
+							}
 
-							posto.setStato(SeatStatus.VENDUTO);
 							// setBackground(posto.getStato().getColor());
 							// StadiumSeatButton.this.setToolTipText("Fila: " +
 							// numeroFila + " " + "Posto: " + numeroPosto
 							// + " " + "Stato: " + posto.getStato());
 							// repaint();
 
-							JOptionPane.showMessageDialog(null, "Complimenti, acquisto aggiunto correttamente.",
-									"Prenotazione presente", JOptionPane.INFORMATION_MESSAGE);
+							confermaQuandoPersistente("Complimenti, acquisto aggiunto correttamente.",
+									"Prenotazione presente");
 						} else {
 							JOptionPane.showMessageDialog(StadiumSeatButton.this,
 									"Spiacenti, � presente una sua prenotazione per questa partita nel sistema. Completarla.",
@@ -181,6 +193,39 @@ public class StadiumSeatButton extends JButton implements Serializable {
 		return false;
 	}
 
+	/**
+	 * Mostra il messaggio di conferma soltanto quando la prenotazione o
+	 * l'acquisto sono stati resi persistenti, senza bloccare l'interfaccia
+	 * grafica nell'attesa.
+	 * 
+	 * @param messaggio
+	 *            Il messaggio di conferma.
+	 * @param titolo
+	 *            Il titolo del messaggio di conferma.
+	 * @author Maurizio Casciano
+	 */
+	private void confermaQuandoPersistente(final String messaggio, final String titolo) {
+		this.strutturaSportiva.attendiModifichePersistenti().whenComplete(new BiConsumer<Void, Throwable>() {
+
+			@Override
+			public void accept(Void risultato, final Throwable errore) {
+				SwingUtilities.invokeLater(new Runnable() {
+
+					@Override
+					public void run() {
+						if (errore == null) {
+							JOptionPane.showMessageDialog(null, messaggio, titolo, JOptionPane.INFORMATION_MESSAGE);
+						} else {
+							JOptionPane.showMessageDialog(null,
+									"Impossibile salvare l'operazione su disco:\n" + errore.getMessage(),
+									"Errore di salvataggio", JOptionPane.ERROR_MESSAGE);
+						}
+					}
+				});
+			}
+		});
+	}
+
 	/**
 	 * Restituisce il cliente che deve prenotare/acquistare un biglietto.
 	 * 
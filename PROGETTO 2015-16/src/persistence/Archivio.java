@@ -0,0 +1,36 @@
+package persistence;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import struttura.StrutturaSportiva;
+
+/**
+ * Interfaccia che modella il luogo in cui viene conservata una
+ * {@link StrutturaSportiva}. L'archivio carica la StrutturaSportiva
+ * all'apertura e ne conserva le modifiche fino alla chiusura.
+ * 
+ * Sono disponibili tre implementazioni, scelte all'avvio con la proprieta'
+ * di sistema {@code archivio}: {@link ArchivioMemoria} ({@code memoria}),
+ * {@link ArchivioFile} ({@code file}, il default) e {@link ArchivioJdbc}
+ * ({@code jdbc}).
+ * 
+ * @author Maurizio Casciano
+ */
+public interface Archivio extends Closeable {
+
+	/**
+	 * Restituisce la StrutturaSportiva conservata nell'archivio.
+	 * 
+	 * @return La StrutturaSportiva.
+	 */
+	StrutturaSportiva getStrutturaSportiva();
+
+	/**
+	 * Forza la scrittura delle modifiche effettuate fino a questo momento.
+	 * 
+	 * @throws IOException
+	 *             Se si verifica un errore durante la scrittura.
+	 */
+	void salva() throws IOException;
+}
@@ -0,0 +1,90 @@
+package persistence;
+
+import java.io.File;
+import java.io.IOException;
+
+import struttura.StrutturaSportiva;
+
+/**
+ * Archivio che conserva la {@link StrutturaSportiva} su file: uno
+ * {@link Snapshot} ({@code <nome>.ser}), il {@link Journal} delle modifiche
+ * successive, nella stessa cartella, ed il {@link Checkpointer} che salva
+ * periodicamente un nuovo snapshot.
+ * 
+ * @author Maurizio Casciano
+ */
+public class ArchivioFile implements Archivio {
+
+	/**
+	 * Apre l'archivio, caricando l'ultimo snapshot e riapplicando il journal.
+	 * Se il file dello snapshot non esiste viene creata una nuova
+	 * StrutturaSportiva.
+	 * 
+	 * @param snapshotFile
+	 *            - Il file dello snapshot.
+	 * @param nome
+	 *            - Il nome della StrutturaSportiva.
+	 * @param dimensioneMassimaJournal
+	 *            - Il numero di byte del journal oltre il quale viene
+	 *            eseguito un checkpoint.
+	 * @param intervalloMassimo
+	 *            - I millisecondi trascorsi i quali viene eseguito un
+	 *            checkpoint, se il journal contiene almeno una modifica.
+	 * @return L'archivio aperto.
+	 * @throws IOException
+	 *             Se lo snapshot o il journal non possono essere letti.
+	 * @throws ClassNotFoundException
+	 *             Se lo snapshot contiene classi sconosciute.
+	 * @author Maurizio Casciano
+	 */
+	public static ArchivioFile apri(File snapshotFile, String nome, long dimensioneMassimaJournal,
+			long intervalloMassimo) throws IOException, ClassNotFoundException {
+		Snapshot snapshot;
+
+		if (snapshotFile.exists()) {
+			snapshot = Snapshot.leggi(snapshotFile);
+		} else {
+			snapshot = new Snapshot(new StrutturaSportiva(nome), 0);
+		}
+
+		StrutturaSportiva strutturaSportiva = snapshot.getStrutturaSportiva();
+		Journal journal = Journal.apri(snapshotFile.getAbsoluteFile().getParentFile(), nome,
+				snapshot.getPrimoSegmento(), strutturaSportiva);
+		Checkpointer checkpointer = new Checkpointer(strutturaSportiva, journal, snapshotFile,
+				dimensioneMassimaJournal, intervalloMassimo);
+		checkpointer.avvia();
+
+		return new ArchivioFile(strutturaSportiva, journal, checkpointer);
+	}
+
+	private ArchivioFile(StrutturaSportiva strutturaSportiva, Journal journal, Checkpointer checkpointer) {
+		this.strutturaSportiva = strutturaSportiva;
+		this.journal = journal;
+		this.checkpointer = checkpointer;
+	}
+
+	@Override
+	public StrutturaSportiva getStrutturaSportiva() {
+		return this.strutturaSportiva;
+	}
+
+	/**
+	 * Ogni modifica e' gia' stata accodata al journal nel momento in cui e'
+	 * stata effettuata, per cui e' sufficiente forzarne la scrittura su disco:
+	 * il costo del salvataggio non dipende dalla dimensione del database.
+	 */
+	@Override
+	public void salva() throws IOException {
+		this.journal.sync();
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.checkpointer.ferma();
+		this.journal.close();
+	}
+
+	private final StrutturaSportiva strutturaSportiva;
+	private final Journal journal;
+	private final Checkpointer checkpointer;
+}
@@ -0,0 +1,967 @@
+package persistence;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+
+import struttura.Acquisto;
+import struttura.Biglietto;
+import struttura.DaysOfWeek;
+import struttura.DisposizionePosti;
+import struttura.Partita;
+import struttura.Posto;
+import struttura.Prenotazione;
+import struttura.SeatStatus;
+import struttura.Sconto;
+import struttura.SorgentePosti;
+import struttura.Squadra;
+import struttura.Stadio;
+import struttura.StatoPosti;
+import struttura.StrutturaSportiva;
+import struttura.StrutturaSportivaListener;
+import struttura.TipoSconto;
+import user.Cliente;
+import user.Gestore;
+import user.UserNotFoundException;
+import user.Utente;
+
+/**
+ * Archivio che conserva la {@link StrutturaSportiva} in un database
+ * relazionale incorporato (ad esempio H2 o SQLite su file), tramite JDBC. Il
+ * driver non e' incluso nel progetto e va aggiunto al classpath.
+ * 
+ * Ogni aggregato ha il proprio {@link Repository}, che lo conserva in una
+ * tabella: le modifiche della StrutturaSportiva vengono scritte nel momento
+ * in cui sono effettuate. Lo stato dei posti e' conservato, per i soli posti
+ * non liberi, nella tabella {@code posti} e viene letto soltanto al primo
+ * accesso ai settori di una partita.
+ * 
+ * @author Maurizio Casciano
+ */
+public class ArchivioJdbc implements Archivio, StrutturaSportivaListener {
+
+	/**
+	 * Apre l'archivio, creando le tabelle se non esistono e caricando la
+	 * StrutturaSportiva.
+	 * 
+	 * @param url
+	 *            - L'URL JDBC del database, ad esempio
+	 *            {@code jdbc:h2:./Beckenbauer} o
+	 *            {@code jdbc:sqlite:Beckenbauer.db}.
+	 * @param nome
+	 *            - Il nome della StrutturaSportiva.
+	 * @return L'archivio aperto.
+	 * @throws IOException
+	 *             Se il database non e' disponibile o non puo' essere letto.
+	 * @author Maurizio Casciano
+	 */
+	public static ArchivioJdbc apri(String url, String nome) throws IOException {
+		try {
+			ArchivioJdbc archivio = new ArchivioJdbc(DriverManager.getConnection(url), new StrutturaSportiva(nome));
+
+			archivio.creaTabelle();
+			archivio.carica();
+			archivio.strutturaSportiva.addStrutturaSportivaListener(archivio);
+			return archivio;
+		} catch (SQLException e) {
+			throw new IOException("Impossibile aprire il database " + url, e);
+		}
+	}
+
+	private ArchivioJdbc(Connection connessione, StrutturaSportiva strutturaSportiva) {
+		this.connessione = connessione;
+		this.strutturaSportiva = strutturaSportiva;
+		this.utenti = new RepositoryUtenti();
+		this.stadi = new RepositoryStadi();
+		this.partite = new RepositoryPartite();
+		this.sconti = new RepositorySconti();
+		this.prenotazioni = new RepositoryBiglietti<Prenotazione>("prenotazioni") {
+
+			@Override
+			protected Biglietto getBiglietto(Prenotazione prenotazione) {
+				return prenotazione.getBigliettoPrenotato();
+			}
+
+			@Override
+			protected Prenotazione ripristina(Biglietto biglietto) {
+				return Prenotazione.ripristina(biglietto);
+			}
+		};
+		this.acquisti = new RepositoryBiglietti<Acquisto>("acquisti") {
+
+			@Override
+			protected Biglietto getBiglietto(Acquisto acquisto) {
+				return acquisto.getBiglietto();
+			}
+
+			@Override
+			protected Acquisto ripristina(Biglietto biglietto) {
+				return Acquisto.ripristina(biglietto);
+			}
+		};
+	}
+
+	@Override
+	public StrutturaSportiva getStrutturaSportiva() {
+		return this.strutturaSportiva;
+	}
+
+	/**
+	 * Le modifiche sono scritte nel database nel momento in cui sono
+	 * effettuate, per cui non c'e' nulla da salvare.
+	 */
+	@Override
+	public void salva() {
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.strutturaSportiva.removeStrutturaSportivaListener(this);
+		try {
+			this.connessione.close();
+		} catch (SQLException e) {
+			throw new IOException(e);
+		}
+	}
+
+	private void creaTabelle() throws SQLException {
+		Statement statement = this.connessione.createStatement();
+
+		try {
+			statement.executeUpdate("CREATE TABLE IF NOT EXISTS utenti (username VARCHAR(64) PRIMARY KEY, "
+					+ "gestore BOOLEAN, nome VARCHAR(64), cognome VARCHAR(64), password_hash VARCHAR(256))");
+			statement.executeUpdate("CREATE TABLE IF NOT EXISTS stadi (nome VARCHAR(128) PRIMARY KEY, "
+					+ "capienza INTEGER, prezzo DOUBLE)");
+			statement.executeUpdate("CREATE TABLE IF NOT EXISTS partite (id BIGINT PRIMARY KEY, "
+					+ "squadra_in_casa VARCHAR(64), squadra_in_trasferta VARCHAR(64), stadio VARCHAR(128), "
+					+ "capienza INTEGER, prezzo DOUBLE, data BIGINT, posti_per_settore INTEGER)");
+			statement.executeUpdate("CREATE TABLE IF NOT EXISTS posti (partita BIGINT, indice INTEGER, "
+					+ "stato INTEGER, PRIMARY KEY (partita, indice))");
+			statement.executeUpdate("CREATE TABLE IF NOT EXISTS sconti (tipo INTEGER, percentuale DOUBLE, "
+					+ "inizio BIGINT, fine BIGINT, partita BIGINT, stadio VARCHAR(128), giorno INTEGER)");
+
+			for (String tabella : new String[] { "prenotazioni", "acquisti" }) {
+				statement.executeUpdate("CREATE TABLE IF NOT EXISTS " + tabella + COLONNE_BIGLIETTI);
+
+				/*
+				 * Le tabelle create prima degli ordini di gruppo hanno come
+				 * chiave soltanto cliente e partita.
+				 */
+				if (this.contaColonneChiave(tabella) == 2) {
+					statement.executeUpdate("CREATE TABLE " + tabella + "_nuova" + COLONNE_BIGLIETTI);
+					statement.executeUpdate("INSERT INTO " + tabella + "_nuova SELECT username, partita, settore, "
+							+ "fila, posto, data, prezzo FROM " + tabella);
+					statement.executeUpdate("DROP TABLE " + tabella);
+					statement.executeUpdate("ALTER TABLE " + tabella + "_nuova RENAME TO " + tabella);
+				}
+			}
+		} finally {
+			statement.close();
+		}
+	}
+
+	/**
+	 * Restituisce il numero di colonne della chiave primaria di una tabella.
+	 */
+	private int contaColonneChiave(String tabella) throws SQLException {
+		DatabaseMetaData metaData = this.connessione.getMetaData();
+		int colonne = 0;
+
+		/* Alcuni database memorizzano i nomi delle tabelle in maiuscolo */
+		for (String nome : new String[] { tabella, tabella.toUpperCase() }) {
+			ResultSet rs = metaData.getPrimaryKeys(null, null, nome);
+
+			try {
+				while (rs.next()) {
+					colonne++;
+				}
+			} finally {
+				rs.close();
+			}
+
+			if (colonne > 0) {
+				break;
+			}
+		}
+		return colonne;
+	}
+
+	/**
+	 * Esegue le modifiche di un ordine di gruppo in un'unica transazione.
+	 */
+	private void eseguiInTransazione(Runnable modifiche) throws IOException {
+		try {
+			this.connessione.setAutoCommit(false);
+
+			try {
+				modifiche.run();
+				this.connessione.commit();
+			} catch (RuntimeException e) {
+				this.connessione.rollback();
+				throw e;
+			} finally {
+				this.connessione.setAutoCommit(true);
+			}
+		} catch (SQLException e) {
+			throw new IOException(e);
+		}
+	}
+
+	/**
+	 * Carica gli aggregati nella StrutturaSportiva, nell'ordine in cui si
+	 * riferiscono l'uno all'altro.
+	 */
+	private void carica() throws IOException {
+		this.strutturaSportiva.getUtenti().addAll(this.utenti.elenca());
+		this.strutturaSportiva.getStadi().addAll(this.stadi.elenca());
+		this.strutturaSportiva.getPartiteProgrammate().addAll(this.partite.elenca());
+		this.strutturaSportiva.getSconti().addAll(this.sconti.elenca());
+		this.strutturaSportiva.getPrenotazioni().addAll(this.prenotazioni.elenca());
+		this.strutturaSportiva.getAcquisti().addAll(this.acquisti.elenca());
+		this.strutturaSportiva.invalidaIndici();
+	}
+
+	/*
+	 * ------------------------------------------------------------------------
+	 * Modifiche della StrutturaSportiva
+	 * ------------------------------------------------------------------------
+	 */
+
+	@Override
+	public void utenteAggiunto(Utente utente) {
+		try {
+			this.utenti.aggiungi(utente);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void stadioAggiunto(Stadio stadio) {
+		try {
+			this.stadi.aggiungi(stadio);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void stadioModificato(Stadio stadio) {
+		try {
+			this.stadi.aggiorna(stadio);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void partitaAggiunta(Partita partita) {
+		try {
+			this.partite.aggiungi(partita);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void partitaModificata(Partita partita) {
+		try {
+			this.partite.aggiorna(partita);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void partitaRimossa(int indice) {
+		try {
+			this.partite.rimuovi(this.partite.elenco.get(indice));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void scontoAggiunto(Sconto sconto) {
+		try {
+			this.sconti.aggiungi(sconto);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void scontoRimosso(Sconto sconto) {
+		try {
+			this.sconti.rimuovi(sconto);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void prenotazioneAggiunta(Prenotazione prenotazione) {
+		try {
+			this.prenotazioni.aggiungi(prenotazione);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void prenotazioneCancellata(Prenotazione prenotazione) {
+		try {
+			this.prenotazioni.rimuovi(prenotazione);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void acquistoAggiunto(Acquisto acquisto) {
+		try {
+			this.acquisti.aggiungi(acquisto);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void acquistoCancellato(Acquisto acquisto) {
+		try {
+			this.acquisti.rimuovi(acquisto);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void prenotazioniAggiunte(final ArrayList<Prenotazione> prenotazioni) {
+		try {
+			this.eseguiInTransazione(new Runnable() {
+
+				@Override
+				public void run() {
+					for (Prenotazione prenotazione : prenotazioni) {
+						prenotazioneAggiunta(prenotazione);
+						statoPostoModificato(prenotazione.getPartita(),
+								prenotazione.getPartita().cercaPosto(prenotazione.getPosto()));
+					}
+				}
+			});
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void acquistiAggiunti(final ArrayList<Acquisto> acquisti) {
+		try {
+			this.eseguiInTransazione(new Runnable() {
+
+				@Override
+				public void run() {
+					for (Acquisto acquisto : acquisti) {
+						acquistoAggiunto(acquisto);
+						statoPostoModificato(acquisto.getPartita(), acquisto.getPartita().cercaPosto(acquisto.getPosto()));
+					}
+				}
+			});
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void prenotazioniCompletate(final ArrayList<Prenotazione> prenotazioni,
+			final ArrayList<Acquisto> acquisti) {
+		try {
+			this.eseguiInTransazione(new Runnable() {
+
+				@Override
+				public void run() {
+					for (Prenotazione prenotazione : prenotazioni) {
+						prenotazioneCancellata(prenotazione);
+					}
+
+					for (Acquisto acquisto : acquisti) {
+						acquistoAggiunto(acquisto);
+						statoPostoModificato(acquisto.getPartita(), acquisto.getPartita().cercaPosto(acquisto.getPosto()));
+					}
+				}
+			});
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void prenotazioniAcquistiScontiCancellati(final Partita partita, ArrayList<Prenotazione> prenotazioni,
+			ArrayList<Acquisto> acquisti, final ArrayList<Sconto> sconti) {
+		try {
+			this.eseguiInTransazione(new Runnable() {
+
+				@Override
+				public void run() {
+					try {
+						for (Sconto sconto : sconti) {
+							ArchivioJdbc.this.sconti.rimuovi(sconto);
+						}
+						ArchivioJdbc.this.prenotazioni.rimuoviPerPartita(partita);
+						ArchivioJdbc.this.acquisti.rimuoviPerPartita(partita);
+						ArchivioJdbc.this.partite.scriviPosti(partita);
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				}
+			});
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void statoPostoModificato(Partita partita, Posto posto) {
+		try {
+			this.partite.aggiornaPosto(partita, posto);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/*
+	 * ------------------------------------------------------------------------
+	 * Repository
+	 * ------------------------------------------------------------------------
+	 */
+
+	/**
+	 * Esegue un'istruzione di modifica con i parametri indicati.
+	 */
+	private void esegui(String sql, Object... parametri) throws IOException {
+		try {
+			PreparedStatement statement = this.connessione.prepareStatement(sql);
+
+			try {
+				for (int i = 0; i < parametri.length; i++) {
+					statement.setObject(i + 1, parametri[i]);
+				}
+				statement.executeUpdate();
+			} finally {
+				statement.close();
+			}
+		} catch (SQLException e) {
+			throw new IOException(e);
+		}
+	}
+
+	private class RepositoryUtenti implements Repository<Utente> {
+
+		@Override
+		public ArrayList<Utente> elenca() throws IOException {
+			ArrayList<Utente> elenco = new ArrayList<>();
+
+			try {
+				Statement statement = connessione.createStatement();
+
+				try {
+					ResultSet rs = statement.executeQuery(
+							"SELECT gestore, nome, cognome, username, password_hash FROM utenti ORDER BY username");
+
+					while (rs.next()) {
+						if (rs.getBoolean(1)) {
+							elenco.add(Gestore.ripristina(rs.getString(2), rs.getString(3), rs.getString(4),
+									rs.getString(5)));
+						} else {
+							elenco.add(Cliente.ripristina(rs.getString(2), rs.getString(3), rs.getString(4),
+									rs.getString(5)));
+						}
+					}
+				} finally {
+					statement.close();
+				}
+			} catch (SQLException e) {
+				throw new IOException(e);
+			}
+			return elenco;
+		}
+
+		@Override
+		public void aggiungi(Utente utente) throws IOException {
+			esegui("INSERT INTO utenti (username, gestore, nome, cognome, password_hash) VALUES (?, ?, ?, ?, ?)",
+					utente.getUsername(), utente instanceof Gestore, utente.getNome(), utente.getCognome(),
+					utente.getPasswordHash());
+		}
+
+		@Override
+		public void aggiorna(Utente utente) throws IOException {
+			esegui("UPDATE utenti SET nome = ?, cognome = ?, password_hash = ? WHERE username = ?", utente.getNome(),
+					utente.getCognome(), utente.getPasswordHash(), utente.getUsername());
+		}
+
+		@Override
+		public void rimuovi(Utente utente) throws IOException {
+			esegui("DELETE FROM utenti WHERE username = ?", utente.getUsername());
+		}
+	}
+
+	private class RepositoryStadi implements Repository<Stadio> {
+
+		@Override
+		public ArrayList<Stadio> elenca() throws IOException {
+			ArrayList<Stadio> elenco = new ArrayList<>();
+
+			try {
+				Statement statement = connessione.createStatement();
+
+				try {
+					ResultSet rs = statement.executeQuery("SELECT nome, capienza, prezzo FROM stadi ORDER BY nome");
+
+					while (rs.next()) {
+						elenco.add(new Stadio(rs.getString(1), rs.getInt(2), rs.getDouble(3)));
+					}
+				} finally {
+					statement.close();
+				}
+			} catch (SQLException e) {
+				throw new IOException(e);
+			}
+			return elenco;
+		}
+
+		@Override
+		public void aggiungi(Stadio stadio) throws IOException {
+			esegui("INSERT INTO stadi (nome, capienza, prezzo) VALUES (?, ?, ?)", stadio.getNome(),
+					stadio.getCapienzaDesiderataStadio(), stadio.getPrezzoPerPartita());
+		}
+
+		@Override
+		public void aggiorna(Stadio stadio) throws IOException {
+			esegui("UPDATE stadi SET capienza = ?, prezzo = ? WHERE nome = ?", stadio.getCapienzaDesiderataStadio(),
+					stadio.getPrezzoPerPartita(), stadio.getNome());
+		}
+
+		@Override
+		public void rimuovi(Stadio stadio) throws IOException {
+			esegui("DELETE FROM stadi WHERE nome = ?", stadio.getNome());
+		}
+	}
+
+	/**
+	 * Repository delle partite e dello stato dei loro posti. Le partite sono
+	 * identificate da un numero progressivo, che ne conserva l'ordine.
+	 */
+	private class RepositoryPartite implements Repository<Partita> {
+
+		@Override
+		public ArrayList<Partita> elenca() throws IOException {
+			/* Stadi usati soltanto dalle partite, condivisi per nome */
+			HashMap<String, Stadio> altriStadi = new HashMap<>();
+
+			try {
+				Statement statement = connessione.createStatement();
+
+				try {
+					ResultSet rs = statement.executeQuery("SELECT id, squadra_in_casa, squadra_in_trasferta, "
+							+ "stadio, capienza, prezzo, data, posti_per_settore FROM partite ORDER BY id");
+
+					while (rs.next()) {
+						long id = rs.getLong(1);
+						Stadio stadio = strutturaSportiva.getStadio(rs.getString(4));
+
+						if (stadio == null) {
+							stadio = altriStadi.get(rs.getString(4));
+
+							if (stadio == null) {
+								stadio = new Stadio(rs.getString(4), rs.getInt(5), rs.getDouble(6));
+								altriStadi.put(stadio.getNome(), stadio);
+							}
+						}
+
+						Partita partita = Partita.ripristina(id, new Squadra(rs.getString(2)),
+								new Squadra(rs.getString(3)), stadio, leggiData(rs.getLong(7)),
+								new PostiJdbc(id, rs.getInt(8)));
+
+						this.elenco.add(partita);
+						this.id.put(partita, id);
+						this.perId.put(id, partita);
+					}
+				} finally {
+					statement.close();
+				}
+			} catch (SQLException e) {
+				throw new IOException(e);
+			}
+			return new ArrayList<>(this.elenco);
+		}
+
+		@Override
+		public void aggiungi(Partita partita) throws IOException {
+			long id = partita.getId();
+
+			esegui("INSERT INTO partite (id, squadra_in_casa, squadra_in_trasferta, stadio, capienza, prezzo, "
+					+ "data, posti_per_settore) VALUES (?, ?, ?, ?, ?, ?, ?, ?)", id,
+					partita.getSquadraInCasa().getNome(), partita.getSquadraInTrasferta().getNome(),
+					partita.getStadio().getNome(), partita.getStadio().getCapienzaDesiderataStadio(),
+					partita.getStadio().getPrezzoPerPartita(), partita.getData().getTimeInMillis(),
+					partita.getDisposizionePosti().getPostiPerSettore());
+
+			this.elenco.add(partita);
+			this.id.put(partita, id);
+			this.perId.put(id, partita);
+			this.scriviPosti(partita);
+		}
+
+		/**
+		 * Aggiorna squadre, stadio e data della partita. Se i posti sono
+		 * stati caricati (ad esempio perche' e' cambiato lo stadio) viene
+		 * riscritto anche il loro stato.
+		 */
+		@Override
+		public void aggiorna(Partita partita) throws IOException {
+			if (partita.getSorgentePosti() != null) {
+				esegui("UPDATE partite SET squadra_in_casa = ?, squadra_in_trasferta = ?, data = ? WHERE id = ?",
+						partita.getSquadraInCasa().getNome(), partita.getSquadraInTrasferta().getNome(),
+						partita.getData().getTimeInMillis(), this.getId(partita));
+				return;
+			}
+
+			esegui("UPDATE partite SET squadra_in_casa = ?, squadra_in_trasferta = ?, stadio = ?, capienza = ?, "
+					+ "prezzo = ?, data = ?, posti_per_settore = ? WHERE id = ?",
+					partita.getSquadraInCasa().getNome(), partita.getSquadraInTrasferta().getNome(),
+					partita.getStadio().getNome(), partita.getStadio().getCapienzaDesiderataStadio(),
+					partita.getStadio().getPrezzoPerPartita(), partita.getData().getTimeInMillis(),
+					partita.getDisposizionePosti().getPostiPerSettore(), this.getId(partita));
+			this.scriviPosti(partita);
+		}
+
+		@Override
+		public void rimuovi(Partita partita) throws IOException {
+			long id = this.getId(partita);
+
+			esegui("DELETE FROM posti WHERE partita = ?", id);
+			esegui("DELETE FROM partite WHERE id = ?", id);
+			this.elenco.remove(this.perId.remove(id));
+			this.id.remove(partita);
+		}
+
+		/**
+		 * Aggiorna lo stato di un posto della partita.
+		 */
+		private void aggiornaPosto(Partita partita, Posto posto) throws IOException {
+			long id = this.getId(partita);
+			int indice = partita.indicePosto(posto);
+
+			esegui("DELETE FROM posti WHERE partita = ? AND indice = ?", id, indice);
+			if (posto.getStato() != SeatStatus.LIBERO) {
+				esegui("INSERT INTO posti (partita, indice, stato) VALUES (?, ?, ?)", id, indice,
+						posto.getStato().ordinal());
+			}
+		}
+
+		/**
+		 * Riscrive lo stato dei posti non liberi della partita.
+		 */
+		private void scriviPosti(Partita partita) throws IOException {
+			long id = this.getId(partita);
+
+			StatoPosti statoPosti = partita.getStatoPosti();
+
+			esegui("DELETE FROM posti WHERE partita = ?", id);
+			for (int indice = 0; indice < statoPosti.getNumeroPosti(); indice++) {
+				SeatStatus stato = statoPosti.getStato(indice);
+
+				if (stato != SeatStatus.LIBERO) {
+					esegui("INSERT INTO posti (partita, indice, stato) VALUES (?, ?, ?)", id, indice,
+							stato.ordinal());
+				}
+			}
+		}
+
+		/**
+		 * Restituisce il numero che identifica la partita, cercandola per
+		 * identita' o, se necessario, con {@link Partita#equals(Object)}.
+		 */
+		private long getId(Partita partita) throws IOException {
+			Long id = this.id.get(partita);
+
+			if (id == null) {
+				int indice = this.elenco.indexOf(partita);
+
+				if (indice == -1) {
+					throw new IOException("Partita non presente nel database: " + partita);
+				}
+				id = this.id.get(this.elenco.get(indice));
+			}
+			return id;
+		}
+
+		/**
+		 * Partite nello stesso ordine della StrutturaSportiva.
+		 */
+		private final ArrayList<Partita> elenco = new ArrayList<>();
+		private final IdentityHashMap<Partita, Long> id = new IdentityHashMap<>();
+		private final HashMap<Long, Partita> perId = new HashMap<>();
+	}
+
+	private class RepositorySconti implements Repository<Sconto> {
+
+		@Override
+		public ArrayList<Sconto> elenca() throws IOException {
+			ArrayList<Sconto> elenco = new ArrayList<>();
+
+			try {
+				Statement statement = connessione.createStatement();
+
+				try {
+					ResultSet rs = statement.executeQuery("SELECT tipo, percentuale, inizio, fine, partita, stadio, "
+							+ "giorno FROM sconti ORDER BY inizio");
+
+					while (rs.next()) {
+						TipoSconto tipo = TipoSconto.values()[rs.getInt(1)];
+						/* Il costruttore di Sconto si aspetta la percentuale, non la frazione */
+						double percentuale = rs.getDouble(2) * 100;
+						GregorianCalendar inizio = leggiData(rs.getLong(3));
+						GregorianCalendar fine = leggiData(rs.getLong(4));
+
+						switch (tipo) {
+						case PARTITA_CORRENTE:
+							elenco.add(new Sconto(tipo, percentuale, inizio, fine, getPartita(rs.getLong(5))));
+							break;
+						case TUTTE_LE_PARTITE_DELLO_STADIO:
+							elenco.add(new Sconto(tipo, percentuale, inizio, fine,
+									strutturaSportiva.getStadio(rs.getString(6))));
+							break;
+						default:
+							elenco.add(new Sconto(tipo, percentuale, inizio, fine,
+									DaysOfWeek.values()[rs.getInt(7)]));
+							break;
+						}
+					}
+				} finally {
+					statement.close();
+				}
+			} catch (SQLException e) {
+				throw new IOException(e);
+			}
+			return elenco;
+		}
+
+		@Override
+		public void aggiungi(Sconto sconto) throws IOException {
+			Object[] chiave = this.getChiave(sconto);
+
+			esegui("INSERT INTO sconti (tipo, inizio, fine, partita, stadio, giorno, percentuale) "
+					+ "VALUES (?, ?, ?, ?, ?, ?, ?)", chiave[0], chiave[1], chiave[2], chiave[3], chiave[4], chiave[5],
+					sconto.getPercetualeSconto());
+		}
+
+		@Override
+		public void aggiorna(Sconto sconto) throws IOException {
+			Object[] chiave = this.getChiave(sconto);
+
+			esegui("UPDATE sconti SET percentuale = ? " + DOVE_SCONTO, sconto.getPercetualeSconto(), chiave[0],
+					chiave[1], chiave[2], chiave[3], chiave[4], chiave[5]);
+		}
+
+		@Override
+		public void rimuovi(Sconto sconto) throws IOException {
+			esegui("DELETE FROM sconti " + DOVE_SCONTO, this.getChiave(sconto));
+		}
+
+		/**
+		 * Restituisce i campi che identificano lo sconto, gli stessi usati da
+		 * {@link Sconto#equals(Object)}; i campi non usati dal tipo di sconto
+		 * valgono -1 (o la stringa vuota).
+		 */
+		private Object[] getChiave(Sconto sconto) throws IOException {
+			long partita = -1;
+			String stadio = "";
+			int giorno = -1;
+
+			switch (sconto.getScontoScelto()) {
+			case PARTITA_CORRENTE:
+				partita = partite.getId(sconto.getPartita());
+				break;
+			case TUTTE_LE_PARTITE_DELLO_STADIO:
+				stadio = sconto.getStadio().getNome();
+				break;
+			case GIORNO_PRESTABILITO:
+				giorno = sconto.getGiornoSettimana().ordinal();
+				break;
+			}
+
+			return new Object[] { sconto.getScontoScelto().ordinal(), sconto.getInizioValidita().getTimeInMillis(),
+					sconto.getFineValidita().getTimeInMillis(), partita, stadio, giorno };
+		}
+
+		private static final String DOVE_SCONTO = "WHERE tipo = ? AND inizio = ? AND fine = ? AND partita = ? "
+				+ "AND stadio = ? AND giorno = ?";
+	}
+
+	/**
+	 * Repository delle prenotazioni o degli acquisti, identificati dal
+	 * cliente, dalla partita e dal posto.
+	 */
+	private abstract class RepositoryBiglietti<T> implements Repository<T> {
+
+		private RepositoryBiglietti(String tabella) {
+			this.tabella = tabella;
+		}
+
+		protected abstract Biglietto getBiglietto(T elemento);
+
+		protected abstract T ripristina(Biglietto biglietto);
+
+		@Override
+		public ArrayList<T> elenca() throws IOException {
+			ArrayList<T> elenco = new ArrayList<>();
+
+			try {
+				Statement statement = connessione.createStatement();
+
+				try {
+					ResultSet rs = statement.executeQuery("SELECT username, partita, settore, fila, posto, data, "
+							+ "prezzo FROM " + this.tabella + " ORDER BY data");
+
+					while (rs.next()) {
+						Cliente cliente = (Cliente) strutturaSportiva.getUtente(rs.getString(1));
+						Partita partita = getPartita(rs.getLong(2));
+
+						elenco.add(this.ripristina(Biglietto.ripristina(strutturaSportiva, cliente, partita,
+								partita.getSettore(rs.getInt(3)), rs.getInt(4), rs.getInt(5),
+								leggiData(rs.getLong(6)), rs.getDouble(7))));
+					}
+				} finally {
+					statement.close();
+				}
+			} catch (SQLException | UserNotFoundException e) {
+				throw new IOException(e);
+			}
+			return elenco;
+		}
+
+		@Override
+		public void aggiungi(T elemento) throws IOException {
+			Biglietto biglietto = this.getBiglietto(elemento);
+			Partita partita = biglietto.getPartita();
+
+			esegui("INSERT INTO " + this.tabella + " (username, partita, settore, fila, posto, data, prezzo) "
+					+ "VALUES (?, ?, ?, ?, ?, ?, ?)", biglietto.getCliente().getUsername(), partite.getId(partita),
+					partita.indiceSettore(biglietto.getSettore()), biglietto.getFila(),
+					biglietto.getPosto().getNumeroPosto(), biglietto.getDataBiglietto().getTimeInMillis(),
+					biglietto.getPrezzo());
+		}
+
+		@Override
+		public void aggiorna(T elemento) throws IOException {
+			Biglietto biglietto = this.getBiglietto(elemento);
+
+			esegui("UPDATE " + this.tabella + " SET data = ?, prezzo = ? " + DOVE_BIGLIETTO,
+					biglietto.getDataBiglietto().getTimeInMillis(), biglietto.getPrezzo(),
+					biglietto.getCliente().getUsername(), partite.getId(biglietto.getPartita()),
+					biglietto.getPartita().indiceSettore(biglietto.getSettore()), biglietto.getPosto().getNumeroPosto());
+		}
+
+		@Override
+		public void rimuovi(T elemento) throws IOException {
+			Biglietto biglietto = this.getBiglietto(elemento);
+
+			esegui("DELETE FROM " + this.tabella + " " + DOVE_BIGLIETTO, biglietto.getCliente().getUsername(),
+					partite.getId(biglietto.getPartita()), biglietto.getPartita().indiceSettore(biglietto.getSettore()),
+					biglietto.getPosto().getNumeroPosto());
+		}
+
+		/**
+		 * Rimuove tutti i biglietti della partita.
+		 */
+		private void rimuoviPerPartita(Partita partita) throws IOException {
+			esegui("DELETE FROM " + this.tabella + " WHERE partita = ?", partite.getId(partita));
+		}
+
+		private final String tabella;
+
+		private static final String DOVE_BIGLIETTO = "WHERE username = ? AND partita = ? AND settore = ? AND posto = ?";
+	}
+
+	/**
+	 * Sorgente dei posti di una partita, letti dalla tabella {@code posti}.
+	 */
+	private class PostiJdbc implements SorgentePosti {
+
+		private PostiJdbc(long partita, int postiPerSettore) {
+			this.partita = partita;
+			this.postiPerSettore = postiPerSettore;
+		}
+
+		@Override
+		public int getPostiPerSettore() {
+			return this.postiPerSettore;
+		}
+
+		@Override
+		public StatoPosti caricaStatoPosti() {
+			StatoPosti statoPosti = new StatoPosti(DisposizionePosti.get(this.postiPerSettore));
+			SeatStatus[] valori = SeatStatus.values();
+
+			try {
+				PreparedStatement statement = connessione
+						.prepareStatement("SELECT indice, stato FROM posti WHERE partita = ?");
+
+				try {
+					statement.setLong(1, this.partita);
+					ResultSet rs = statement.executeQuery();
+
+					while (rs.next()) {
+						statoPosti.setStato(rs.getInt(1), valori[rs.getInt(2)]);
+					}
+				} finally {
+					statement.close();
+				}
+			} catch (SQLException e) {
+				throw new UncheckedIOException(new IOException(e));
+			}
+			return statoPosti;
+		}
+
+		private final long partita;
+		private final int postiPerSettore;
+	}
+
+	private Partita getPartita(long id) throws IOException {
+		Partita partita = this.partite.perId.get(id);
+
+		if (partita == null) {
+			throw new IOException("Partita " + id + " non presente nel database");
+		}
+		return partita;
+	}
+
+	private static GregorianCalendar leggiData(long millisecondi) {
+		GregorianCalendar data = new GregorianCalendar();
+		data.setTimeInMillis(millisecondi);
+		return data;
+	}
+
+	private final Connection connessione;
+	private final StrutturaSportiva strutturaSportiva;
+	private final RepositoryUtenti utenti;
+	private final RepositoryStadi stadi;
+	private final RepositoryPartite partite;
+	private final RepositorySconti sconti;
+	private final RepositoryBiglietti<Prenotazione> prenotazioni;
+	private final RepositoryBiglietti<Acquisto> acquisti;
+
+	private static final String COLONNE_BIGLIETTI = " (username VARCHAR(64), partita BIGINT, settore INTEGER, "
+			+ "fila INTEGER, posto INTEGER, data BIGINT, prezzo DOUBLE, PRIMARY KEY (username, partita, settore, posto))";
+}
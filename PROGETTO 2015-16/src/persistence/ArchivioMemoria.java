@@ -0,0 +1,39 @@
+package persistence;
+
+import struttura.StrutturaSportiva;
+
+/**
+ * Archivio che conserva la {@link StrutturaSportiva} soltanto in memoria:
+ * le modifiche vanno perse alla chiusura. E' utile per provare
+ * l'applicazione e come termine di paragone per gli altri archivi.
+ * 
+ * @author Maurizio Casciano
+ */
+public class ArchivioMemoria implements Archivio {
+
+	/**
+	 * Crea un archivio in memoria con una nuova StrutturaSportiva.
+	 * 
+	 * @param nome
+	 *            - Il nome della StrutturaSportiva.
+	 * @author Maurizio Casciano
+	 */
+	public ArchivioMemoria(String nome) {
+		this.strutturaSportiva = new StrutturaSportiva(nome);
+	}
+
+	@Override
+	public StrutturaSportiva getStrutturaSportiva() {
+		return this.strutturaSportiva;
+	}
+
+	@Override
+	public void salva() {
+	}
+
+	@Override
+	public void close() {
+	}
+
+	private final StrutturaSportiva strutturaSportiva;
+}
@@ -0,0 +1,201 @@
+package persistence;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+
+import struttura.Partita;
+import struttura.SorgentePosti;
+import struttura.StrutturaSportiva;
+
+/**
+ * Scrive periodicamente in background uno {@link Snapshot} della
+ * {@link StrutturaSportiva} ed elimina i segmenti del {@link Journal} in esso
+ * compresi, limitando cosi' la dimensione del journal ed il tempo necessario
+ * a riapplicarlo all'avvio.
+ * 
+ * Un checkpoint viene eseguito quando il journal supera la dimensione
+ * massima indicata, oppure quando e' trascorso l'intervallo massimo indicato
+ * dall'ultimo checkpoint ed il journal contiene almeno una modifica. La
+ * StrutturaSportiva resta bloccata soltanto per il tempo necessario ad
+ * iniziare un nuovo segmento e a serializzarla in memoria: la scrittura su
+ * disco avviene senza bloccare prenotazioni e acquisti.
+ * 
+ * Lo stato dei posti viene riscritto soltanto per le partite i cui posti sono
+ * stati caricati in memoria: le altre continuano ad usare il
+ * {@link FilePosti} da cui sono state ripristinate.
+ * 
+ * @author Maurizio Casciano
+ */
+public class Checkpointer {
+
+	/**
+	 * Crea un nuovo Checkpointer.
+	 * 
+	 * @param strutturaSportiva
+	 *            - La StrutturaSportiva di cui salvare gli snapshot.
+	 * @param journal
+	 *            - Il journal della StrutturaSportiva.
+	 * @param snapshotFile
+	 *            - Il file dello snapshot.
+	 * @param dimensioneMassimaJournal
+	 *            - Il numero di byte del journal oltre il quale viene
+	 *            eseguito un checkpoint.
+	 * @param intervalloMassimo
+	 *            - I millisecondi trascorsi i quali viene eseguito un
+	 *            checkpoint, se il journal contiene almeno una modifica.
+	 * @author Maurizio Casciano
+	 */
+	public Checkpointer(StrutturaSportiva strutturaSportiva, Journal journal, File snapshotFile,
+			long dimensioneMassimaJournal, long intervalloMassimo) {
+		this.strutturaSportiva = strutturaSportiva;
+		this.journal = journal;
+		this.snapshotFile = snapshotFile;
+		this.dimensioneMassimaJournal = dimensioneMassimaJournal;
+		this.intervalloMassimo = intervalloMassimo;
+		this.ultimoCheckpoint = System.currentTimeMillis();
+		this.cartellaPosti = Snapshot.getCartellaPosti(snapshotFile);
+		this.prossimoFilePosti = FilePosti.getProssimoNumero(this.cartellaPosti);
+	}
+
+	/**
+	 * Avvia il controllo periodico della dimensione del journal e del tempo
+	 * trascorso dall'ultimo checkpoint.
+	 * 
+	 * @author Maurizio Casciano
+	 */
+	public synchronized void avvia() {
+		if (this.timer == null) {
+			this.timer = new Timer("Checkpointer", true);
+			this.timer.schedule(new TimerTask() {
+
+				@Override
+				public void run() {
+					try {
+						if (isCheckpointNecessario()) {
+							checkpoint();
+						}
+					} catch (IOException e) {
+						/*
+						 * Lo snapshot precedente ed il journal restano
+						 * validi, il checkpoint sara' ritentato al prossimo
+						 * controllo.
+						 */
+						e.printStackTrace();
+					}
+				}
+			}, PERIODO_CONTROLLO, PERIODO_CONTROLLO);
+		}
+	}
+
+	/**
+	 * Interrompe il controllo periodico. Un eventuale checkpoint in corso
+	 * viene completato.
+	 * 
+	 * @author Maurizio Casciano
+	 */
+	public synchronized void ferma() {
+		if (this.timer != null) {
+			this.timer.cancel();
+			this.timer = null;
+		}
+	}
+
+	/**
+	 * Verifica se e' necessario eseguire un checkpoint.
+	 * 
+	 * @return {@code true} se il journal ha superato la dimensione massima,
+	 *         oppure se e' trascorso l'intervallo massimo ed il journal
+	 *         contiene almeno una modifica.
+	 * @author Maurizio Casciano
+	 */
+	public boolean isCheckpointNecessario() {
+		long dimensione = this.journal.getDimensioneDalCheckpoint();
+
+		return dimensione >= this.dimensioneMassimaJournal
+				|| (dimensione > 0 && System.currentTimeMillis() - this.ultimoCheckpoint >= this.intervalloMassimo);
+	}
+
+	/**
+	 * Esegue un checkpoint: inizia un nuovo segmento del journal, scrive i
+	 * file dei posti delle partite caricate e lo snapshot della
+	 * StrutturaSportiva, infine elimina i file dei posti non piu' usati ed i
+	 * segmenti compresi nello snapshot.
+	 * 
+	 * @throws IOException
+	 *             Se si verifica un errore durante la scrittura. In tal caso
+	 *             restano validi lo snapshot precedente ed il journal.
+	 * @author Maurizio Casciano
+	 */
+	public void checkpoint() throws IOException {
+		synchronized (this.snapshotFile) {
+			long primoSegmento;
+			byte[] contenuto;
+			IdentityHashMap<Partita, FilePosti> filePosti = new IdentityHashMap<>();
+			Map<FilePosti, byte[]> postiDaScrivere = new LinkedHashMap<>();
+
+			/*
+			 * Vista consistente della StrutturaSportiva: nessuna modifica puo'
+			 * avvenire tra l'inizio del nuovo segmento e la serializzazione.
+			 */
+			synchronized (this.strutturaSportiva) {
+				primoSegmento = this.journal.nuovoSegmento();
+
+				for (Partita partita : this.strutturaSportiva.getPartiteProgrammate()) {
+					synchronized (partita) {
+						SorgentePosti sorgente = partita.getSorgentePosti();
+
+						if (sorgente instanceof FilePosti
+								&& ((FilePosti) sorgente).getCartella().equals(this.cartellaPosti)) {
+							filePosti.put(partita, (FilePosti) sorgente);
+						} else {
+							FilePosti nuovo = new FilePosti(this.cartellaPosti, this.prossimoFilePosti++,
+									partita.getDisposizionePosti().getPostiPerSettore());
+
+							filePosti.put(partita, nuovo);
+							postiDaScrivere.put(nuovo, partita.getStatoPosti().comprimi());
+						}
+					}
+				}
+
+				contenuto = Snapshot.serializza(this.strutturaSportiva, primoSegmento, filePosti);
+			}
+
+			for (Map.Entry<FilePosti, byte[]> posti : postiDaScrivere.entrySet()) {
+				FilePosti.scrivi(this.cartellaPosti, posti.getKey().getNumero(), posti.getKey().getPostiPerSettore(),
+						posti.getValue());
+			}
+
+			Snapshot.scrivi(this.snapshotFile, contenuto);
+
+			ArrayList<Long> usati = new ArrayList<>();
+			for (FilePosti posti : filePosti.values()) {
+				usati.add(posti.getNumero());
+			}
+
+			FilePosti.eliminaNonUsati(this.cartellaPosti, usati);
+			this.journal.eliminaSegmentiPrecedenti(primoSegmento);
+			this.ultimoCheckpoint = System.currentTimeMillis();
+		}
+	}
+
+	private final StrutturaSportiva strutturaSportiva;
+	private final Journal journal;
+	private final File snapshotFile;
+	private final long dimensioneMassimaJournal;
+	private final long intervalloMassimo;
+	private final File cartellaPosti;
+	private long prossimoFilePosti;
+	private volatile long ultimoCheckpoint;
+	private Timer timer;
+
+	/**
+	 * Millisecondi tra un controllo e il successivo.
+	 */
+	private static final long PERIODO_CONTROLLO = 10 * 1000;
+}
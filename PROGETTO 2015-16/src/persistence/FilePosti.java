@@ -0,0 +1,225 @@
+package persistence;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.zip.CRC32;
+
+import graphics.stadium.DivisibleIntoSectors;
+import struttura.DisposizionePosti;
+import struttura.SorgentePosti;
+import struttura.StatoPosti;
+
+/**
+ * File contenente lo stato dei posti di una {@link struttura.Partita}, scritto
+ * ad ogni checkpoint nella cartella {@code <nome>.ser.posti} con il nome
+ * {@code <numero>.posti}. I file non vengono mai modificati: una partita i cui
+ * posti non sono stati caricati continua ad usare lo stesso file negli
+ * snapshot successivi, mentre i file non piu' usati vengono eliminati.
+ * 
+ * Il file ha una disposizione fissa: numero magico, versione, posti per
+ * settore, numero di settori, stato dei posti (2 bit per posto) e CRC32 dello
+ * stato dei posti. Il file viene mappato in memoria soltanto al primo
+ * accesso ai settori della partita.
+ * 
+ * @author Maurizio Casciano
+ */
+class FilePosti implements SorgentePosti {
+
+	/**
+	 * Crea la sorgente dei posti di una partita.
+	 * 
+	 * @param cartella
+	 *            - La cartella dei file dei posti.
+	 * @param numero
+	 *            - Il numero del file.
+	 * @param postiPerSettore
+	 *            - Il numero di posti per settore della partita.
+	 */
+	FilePosti(File cartella, long numero, int postiPerSettore) {
+		this.cartella = cartella;
+		this.numero = numero;
+		this.postiPerSettore = postiPerSettore;
+	}
+
+	@Override
+	public int getPostiPerSettore() {
+		return this.postiPerSettore;
+	}
+
+	@Override
+	public StatoPosti caricaStatoPosti() {
+		File file = getFile(this.cartella, this.numero);
+
+		try {
+			FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+
+			try {
+				MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+				if (buffer.remaining() < DIMENSIONE_INTESTAZIONE || buffer.getInt() != NUMERO_MAGICO
+						|| buffer.getShort() != VERSIONE) {
+					throw new IOException(file.getName() + " non e' un file dei posti valido");
+				}
+
+				int postiPerSettore = buffer.getInt();
+				int numeroSettori = buffer.getInt();
+				int dimensioneStati = StatoPosti.getDimensioneCompressa(numeroSettori * postiPerSettore);
+
+				if (postiPerSettore != this.postiPerSettore || numeroSettori != DivisibleIntoSectors.NUMERO_SETTORI
+						|| buffer.remaining() != dimensioneStati + 4) {
+					throw new IOException(file.getName() + " non corrisponde alla partita");
+				}
+
+				ByteBuffer stati = buffer.slice();
+				stati.limit(dimensioneStati);
+
+				CRC32 crc = new CRC32();
+				crc.update(stati.duplicate());
+				buffer.position(buffer.position() + dimensioneStati);
+
+				if (buffer.getInt() != (int) crc.getValue()) {
+					throw new IOException(file.getName() + " e' danneggiato (CRC non valido)");
+				}
+
+				StatoPosti statoPosti = new StatoPosti(DisposizionePosti.get(postiPerSettore));
+				statoPosti.decomprimi(stati);
+				return statoPosti;
+			} finally {
+				channel.close();
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Restituisce il numero del file.
+	 * 
+	 * @return Il numero del file.
+	 */
+	long getNumero() {
+		return this.numero;
+	}
+
+	/**
+	 * Restituisce la cartella dei file dei posti.
+	 * 
+	 * @return La cartella dei file dei posti.
+	 */
+	File getCartella() {
+		return this.cartella;
+	}
+
+	/**
+	 * Scrive il file dei posti e ne forza la scrittura su disco.
+	 * 
+	 * @param cartella
+	 *            - La cartella dei file dei posti, creata se non esiste.
+	 * @param numero
+	 *            - Il numero del file.
+	 * @param postiPerSettore
+	 *            - Il numero di posti per settore della partita.
+	 * @param stati
+	 *            - Lo stato dei posti, ottenuto con
+	 *            {@link StatoPosti#comprimi()}.
+	 * @throws IOException
+	 *             Se si verifica un errore durante la scrittura.
+	 */
+	static void scrivi(File cartella, long numero, int postiPerSettore, byte[] stati) throws IOException {
+		Files.createDirectories(cartella.toPath());
+
+		CRC32 crc = new CRC32();
+		crc.update(stati, 0, stati.length);
+
+		ByteBuffer buffer = ByteBuffer.allocate(DIMENSIONE_INTESTAZIONE + stati.length + 4);
+		buffer.putInt(NUMERO_MAGICO);
+		buffer.putShort(VERSIONE);
+		buffer.putInt(postiPerSettore);
+		buffer.putInt(DivisibleIntoSectors.NUMERO_SETTORI);
+		buffer.put(stati);
+		buffer.putInt((int) crc.getValue());
+
+		FileOutputStream output = new FileOutputStream(getFile(cartella, numero));
+
+		try {
+			output.write(buffer.array());
+			output.getFD().sync();
+		} finally {
+			output.close();
+		}
+	}
+
+	/**
+	 * Elimina i file dei posti non piu' usati dall'ultimo snapshot.
+	 * 
+	 * @param cartella
+	 *            - La cartella dei file dei posti.
+	 * @param usati
+	 *            - I numeri dei file usati dall'ultimo snapshot.
+	 * @throws IOException
+	 *             Se un file non puo' essere eliminato.
+	 */
+	static void eliminaNonUsati(File cartella, Collection<Long> usati) throws IOException {
+		for (long numero : elencaFile(cartella)) {
+			if (!usati.contains(numero)) {
+				Files.deleteIfExists(getFile(cartella, numero).toPath());
+			}
+		}
+	}
+
+	/**
+	 * Restituisce il primo numero non ancora usato da un file dei posti.
+	 * 
+	 * @param cartella
+	 *            - La cartella dei file dei posti.
+	 * @return Il primo numero libero.
+	 */
+	static long getProssimoNumero(File cartella) {
+		long prossimo = 0;
+
+		for (long numero : elencaFile(cartella)) {
+			prossimo = Math.max(prossimo, numero + 1);
+		}
+		return prossimo;
+	}
+
+	private static File getFile(File cartella, long numero) {
+		return new File(cartella, numero + ESTENSIONE);
+	}
+
+	private static ArrayList<Long> elencaFile(File cartella) {
+		ArrayList<Long> numeri = new ArrayList<>();
+		String[] files = cartella.list();
+
+		if (files != null) {
+			for (String file : files) {
+				if (file.endsWith(ESTENSIONE)) {
+					try {
+						numeri.add(Long.parseLong(file.substring(0, file.length() - ESTENSIONE.length())));
+					} catch (NumberFormatException e) {
+						/* Non e' un file dei posti */
+					}
+				}
+			}
+		}
+		return numeri;
+	}
+
+	private final File cartella;
+	private final long numero;
+	private final int postiPerSettore;
+
+	private static final String ESTENSIONE = ".posti";
+	private static final int NUMERO_MAGICO = 0x424B5053;
+	private static final short VERSIONE = 1;
+	private static final int DIMENSIONE_INTESTAZIONE = 4 + 2 + 4 + 4;
+}
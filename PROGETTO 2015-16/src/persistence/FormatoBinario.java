@@ -0,0 +1,341 @@
+package persistence;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.GregorianCalendar;
+import java.util.IdentityHashMap;
+
+import struttura.Acquisto;
+import struttura.Biglietto;
+import struttura.DaysOfWeek;
+import struttura.DisposizionePosti;
+import struttura.Partita;
+import struttura.Prenotazione;
+import struttura.Sconto;
+import struttura.Settore;
+import struttura.Squadra;
+import struttura.Stadio;
+import struttura.StatoPosti;
+import struttura.StrutturaSportiva;
+import struttura.TipoSconto;
+import user.Cliente;
+import user.Gestore;
+import user.Utente;
+
+/**
+ * Formato binario compatto degli {@link Snapshot}, scritto e letto a mano
+ * campo per campo al posto della serializzazione Java.
+ * 
+ * Gli stadi vengono scritti una sola volta (nome, capienza e prezzo, da cui
+ * si ricava la disposizione dei posti), le entita' sono riferite con la loro
+ * posizione nella rispettiva tabella e le date sono scritte come
+ * millisecondi. Lo stato dei posti di ogni partita e' scritto in un
+ * {@link FilePosti} separato, di cui lo snapshot contiene soltanto il numero,
+ * e viene caricato solo al primo accesso ai settori della partita (nella
+ * versione 1 era scritto direttamente nello snapshot). Dalla versione 3 viene
+ * scritto anche l'identificativo di ogni partita.
+ * 
+ * Il formato e' versionato: ogni modifica incompatibile deve incrementare
+ * {@link #VERSIONE} e continuare a leggere le versioni precedenti.
+ * 
+ * @author Maurizio Casciano
+ */
+class FormatoBinario {
+
+	private FormatoBinario() {
+	}
+
+	/**
+	 * Scrive la StrutturaSportiva nel formato binario. Il metodo va invocato
+	 * sincronizzandosi sulla StrutturaSportiva.
+	 * 
+	 * @param output
+	 *            - Lo stream su cui scrivere.
+	 * @param strutturaSportiva
+	 *            - La StrutturaSportiva da scrivere.
+	 * @param primoSegmento
+	 *            - Il primo segmento del journal non compreso nello snapshot.
+	 * @param filePosti
+	 *            - Il numero del file dei posti di ogni partita.
+	 * @throws IOException
+	 *             Se si verifica un errore durante la scrittura.
+	 */
+	static void scrivi(DataOutputStream output, StrutturaSportiva strutturaSportiva, long primoSegmento,
+			IdentityHashMap<Partita, FilePosti> filePosti) throws IOException {
+		output.writeInt(NUMERO_MAGICO);
+		output.writeShort(VERSIONE);
+		output.writeLong(primoSegmento);
+		output.writeUTF(strutturaSportiva.getNome());
+
+		/* Utenti */
+		ArrayList<Utente> utenti = strutturaSportiva.getUtenti();
+		IdentityHashMap<Utente, Integer> idUtenti = new IdentityHashMap<>();
+
+		output.writeInt(utenti.size());
+		for (Utente utente : utenti) {
+			idUtenti.put(utente, idUtenti.size());
+			output.writeBoolean(utente instanceof Gestore);
+			output.writeUTF(utente.getNome());
+			output.writeUTF(utente.getCognome());
+			output.writeUTF(utente.getUsername());
+			output.writeUTF(utente.getPasswordHash());
+		}
+
+		/*
+		 * Stadi: prima quelli registrati, poi quelli usati soltanto da una
+		 * partita (ad esempio lo stadio di default di una nuova partita).
+		 */
+		ArrayList<Stadio> stadi = new ArrayList<>(strutturaSportiva.getStadi());
+		IdentityHashMap<Stadio, Integer> idStadi = new IdentityHashMap<>();
+
+		for (Stadio stadio : stadi) {
+			idStadi.put(stadio, idStadi.size());
+		}
+		for (Partita partita : strutturaSportiva.getPartiteProgrammate()) {
+			if (!idStadi.containsKey(partita.getStadio())) {
+				idStadi.put(partita.getStadio(), idStadi.size());
+				stadi.add(partita.getStadio());
+			}
+		}
+
+		output.writeInt(stadi.size());
+		output.writeInt(strutturaSportiva.getStadi().size());
+		for (Stadio stadio : stadi) {
+			output.writeUTF(stadio.getNome());
+			output.writeInt(stadio.getCapienzaDesiderataStadio());
+			output.writeDouble(stadio.getPrezzoPerPartita());
+		}
+
+		/* Partite, con il riferimento al file dei posti */
+		ArrayList<Partita> partite = strutturaSportiva.getPartiteProgrammate();
+		IdentityHashMap<Partita, Integer> idPartite = new IdentityHashMap<>();
+
+		output.writeInt(partite.size());
+		for (Partita partita : partite) {
+			idPartite.put(partita, idPartite.size());
+			output.writeUTF(partita.getSquadraInCasa().getNome());
+			output.writeUTF(partita.getSquadraInTrasferta().getNome());
+			output.writeInt(idStadi.get(partita.getStadio()));
+			output.writeLong(partita.getData().getTimeInMillis());
+			output.writeInt(filePosti.get(partita).getPostiPerSettore());
+			output.writeLong(filePosti.get(partita).getNumero());
+			output.writeLong(partita.getId());
+		}
+
+		/* Sconti */
+		output.writeInt(strutturaSportiva.getSconti().size());
+		for (Sconto sconto : strutturaSportiva.getSconti()) {
+			output.writeByte(sconto.getScontoScelto().ordinal());
+			output.writeDouble(sconto.getPercetualeSconto());
+			output.writeLong(sconto.getInizioValidita().getTimeInMillis());
+			output.writeLong(sconto.getFineValidita().getTimeInMillis());
+
+			switch (sconto.getScontoScelto()) {
+			case PARTITA_CORRENTE:
+				output.writeInt(idPartite.get(sconto.getPartita()));
+				break;
+			case TUTTE_LE_PARTITE_DELLO_STADIO:
+				output.writeInt(idStadi.get(sconto.getStadio()));
+				break;
+			case GIORNO_PRESTABILITO:
+				output.writeByte(sconto.getGiornoSettimana().ordinal());
+				break;
+			}
+		}
+
+		/* Prenotazioni e acquisti */
+		output.writeInt(strutturaSportiva.getPrenotazioni().size());
+		for (Prenotazione prenotazione : strutturaSportiva.getPrenotazioni()) {
+			scriviBiglietto(output, prenotazione.getBigliettoPrenotato(), idUtenti, idPartite);
+		}
+
+		output.writeInt(strutturaSportiva.getAcquisti().size());
+		for (Acquisto acquisto : strutturaSportiva.getAcquisti()) {
+			scriviBiglietto(output, acquisto.getBiglietto(), idUtenti, idPartite);
+		}
+	}
+
+	/**
+	 * Legge una StrutturaSportiva scritta nel formato binario.
+	 * 
+	 * @param input
+	 *            - Lo stream da cui leggere.
+	 * @param cartellaPosti
+	 *            - La cartella dei file dei posti delle partite.
+	 * @return Lo snapshot letto.
+	 * @throws IOException
+	 *             Se lo stream non contiene uno snapshot valido o si verifica
+	 *             un errore durante la lettura.
+	 */
+	static Snapshot leggi(DataInputStream input, File cartellaPosti) throws IOException {
+		if (input.readInt() != NUMERO_MAGICO) {
+			throw new IOException("Formato dello snapshot non riconosciuto");
+		}
+
+		short versione = input.readShort();
+		if (versione != VERSIONE && versione != VERSIONE_SENZA_ID && versione != VERSIONE_POSTI_IN_LINEA) {
+			throw new IOException("Versione dello snapshot non supportata: " + versione);
+		}
+
+		long primoSegmento = input.readLong();
+		StrutturaSportiva strutturaSportiva = new StrutturaSportiva(input.readUTF());
+
+		/* Utenti */
+		ArrayList<Utente> utenti = strutturaSportiva.getUtenti();
+		int numeroUtenti = input.readInt();
+
+		for (int i = 0; i < numeroUtenti; i++) {
+			boolean gestore = input.readBoolean();
+			String nome = input.readUTF();
+			String cognome = input.readUTF();
+			String username = input.readUTF();
+			String passwordHash = input.readUTF();
+
+			if (gestore) {
+				utenti.add(Gestore.ripristina(nome, cognome, username, passwordHash));
+			} else {
+				utenti.add(Cliente.ripristina(nome, cognome, username, passwordHash));
+			}
+		}
+
+		/* Stadi */
+		int numeroStadi = input.readInt();
+		int numeroStadiRegistrati = input.readInt();
+		Stadio[] stadi = new Stadio[numeroStadi];
+
+		for (int i = 0; i < numeroStadi; i++) {
+			stadi[i] = new Stadio(input.readUTF(), input.readInt(), input.readDouble());
+
+			if (i < numeroStadiRegistrati) {
+				strutturaSportiva.getStadi().add(stadi[i]);
+			}
+		}
+
+		/* Partite */
+		ArrayList<Partita> partite = strutturaSportiva.getPartiteProgrammate();
+		int numeroPartite = input.readInt();
+
+		for (int i = 0; i < numeroPartite; i++) {
+			Squadra squadraInCasa = new Squadra(input.readUTF());
+			Squadra squadraInTrasferta = new Squadra(input.readUTF());
+			Stadio stadio = stadi[input.readInt()];
+			GregorianCalendar data = leggiData(input);
+
+			if (versione == VERSIONE_POSTI_IN_LINEA) {
+				int postiPerSettore = input.readInt();
+
+				partite.add(Partita.ripristina(0, squadraInCasa, squadraInTrasferta, stadio, data, postiPerSettore,
+						leggiPosti(input, postiPerSettore)));
+			} else {
+				int postiPerSettore = input.readInt();
+				FilePosti filePosti = new FilePosti(cartellaPosti, input.readLong(), postiPerSettore);
+				long id = versione == VERSIONE_SENZA_ID ? 0 : input.readLong();
+
+				partite.add(Partita.ripristina(id, squadraInCasa, squadraInTrasferta, stadio, data, filePosti));
+			}
+		}
+
+		/* Sconti */
+		int numeroSconti = input.readInt();
+
+		for (int i = 0; i < numeroSconti; i++) {
+			TipoSconto tipo = TipoSconto.values()[input.readByte()];
+			/* Il costruttore di Sconto si aspetta la percentuale, non la frazione */
+			double percentuale = input.readDouble() * 100;
+			GregorianCalendar inizio = leggiData(input);
+			GregorianCalendar fine = leggiData(input);
+			Sconto sconto;
+
+			switch (tipo) {
+			case PARTITA_CORRENTE:
+				sconto = new Sconto(tipo, percentuale, inizio, fine, partite.get(input.readInt()));
+				break;
+			case TUTTE_LE_PARTITE_DELLO_STADIO:
+				sconto = new Sconto(tipo, percentuale, inizio, fine, stadi[input.readInt()]);
+				break;
+			default:
+				sconto = new Sconto(tipo, percentuale, inizio, fine, DaysOfWeek.values()[input.readByte()]);
+				break;
+			}
+
+			strutturaSportiva.getSconti().add(sconto);
+		}
+
+		/* Prenotazioni e acquisti */
+		int numeroPrenotazioni = input.readInt();
+
+		for (int i = 0; i < numeroPrenotazioni; i++) {
+			strutturaSportiva.getPrenotazioni()
+					.add(Prenotazione.ripristina(leggiBiglietto(input, strutturaSportiva)));
+		}
+
+		int numeroAcquisti = input.readInt();
+
+		for (int i = 0; i < numeroAcquisti; i++) {
+			strutturaSportiva.getAcquisti().add(Acquisto.ripristina(leggiBiglietto(input, strutturaSportiva)));
+		}
+		strutturaSportiva.invalidaIndici();
+
+		return new Snapshot(strutturaSportiva, primoSegmento);
+	}
+
+	/**
+	 * Legge lo stato dei posti di una partita scritto direttamente nello
+	 * snapshot (versione 1 del formato).
+	 */
+	private static StatoPosti leggiPosti(DataInputStream input, int postiPerSettore) throws IOException {
+		StatoPosti statoPosti = new StatoPosti(DisposizionePosti.get(postiPerSettore));
+
+		byte[] stati = new byte[StatoPosti.getDimensioneCompressa(statoPosti.getNumeroPosti())];
+		input.readFully(stati);
+		statoPosti.decomprimi(ByteBuffer.wrap(stati));
+
+		return statoPosti;
+	}
+
+	private static void scriviBiglietto(DataOutputStream output, Biglietto biglietto,
+			IdentityHashMap<Utente, Integer> idUtenti, IdentityHashMap<Partita, Integer> idPartite)
+			throws IOException {
+		Partita partita = biglietto.getPartita();
+
+		output.writeInt(idUtenti.get(biglietto.getCliente()));
+		output.writeInt(idPartite.get(partita));
+		output.writeInt(partita.indiceSettore(biglietto.getSettore()));
+		output.writeInt(biglietto.getFila());
+		output.writeInt(biglietto.getPosto().getNumeroPosto());
+		output.writeLong(biglietto.getDataBiglietto().getTimeInMillis());
+		output.writeDouble(biglietto.getPrezzo());
+	}
+
+	private static Biglietto leggiBiglietto(DataInputStream input, StrutturaSportiva strutturaSportiva)
+			throws IOException {
+		Cliente cliente = (Cliente) strutturaSportiva.getUtenti().get(input.readInt());
+		Partita partita = strutturaSportiva.getPartiteProgrammate().get(input.readInt());
+		Settore settore = partita.getSettore(input.readInt());
+		int fila = input.readInt();
+		int posto = input.readInt();
+		GregorianCalendar data = leggiData(input);
+		double prezzo = input.readDouble();
+
+		return Biglietto.ripristina(strutturaSportiva, cliente, partita, settore, fila, posto, data, prezzo);
+	}
+
+	private static GregorianCalendar leggiData(DataInputStream input) throws IOException {
+		GregorianCalendar data = new GregorianCalendar();
+		data.setTimeInMillis(input.readLong());
+		return data;
+	}
+
+	/**
+	 * Numero magico all'inizio del file, diverso da quello della
+	 * serializzazione Java (0xACED) per distinguere gli snapshot precedenti.
+	 */
+	static final int NUMERO_MAGICO = 0x424B534E;
+	static final short VERSIONE = 3;
+	private static final short VERSIONE_SENZA_ID = 2;
+	private static final short VERSIONE_POSTI_IN_LINEA = 1;
+}
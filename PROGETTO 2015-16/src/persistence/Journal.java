@@ -0,0 +1,1165 @@
+package persistence;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.GregorianCalendar;
+import java.util.concurrent.CompletableFuture;
+import java.util.zip.CRC32;
+
+import struttura.Acquisto;
+import struttura.Biglietto;
+import struttura.DaysOfWeek;
+import struttura.Partita;
+import struttura.PersistenzaStrutturaSportiva;
+import struttura.Posto;
+import struttura.Prenotazione;
+import struttura.SeatStatus;
+import struttura.Sconto;
+import struttura.Settore;
+import struttura.Squadra;
+import struttura.Stadio;
+import struttura.StrutturaSportiva;
+import struttura.StrutturaSportivaListener;
+import struttura.TipoSconto;
+import user.AlreadyRegisteredUserException;
+import user.Cliente;
+import user.Gestore;
+import user.UserNotFoundException;
+import user.Utente;
+
+/**
+ * Journal append-only delle modifiche effettuate su una
+ * {@link StrutturaSportiva}. Ogni modifica viene accodata al file come record
+ * binario, per cui il costo di un salvataggio e' proporzionale a quanto e'
+ * cambiato e non alla dimensione del database.
+ * 
+ * Il journal e' diviso in segmenti numerati ({@code <nome>.<numero>.journal}):
+ * ad ogni checkpoint viene iniziato un nuovo segmento, e i segmenti precedenti
+ * vengono eliminati una volta che lo snapshot che li comprende e' stato
+ * salvato. Ogni segmento inizia con un'intestazione (numero magico e
+ * versione), seguita dai record nel formato: lunghezza (int), tipo
+ * ({@link TipoRecord}), dati, CRC32 (int) calcolato su tipo e dati.
+ * All'apertura i record vengono riapplicati sulla StrutturaSportiva caricata
+ * dall'ultimo snapshot; un eventuale record incompleto in coda all'ultimo
+ * segmento (ad esempio per un'interruzione durante la scrittura) viene
+ * scartato.
+ * 
+ * Le entita' sono riferite in modo compatto: le partite con la loro posizione
+ * tra le partite programmate, gli stadi per nome, i clienti per username, i
+ * settori con la loro posizione nella partita e i posti con il loro numero.
+ * Le prenotazioni e gli acquisti di un ordine di gruppo sono scritti in un
+ * unico record, che comprende anche lo stato dei loro posti; allo stesso modo
+ * il completamento delle prenotazioni di un cliente e' scritto come un unico
+ * record con gli acquisti che le sostituiscono.
+ * 
+ * I record vengono scritti su disco in gruppi da un thread dedicato, con una
+ * sola sincronizzazione (fsync) per gruppo: chi deve sapere quando una
+ * modifica e' persistente (ad esempio la conferma di una prenotazione)
+ * attende il future restituito da {@link #modifichePersistenti()}, che viene
+ * completato alla prima scrittura successiva. In assenza di richieste, i
+ * record vengono comunque scritti su disco entro {@link #LATENZA_MASSIMA}
+ * millisecondi.
+ * 
+ * @author Maurizio Casciano
+ */
+public class Journal implements StrutturaSportivaListener, PersistenzaStrutturaSportiva, Closeable {
+
+	/**
+	 * Crea il journal, riapplicando sulla StrutturaSportiva passata in input
+	 * i record dei segmenti non compresi nell'ultimo snapshot. I segmenti gia'
+	 * compresi nello snapshot vengono eliminati. Da questo momento ogni
+	 * modifica della StrutturaSportiva viene accodata all'ultimo segmento.
+	 * 
+	 * @param cartella
+	 *            - La cartella che contiene i segmenti del journal.
+	 * @param nome
+	 *            - Il nome della StrutturaSportiva, usato come prefisso dei
+	 *            segmenti.
+	 * @param primoSegmento
+	 *            - Il primo segmento non compreso nell'ultimo snapshot.
+	 * @param strutturaSportiva
+	 *            - La StrutturaSportiva caricata dall'ultimo snapshot.
+	 * @return Il journal aperto.
+	 * @throws IOException
+	 *             Se un segmento non e' un journal valido, manca o e'
+	 *             danneggiato, non e' coerente con la StrutturaSportiva o non
+	 *             puo' essere letto o scritto.
+	 * @author Maurizio Casciano
+	 */
+	public static Journal apri(File cartella, String nome, long primoSegmento, StrutturaSportiva strutturaSportiva)
+			throws IOException {
+		Journal journal = new Journal(cartella, nome, strutturaSportiva);
+		journal.ripristina(primoSegmento);
+		journal.avviaScrittore();
+		strutturaSportiva.addStrutturaSportivaListener(journal);
+		return journal;
+	}
+
+	private Journal(File cartella, String nome, StrutturaSportiva strutturaSportiva) {
+		this.cartella = cartella;
+		this.nome = nome;
+		this.strutturaSportiva = strutturaSportiva;
+		this.buffer = new ByteArrayOutputStream();
+		this.record = new DataOutputStream(this.buffer);
+		this.crc = new CRC32();
+	}
+
+	/**
+	 * Forza la scrittura su disco di tutti i record accodati.
+	 * 
+	 * @throws IOException
+	 *             Se si verifica un errore durante la scrittura.
+	 * @author Maurizio Casciano
+	 */
+	public synchronized void sync() throws IOException {
+		this.output.flush();
+		this.fileOutputStream.getFD().sync();
+
+		for (Attesa attesa : this.estraiAttese(this.recordAccodati)) {
+			attesa.future.complete(null);
+		}
+	}
+
+	/**
+	 * Restituisce un future che viene completato quando tutti i record
+	 * accodati fino a questo momento sono stati scritti su disco. Le richieste
+	 * che arrivano mentre il thread di scrittura e' impegnato vengono servite
+	 * insieme dalla scrittura successiva.
+	 * 
+	 * @return Il future che segnala la scrittura su disco dei record.
+	 * @author Maurizio Casciano
+	 */
+	@Override
+	public synchronized CompletableFuture<Void> modifichePersistenti() {
+		if (this.recordDurevoli == this.recordAccodati) {
+			return CompletableFuture.completedFuture(null);
+		}
+
+		CompletableFuture<Void> future = new CompletableFuture<>();
+		this.attese.add(new Attesa(this.recordAccodati, future));
+		this.notifyAll();
+		return future;
+	}
+
+	/**
+	 * Scrive su disco i record accodati e chiude il file. Il journal smette di
+	 * ascoltare le modifiche della StrutturaSportiva prima di bloccarsi: le
+	 * modifiche bloccano la StrutturaSportiva e poi il journal, per cui
+	 * l'ordine inverso potrebbe causare uno stallo.
+	 * 
+	 * @author Maurizio Casciano
+	 */
+	@Override
+	public void close() throws IOException {
+		this.strutturaSportiva.removeStrutturaSportivaListener(this);
+
+		synchronized (this) {
+			this.chiuso = true;
+			this.notifyAll();
+			try {
+				this.sync();
+			} finally {
+				this.output.close();
+			}
+		}
+	}
+
+	/**
+	 * Chiude il segmento corrente e ne inizia uno nuovo, in cui saranno
+	 * accodate le modifiche successive. Per ottenere uno snapshot coerente
+	 * con il journal, il metodo va invocato sincronizzandosi sulla
+	 * StrutturaSportiva, in modo che nessuna modifica sia in corso.
+	 * 
+	 * @return Il numero del nuovo segmento, cioe' il primo segmento non
+	 *         compreso in uno snapshot scritto in questo momento.
+	 * @throws IOException
+	 *             Se si verifica un errore durante la scrittura.
+	 * @author Maurizio Casciano
+	 */
+	public synchronized long nuovoSegmento() throws IOException {
+		this.sync();
+		this.output.close();
+
+		this.numeroSegmento++;
+		this.apriInScrittura(this.getFileSegmento(this.numeroSegmento), -1);
+		this.dimensioneDalCheckpoint = 0;
+
+		return this.numeroSegmento;
+	}
+
+	/**
+	 * Elimina i segmenti precedenti a quello indicato, in quanto compresi in
+	 * uno snapshot gia' salvato.
+	 * 
+	 * @param primoSegmento
+	 *            - Il primo segmento non compreso nello snapshot.
+	 * @throws IOException
+	 *             Se un segmento non puo' essere eliminato.
+	 * @author Maurizio Casciano
+	 */
+	public void eliminaSegmentiPrecedenti(long primoSegmento) throws IOException {
+		for (long numero : this.elencaSegmenti()) {
+			if (numero < primoSegmento) {
+				Files.deleteIfExists(this.getFileSegmento(numero).toPath());
+			}
+		}
+	}
+
+	/**
+	 * Restituisce il numero di byte accodati al journal dall'ultimo
+	 * checkpoint (o dall'apertura, comprendendo i record riapplicati).
+	 * 
+	 * @return Il numero di byte non ancora compresi in uno snapshot.
+	 */
+	public synchronized long getDimensioneDalCheckpoint() {
+		return this.dimensioneDalCheckpoint;
+	}
+
+	/*
+	 * ------------------------------------------------------------------------
+	 * Scrittura dei record
+	 * ------------------------------------------------------------------------
+	 */
+
+	@Override
+	public synchronized void utenteAggiunto(Utente utente) {
+		try {
+			this.nuovoRecord(TipoRecord.UTENTE_AGGIUNTO);
+			this.record.writeBoolean(utente instanceof Gestore);
+			this.record.writeUTF(utente.getNome());
+			this.record.writeUTF(utente.getCognome());
+			this.record.writeUTF(utente.getUsername());
+			this.record.writeUTF(utente.getPasswordHash());
+			this.accodaRecord();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public synchronized void stadioAggiunto(Stadio stadio) {
+		try {
+			this.nuovoRecord(TipoRecord.STADIO_AGGIUNTO);
+			this.scriviStadio(stadio);
+			this.accodaRecord();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public synchronized void stadioModificato(Stadio stadio) {
+		try {
+			this.nuovoRecord(TipoRecord.STADIO_MODIFICATO);
+			this.scriviStadio(stadio);
+			this.accodaRecord();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public synchronized void partitaAggiunta(Partita partita) {
+		try {
+			this.nuovoRecord(TipoRecord.PARTITA_AGGIUNTA_CON_ID);
+			this.record.writeLong(partita.getId());
+			this.scriviPartita(partita);
+			this.accodaRecord();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public synchronized void partitaModificata(Partita partita) {
+		try {
+			this.nuovoRecord(TipoRecord.PARTITA_MODIFICATA);
+			this.record.writeInt(this.strutturaSportiva.indiceDi(partita));
+			this.scriviPartita(partita);
+			this.accodaRecord();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public synchronized void partitaRimossa(int indice) {
+		try {
+			this.nuovoRecord(TipoRecord.PARTITA_RIMOSSA);
+			this.record.writeInt(indice);
+			this.accodaRecord();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public synchronized void scontoAggiunto(Sconto sconto) {
+		try {
+			this.nuovoRecord(TipoRecord.SCONTO_AGGIUNTO);
+			this.scriviSconto(sconto);
+			this.accodaRecord();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public synchronized void scontoRimosso(Sconto sconto) {
+		try {
+			this.nuovoRecord(TipoRecord.SCONTO_RIMOSSO);
+			this.scriviSconto(sconto);
+			this.accodaRecord();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public synchronized void prenotazioneAggiunta(Prenotazione prenotazione) {
+		try {
+			this.nuovoRecord(TipoRecord.PRENOTAZIONE_AGGIUNTA);
+			this.scriviBiglietto(prenotazione.getCliente(), prenotazione.getPartita(), prenotazione.getSettore(),
+					prenotazione.getPosto(), prenotazione.getBigliettoPrenotato().getDataBiglietto());
+			this.accodaRecord();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public synchronized void prenotazioneCancellata(Prenotazione prenotazione) {
+		try {
+			this.nuovoRecord(TipoRecord.PRENOTAZIONE_CANCELLATA_CON_POSTO);
+			this.record.writeUTF(prenotazione.getCliente().getUsername());
+			this.record.writeInt(this.strutturaSportiva.indiceDi(prenotazione.getPartita()));
+			this.record.writeInt(prenotazione.getPartita().indiceSettore(prenotazione.getSettore()));
+			this.record.writeInt(prenotazione.getPosto().getNumeroPosto());
+			this.accodaRecord();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public synchronized void acquistoAggiunto(Acquisto acquisto) {
+		try {
+			this.nuovoRecord(TipoRecord.ACQUISTO_AGGIUNTO);
+			this.scriviBiglietto(acquisto.getCliente(), acquisto.getPartita(), acquisto.getSettore(),
+					acquisto.getPosto(), acquisto.getBiglietto().getDataBiglietto());
+			this.accodaRecord();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public synchronized void acquistoCancellato(Acquisto acquisto) {
+		try {
+			this.nuovoRecord(TipoRecord.ACQUISTO_CANCELLATO_CON_POSTO);
+			this.record.writeUTF(acquisto.getCliente().getUsername());
+			this.record.writeInt(this.strutturaSportiva.indiceDi(acquisto.getPartita()));
+			this.record.writeInt(acquisto.getPartita().indiceSettore(acquisto.getSettore()));
+			this.record.writeInt(acquisto.getPosto().getNumeroPosto());
+			this.accodaRecord();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public synchronized void prenotazioniAggiunte(ArrayList<Prenotazione> prenotazioni) {
+		try {
+			ArrayList<Biglietto> biglietti = new ArrayList<>();
+
+			for (Prenotazione prenotazione : prenotazioni) {
+				biglietti.add(prenotazione.getBigliettoPrenotato());
+			}
+
+			this.nuovoRecord(TipoRecord.PRENOTAZIONI_AGGIUNTE);
+			this.scriviGruppo(biglietti);
+			this.accodaRecord();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public synchronized void acquistiAggiunti(ArrayList<Acquisto> acquisti) {
+		try {
+			ArrayList<Biglietto> biglietti = new ArrayList<>();
+
+			for (Acquisto acquisto : acquisti) {
+				biglietti.add(acquisto.getBiglietto());
+			}
+
+			this.nuovoRecord(TipoRecord.ACQUISTI_AGGIUNTI);
+			this.scriviGruppo(biglietti);
+			this.accodaRecord();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public synchronized void prenotazioniCompletate(ArrayList<Prenotazione> prenotazioni,
+			ArrayList<Acquisto> acquisti) {
+		try {
+			ArrayList<Biglietto> biglietti = new ArrayList<>();
+
+			for (Acquisto acquisto : acquisti) {
+				biglietti.add(acquisto.getBiglietto());
+			}
+
+			/*
+			 * Le prenotazioni completate sono quelle del cliente per la
+			 * partita: vengono ricavate durante il ripristino.
+			 */
+			this.nuovoRecord(TipoRecord.PRENOTAZIONI_COMPLETATE);
+			this.scriviGruppo(biglietti);
+			this.accodaRecord();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public synchronized void prenotazioniAcquistiScontiCancellati(Partita partita,
+			ArrayList<Prenotazione> prenotazioni, ArrayList<Acquisto> acquisti, ArrayList<Sconto> sconti) {
+		try {
+			/*
+			 * La cancellazione dipende soltanto dalla partita: viene ripetuta
+			 * durante il ripristino.
+			 */
+			this.nuovoRecord(TipoRecord.PRENOTAZIONI_ACQUISTI_SCONTI_CANCELLATI);
+			this.record.writeInt(this.strutturaSportiva.indiceDi(partita));
+			this.accodaRecord();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public synchronized void statoPostoModificato(Partita partita, Posto posto) {
+		try {
+			this.nuovoRecord(TipoRecord.STATO_POSTO_MODIFICATO);
+			this.record.writeInt(this.strutturaSportiva.indiceDi(partita));
+			this.record.writeInt(partita.indiceSettore(posto.getSettore()));
+			this.record.writeInt(posto.getNumeroPosto());
+			this.record.writeByte(posto.getStato().ordinal());
+			this.accodaRecord();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Prepara il buffer per un nuovo record del tipo indicato.
+	 */
+	private void nuovoRecord(TipoRecord tipo) throws IOException {
+		this.buffer.reset();
+		this.record.writeByte(tipo.getCodice());
+	}
+
+	/**
+	 * Accoda al file il record presente nel buffer, preceduto dalla sua
+	 * lunghezza e seguito dal CRC32.
+	 */
+	private void accodaRecord() throws IOException {
+		byte[] dati = this.buffer.toByteArray();
+
+		this.crc.reset();
+		this.crc.update(dati, 0, dati.length);
+
+		this.output.writeInt(dati.length);
+		this.output.write(dati);
+		this.output.writeInt((int) this.crc.getValue());
+		this.dimensioneDalCheckpoint += 4 + dati.length + 4;
+
+		/*
+		 * Il record resta nel buffer fino alla prossima scrittura del thread
+		 * dedicato, che viene risvegliato dal primo record da scrivere.
+		 */
+		if (this.recordAccodati++ == this.recordDurevoli) {
+			this.notifyAll();
+		}
+	}
+
+	/*
+	 * ------------------------------------------------------------------------
+	 * Scrittura su disco in gruppi
+	 * ------------------------------------------------------------------------
+	 */
+
+	/**
+	 * Avvia il thread che scrive su disco i record accodati.
+	 */
+	private void avviaScrittore() {
+		Thread scrittore = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				try {
+					scriviGruppi();
+				} catch (InterruptedException e) {
+					/* Interruzione del thread, i record restano nel buffer */
+				}
+			}
+		}, "Journal " + this.nome);
+		scrittore.setDaemon(true);
+		scrittore.start();
+	}
+
+	/**
+	 * Ciclo del thread di scrittura: attende che ci siano record da scrivere,
+	 * li passa al sistema operativo tenendo bloccato il journal e li forza su
+	 * disco senza bloccarlo, in modo che nel frattempo possano essere
+	 * accodati altri record; infine completa le richieste servite.
+	 */
+	private void scriviGruppi() throws InterruptedException {
+		while (true) {
+			long ultimoRecord;
+			FileOutputStream file;
+			IOException errore = null;
+
+			synchronized (this) {
+				while (!this.chiuso && this.recordDurevoli == this.recordAccodati) {
+					this.wait();
+				}
+
+				/*
+				 * Senza richieste in attesa i record vengono raccolti per un
+				 * tempo massimo, salvo l'arrivo di una richiesta.
+				 */
+				if (!this.chiuso && this.attese.isEmpty()) {
+					this.wait(LATENZA_MASSIMA);
+				}
+
+				if (this.chiuso) {
+					return;
+				}
+
+				ultimoRecord = this.recordAccodati;
+				file = this.fileOutputStream;
+
+				try {
+					this.output.flush();
+				} catch (IOException e) {
+					errore = e;
+				}
+			}
+
+			if (errore == null) {
+				try {
+					file.getFD().sync();
+				} catch (IOException e) {
+					errore = e;
+				}
+			}
+
+			ArrayList<Attesa> servite;
+
+			synchronized (this) {
+				/*
+				 * Se nel frattempo e' iniziato un nuovo segmento, il
+				 * precedente e' stato chiuso dopo averlo forzato su disco.
+				 */
+				if (file != this.fileOutputStream) {
+					errore = null;
+				}
+
+				if (errore == null) {
+					servite = this.estraiAttese(ultimoRecord);
+				} else {
+					servite = new ArrayList<>(this.attese);
+					this.attese.clear();
+				}
+			}
+
+			for (Attesa attesa : servite) {
+				if (errore == null) {
+					attesa.future.complete(null);
+				} else {
+					attesa.future.completeExceptionally(errore);
+				}
+			}
+
+			if (errore != null) {
+				errore.printStackTrace();
+				Thread.sleep(LATENZA_MASSIMA);
+			}
+		}
+	}
+
+	/**
+	 * Registra come scritti su disco i record fino a quello indicato e
+	 * restituisce le richieste cosi' servite.
+	 */
+	private ArrayList<Attesa> estraiAttese(long ultimoRecord) {
+		ArrayList<Attesa> servite = new ArrayList<>();
+
+		this.recordDurevoli = Math.max(this.recordDurevoli, ultimoRecord);
+		while (!this.attese.isEmpty() && this.attese.peek().ultimoRecord <= this.recordDurevoli) {
+			servite.add(this.attese.poll());
+		}
+		return servite;
+	}
+
+	/**
+	 * Richiesta di attendere la scrittura su disco dei record fino a quello
+	 * indicato.
+	 */
+	private static class Attesa {
+
+		private Attesa(long ultimoRecord, CompletableFuture<Void> future) {
+			this.ultimoRecord = ultimoRecord;
+			this.future = future;
+		}
+
+		private final long ultimoRecord;
+		private final CompletableFuture<Void> future;
+	}
+
+	private void scriviStadio(Stadio stadio) throws IOException {
+		this.record.writeUTF(stadio.getNome());
+		this.record.writeInt(stadio.getCapienzaDesiderataStadio());
+		this.record.writeDouble(stadio.getPrezzoPerPartita());
+	}
+
+	private void scriviPartita(Partita partita) throws IOException {
+		this.record.writeUTF(partita.getSquadraInCasa().getNome());
+		this.record.writeUTF(partita.getSquadraInTrasferta().getNome());
+		this.scriviStadio(partita.getStadio());
+		this.record.writeLong(partita.getData().getTimeInMillis());
+	}
+
+	private void scriviSconto(Sconto sconto) throws IOException {
+		this.record.writeByte(sconto.getScontoScelto().ordinal());
+		this.record.writeDouble(sconto.getPercetualeSconto());
+		this.record.writeLong(sconto.getInizioValidita().getTimeInMillis());
+		this.record.writeLong(sconto.getFineValidita().getTimeInMillis());
+
+		switch (sconto.getScontoScelto()) {
+		case PARTITA_CORRENTE:
+			this.record.writeInt(this.strutturaSportiva.indiceDi(sconto.getPartita()));
+			break;
+		case TUTTE_LE_PARTITE_DELLO_STADIO:
+			this.record.writeUTF(sconto.getStadio().getNome());
+			break;
+		case GIORNO_PRESTABILITO:
+			this.record.writeByte(sconto.getGiornoSettimana().ordinal());
+			break;
+		}
+	}
+
+	private void scriviBiglietto(Cliente cliente, Partita partita, Settore settore, Posto posto,
+			GregorianCalendar data) throws IOException {
+		this.record.writeUTF(cliente.getUsername());
+		this.record.writeInt(this.strutturaSportiva.indiceDi(partita));
+		this.record.writeInt(partita.indiceSettore(settore));
+		this.record.writeInt(posto.getNumeroFila());
+		this.record.writeInt(posto.getNumeroPosto());
+		this.record.writeLong(data.getTimeInMillis());
+	}
+
+	/**
+	 * Scrive i biglietti di un ordine di gruppo: cliente e partita una sola
+	 * volta, poi settore, fila, numero e data di ogni posto.
+	 */
+	private void scriviGruppo(ArrayList<Biglietto> biglietti) throws IOException {
+		Partita partita = biglietti.get(0).getPartita();
+
+		this.record.writeUTF(biglietti.get(0).getCliente().getUsername());
+		this.record.writeInt(this.strutturaSportiva.indiceDi(partita));
+		this.record.writeInt(biglietti.size());
+
+		for (Biglietto biglietto : biglietti) {
+			this.record.writeInt(partita.indiceSettore(biglietto.getSettore()));
+			this.record.writeInt(biglietto.getFila());
+			this.record.writeInt(biglietto.getPosto().getNumeroPosto());
+			this.record.writeLong(biglietto.getDataBiglietto().getTimeInMillis());
+		}
+	}
+
+	/*
+	 * ------------------------------------------------------------------------
+	 * Lettura dei record
+	 * ------------------------------------------------------------------------
+	 */
+
+	/**
+	 * Riapplica sulla StrutturaSportiva i segmenti a partire da quello
+	 * indicato, eliminando i precedenti, e apre l'ultimo segmento per
+	 * accodare i nuovi record.
+	 */
+	private void ripristina(long primoSegmento) throws IOException {
+		this.eliminaSegmentiPrecedenti(primoSegmento);
+
+		ArrayList<Long> segmenti = this.elencaSegmenti();
+		this.numeroSegmento = primoSegmento;
+		long fineRecordValidi = -1;
+
+		for (int i = 0; i < segmenti.size(); i++) {
+			long numero = segmenti.get(i);
+			File file = this.getFileSegmento(numero);
+
+			if (numero != this.numeroSegmento + (i == 0 ? 0 : 1)) {
+				throw new IOException("Segmento di journal mancante prima di " + file.getName());
+			}
+
+			this.numeroSegmento = numero;
+			fineRecordValidi = this.ripristinaSegmento(file);
+
+			/*
+			 * Soltanto l'ultimo segmento puo' terminare con un record
+			 * incompleto, i precedenti sono stati chiusi con sync().
+			 */
+			if (i < segmenti.size() - 1 && fineRecordValidi != file.length()) {
+				throw new IOException("Segmento di journal danneggiato: " + file.getName());
+			}
+
+			if (fineRecordValidi > 0) {
+				this.dimensioneDalCheckpoint += fineRecordValidi - DIMENSIONE_INTESTAZIONE;
+			}
+		}
+
+		this.apriInScrittura(this.getFileSegmento(this.numeroSegmento), fineRecordValidi);
+	}
+
+	/**
+	 * Riapplica sulla StrutturaSportiva i record presenti in un segmento.
+	 * 
+	 * @return La posizione successiva all'ultimo record valido, oppure -1 se
+	 *         il segmento e' privo di intestazione.
+	 */
+	private long ripristinaSegmento(File file) throws IOException {
+		if (file.length() < DIMENSIONE_INTESTAZIONE) {
+			return -1;
+		}
+
+		DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+
+		try {
+			if (input.readInt() != NUMERO_MAGICO) {
+				throw new IOException(file.getName() + " non e' un journal valido");
+			}
+
+			short versione = input.readShort();
+			if (versione != VERSIONE) {
+				throw new IOException("Versione del journal non supportata: " + versione);
+			}
+
+			long posizione = DIMENSIONE_INTESTAZIONE;
+
+			while (true) {
+				byte[] dati;
+				int crcLetto;
+
+				try {
+					int lunghezza = input.readInt();
+					if (lunghezza <= 0 || lunghezza > DIMENSIONE_MASSIMA_RECORD) {
+						break;
+					}
+					dati = new byte[lunghezza];
+					input.readFully(dati);
+					crcLetto = input.readInt();
+				} catch (EOFException e) {
+					/* Record incompleto in coda al file */
+					break;
+				}
+
+				this.crc.reset();
+				this.crc.update(dati, 0, dati.length);
+				if ((int) this.crc.getValue() != crcLetto) {
+					break;
+				}
+
+				try {
+					this.applicaRecord(dati);
+				} catch (RuntimeException | UserNotFoundException | AlreadyRegisteredUserException e) {
+					throw new IOException("Il journal non e' coerente con il database (posizione " + posizione
+							+ ")", e);
+				}
+
+				posizione += 4 + dati.length + 4;
+			}
+
+			return posizione;
+		} finally {
+			input.close();
+		}
+	}
+
+	/**
+	 * Tronca il segmento all'ultimo record valido (o lo crea con la sola
+	 * intestazione) e lo apre per accodare i nuovi record.
+	 */
+	private void apriInScrittura(File file, long fineRecordValidi) throws IOException {
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+
+		try {
+			if (fineRecordValidi < 0) {
+				randomAccessFile.setLength(0);
+				randomAccessFile.writeInt(NUMERO_MAGICO);
+				randomAccessFile.writeShort(VERSIONE);
+			} else {
+				randomAccessFile.setLength(fineRecordValidi);
+			}
+			randomAccessFile.getFD().sync();
+		} finally {
+			randomAccessFile.close();
+		}
+
+		this.fileOutputStream = new FileOutputStream(file, true);
+		this.output = new DataOutputStream(new BufferedOutputStream(this.fileOutputStream));
+	}
+
+	private File getFileSegmento(long numero) {
+		return new File(this.cartella, this.nome + "." + numero + ESTENSIONE);
+	}
+
+	/**
+	 * Restituisce i numeri dei segmenti presenti nella cartella, in ordine
+	 * crescente.
+	 */
+	private ArrayList<Long> elencaSegmenti() {
+		ArrayList<Long> segmenti = new ArrayList<>();
+		String prefisso = this.nome + ".";
+		String[] files = this.cartella.list();
+
+		if (files != null) {
+			for (String file : files) {
+				if (file.startsWith(prefisso) && file.endsWith(ESTENSIONE)) {
+					try {
+						segmenti.add(Long.parseLong(
+								file.substring(prefisso.length(), file.length() - ESTENSIONE.length())));
+					} catch (NumberFormatException e) {
+						/* Non e' un segmento del journal */
+					}
+				}
+			}
+		}
+
+		Collections.sort(segmenti);
+		return segmenti;
+	}
+
+	private void applicaRecord(byte[] dati) throws IOException, UserNotFoundException,
+			AlreadyRegisteredUserException {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(dati));
+		TipoRecord tipo = TipoRecord.daCodice(in.readByte());
+
+		if (tipo == null) {
+			throw new IOException("Tipo di record sconosciuto");
+		}
+
+		ArrayList<Partita> partite = this.strutturaSportiva.getPartiteProgrammate();
+
+		switch (tipo) {
+		case UTENTE_AGGIUNTO: {
+			boolean gestore = in.readBoolean();
+			String nome = in.readUTF();
+			String cognome = in.readUTF();
+			String username = in.readUTF();
+			String passwordHash = in.readUTF();
+
+			if (gestore) {
+				this.strutturaSportiva.addUtente(Gestore.ripristina(nome, cognome, username, passwordHash));
+			} else {
+				this.strutturaSportiva.addUtente(Cliente.ripristina(nome, cognome, username, passwordHash));
+			}
+			break;
+		}
+		case STADIO_AGGIUNTO: {
+			String nome = in.readUTF();
+			int capienza = in.readInt();
+			double prezzo = in.readDouble();
+			this.strutturaSportiva.addStadio(new Stadio(nome, capienza, prezzo));
+			break;
+		}
+		case STADIO_MODIFICATO: {
+			String nome = in.readUTF();
+			int capienza = in.readInt();
+			double prezzo = in.readDouble();
+			this.strutturaSportiva.modificaStadio(this.strutturaSportiva.getStadio(nome), capienza, prezzo);
+			break;
+		}
+		case PARTITA_AGGIUNTA: {
+			Partita partita = new Partita();
+			this.leggiPartita(in, partita);
+			this.strutturaSportiva.addPartita(partita);
+			break;
+		}
+		case PARTITA_AGGIUNTA_CON_ID: {
+			Partita partita = new Partita(in.readLong());
+			this.leggiPartita(in, partita);
+			this.strutturaSportiva.addPartita(partita);
+			break;
+		}
+		case PARTITA_MODIFICATA: {
+			Partita partita = partite.get(in.readInt());
+			this.leggiPartita(in, partita);
+			this.strutturaSportiva.aggiornaPartita(partita);
+			break;
+		}
+		case PARTITA_RIMOSSA: {
+			/*
+			 * Prenotazioni, acquisti e sconti della partita sono stati
+			 * rimossi dai record precedenti.
+			 */
+			this.strutturaSportiva.rimuoviPartita(partite.get(in.readInt()));
+			break;
+		}
+		case SCONTO_AGGIUNTO: {
+			this.strutturaSportiva.addSconto(this.leggiSconto(in));
+			break;
+		}
+		case SCONTO_RIMOSSO: {
+			this.strutturaSportiva.rimuoviSconto(this.leggiSconto(in));
+			break;
+		}
+		case PRENOTAZIONE_AGGIUNTA: {
+			Cliente cliente = (Cliente) this.strutturaSportiva.getUtente(in.readUTF());
+			Partita partita = partite.get(in.readInt());
+			Settore settore = partita.getSettore(in.readInt());
+			int fila = in.readInt();
+			int posto = in.readInt();
+
+			Prenotazione prenotazione = new Prenotazione(this.strutturaSportiva, cliente, partita, settore, fila,
+					posto);
+			prenotazione.getBigliettoPrenotato().setDataBiglietto(this.leggiData(in));
+			this.strutturaSportiva.addPrenotazione(prenotazione);
+			break;
+		}
+		case PRENOTAZIONE_CANCELLATA: {
+			/*
+			 * I record scritti prima degli ordini di gruppo non contengono il
+			 * posto: il cliente aveva una sola prenotazione per la partita.
+			 */
+			Cliente cliente = (Cliente) this.strutturaSportiva.getUtente(in.readUTF());
+			this.strutturaSportiva.cancellaPrenotazioneCliente(cliente, partite.get(in.readInt()));
+			break;
+		}
+		case PRENOTAZIONE_CANCELLATA_CON_POSTO: {
+			Cliente cliente = (Cliente) this.strutturaSportiva.getUtente(in.readUTF());
+			Partita partita = partite.get(in.readInt());
+			Settore settore = partita.getSettore(in.readInt());
+			int numeroPosto = in.readInt();
+
+			for (Prenotazione prenotazione : this.strutturaSportiva.getPrenotazioni()) {
+				if (prenotazione.getPartita() == partita && prenotazione.getCliente().equals(cliente)
+						&& prenotazione.getSettore().equals(settore)
+						&& prenotazione.getPosto().getNumeroPosto() == numeroPosto) {
+					this.strutturaSportiva.cancellaPrenotazione(prenotazione);
+					break;
+				}
+			}
+			break;
+		}
+		case ACQUISTO_AGGIUNTO: {
+			Cliente cliente = (Cliente) this.strutturaSportiva.getUtente(in.readUTF());
+			Partita partita = partite.get(in.readInt());
+			Settore settore = partita.getSettore(in.readInt());
+			int fila = in.readInt();
+			int posto = in.readInt();
+
+			Acquisto acquisto = new Acquisto(cliente, partita, settore, fila, posto, this.strutturaSportiva);
+			acquisto.getBiglietto().setDataBiglietto(this.leggiData(in));
+			this.strutturaSportiva.addAcquisto(acquisto);
+			break;
+		}
+		case ACQUISTO_CANCELLATO:
+		case ACQUISTO_CANCELLATO_CON_POSTO: {
+			String username = in.readUTF();
+			Partita partita = partite.get(in.readInt());
+
+			/* Nei record scritti prima degli ordini di gruppo manca il posto */
+			Settore settore = tipo == TipoRecord.ACQUISTO_CANCELLATO ? null : partita.getSettore(in.readInt());
+			int numeroPosto = settore == null ? -1 : in.readInt();
+
+			for (Acquisto acquisto : this.strutturaSportiva.getAcquisti()) {
+				if (acquisto.getPartita() == partita && acquisto.getCliente().getUsername().equalsIgnoreCase(username)
+						&& (settore == null || (acquisto.getSettore().equals(settore)
+								&& acquisto.getPosto().getNumeroPosto() == numeroPosto))) {
+					this.strutturaSportiva.cancellaAcquisto(acquisto);
+					break;
+				}
+			}
+			break;
+		}
+		case PRENOTAZIONI_AGGIUNTE: {
+			Cliente cliente = (Cliente) this.strutturaSportiva.getUtente(in.readUTF());
+			Partita partita = partite.get(in.readInt());
+			int numeroBiglietti = in.readInt();
+			ArrayList<Prenotazione> prenotazioni = new ArrayList<>();
+
+			for (int i = 0; i < numeroBiglietti; i++) {
+				Settore settore = partita.getSettore(in.readInt());
+				int fila = in.readInt();
+				int posto = in.readInt();
+
+				Prenotazione prenotazione = new Prenotazione(this.strutturaSportiva, cliente, partita, settore, fila,
+						posto);
+				prenotazione.getBigliettoPrenotato().setDataBiglietto(this.leggiData(in));
+				partita.getStatoPosti().setStato(partita.indicePosto(prenotazione.getPosto()), SeatStatus.PRENOTATO);
+				prenotazioni.add(prenotazione);
+			}
+			this.strutturaSportiva.addPrenotazioni(prenotazioni);
+			break;
+		}
+		case ACQUISTI_AGGIUNTI: {
+			this.strutturaSportiva.addAcquisti(this.leggiAcquisti(in, partite));
+			break;
+		}
+		case PRENOTAZIONI_COMPLETATE: {
+			this.strutturaSportiva.completaPrenotazioni(this.leggiAcquisti(in, partite));
+			break;
+		}
+		case PRENOTAZIONI_ACQUISTI_SCONTI_CANCELLATI: {
+			this.strutturaSportiva.cancellaPrenotazioniAcquistiScontiPerPartita(partite.get(in.readInt()));
+			break;
+		}
+		case STATO_POSTO_MODIFICATO: {
+			Partita partita = partite.get(in.readInt());
+			int indiceSettore = in.readInt();
+			int numeroPosto = in.readInt();
+
+			partita.getStatoPosti().setStato(
+					indiceSettore * partita.getDisposizionePosti().getPostiPerSettore() + numeroPosto - 1,
+					SeatStatus.values()[in.readByte()]);
+			break;
+		}
+		}
+	}
+
+	/**
+	 * Legge gli acquisti di un ordine di gruppo, scritti con
+	 * {@link #scriviGruppo(ArrayList)}, e imposta come
+	 * {@link SeatStatus#VENDUTO} i loro posti.
+	 */
+	private ArrayList<Acquisto> leggiAcquisti(DataInputStream in, ArrayList<Partita> partite)
+			throws IOException, UserNotFoundException {
+		Cliente cliente = (Cliente) this.strutturaSportiva.getUtente(in.readUTF());
+		Partita partita = partite.get(in.readInt());
+		int numeroBiglietti = in.readInt();
+		ArrayList<Acquisto> acquisti = new ArrayList<>();
+
+		for (int i = 0; i < numeroBiglietti; i++) {
+			Settore settore = partita.getSettore(in.readInt());
+			int fila = in.readInt();
+			int posto = in.readInt();
+
+			Acquisto acquisto = new Acquisto(cliente, partita, settore, fila, posto, this.strutturaSportiva);
+			acquisto.getBiglietto().setDataBiglietto(this.leggiData(in));
+			partita.getStatoPosti().setStato(partita.indicePosto(acquisto.getPosto()), SeatStatus.VENDUTO);
+			acquisti.add(acquisto);
+		}
+		return acquisti;
+	}
+
+	/**
+	 * Legge squadre, stadio e data di una partita e li imposta sulla partita
+	 * passata in input.
+	 */
+	private void leggiPartita(DataInputStream in, Partita partita) throws IOException {
+		partita.setSquadraInCasa(new Squadra(in.readUTF()));
+		partita.setSquadraInTrasferta(new Squadra(in.readUTF()));
+
+		Stadio stadio = this.leggiStadio(in);
+		if (partita.getStadio() != stadio) {
+			partita.setStadio(stadio);
+		}
+
+		partita.setData(this.leggiData(in));
+	}
+
+	/**
+	 * Legge uno stadio: se presente nel database ne aggiorna capienza e
+	 * prezzo, altrimenti (ad esempio per lo stadio di default di una nuova
+	 * partita) ne crea uno nuovo.
+	 */
+	private Stadio leggiStadio(DataInputStream in) throws IOException {
+		String nome = in.readUTF();
+		int capienza = in.readInt();
+		double prezzo = in.readDouble();
+
+		Stadio stadio = this.strutturaSportiva.getStadio(nome);
+
+		if (stadio == null) {
+			return new Stadio(nome, capienza, prezzo);
+		}
+
+		if (stadio.getCapienzaDesiderataStadio() != capienza) {
+			stadio.setCapienzaStadio(capienza);
+		}
+		stadio.setPrezzoPerPartita(prezzo);
+		return stadio;
+	}
+
+	private Sconto leggiSconto(DataInputStream in) throws IOException {
+		TipoSconto tipo = TipoSconto.values()[in.readByte()];
+		/* Il costruttore di Sconto si aspetta la percentuale, non la frazione */
+		double percentuale = in.readDouble() * 100;
+		GregorianCalendar inizio = this.leggiData(in);
+		GregorianCalendar fine = this.leggiData(in);
+
+		switch (tipo) {
+		case PARTITA_CORRENTE:
+			return new Sconto(tipo, percentuale, inizio, fine,
+					this.strutturaSportiva.getPartiteProgrammate().get(in.readInt()));
+		case TUTTE_LE_PARTITE_DELLO_STADIO:
+			return new Sconto(tipo, percentuale, inizio, fine, this.strutturaSportiva.getStadio(in.readUTF()));
+		default:
+			return new Sconto(tipo, percentuale, inizio, fine, DaysOfWeek.values()[in.readByte()]);
+		}
+	}
+
+	private GregorianCalendar leggiData(DataInputStream in) throws IOException {
+		GregorianCalendar data = new GregorianCalendar();
+		data.setTimeInMillis(in.readLong());
+		return data;
+	}
+
+	private final File cartella;
+	private final String nome;
+	private final StrutturaSportiva strutturaSportiva;
+	private final ByteArrayOutputStream buffer;
+	private final DataOutputStream record;
+	private final CRC32 crc;
+	private FileOutputStream fileOutputStream;
+	private DataOutputStream output;
+	private long numeroSegmento;
+	private long dimensioneDalCheckpoint;
+	private long recordAccodati;
+	private long recordDurevoli;
+	private final ArrayDeque<Attesa> attese = new ArrayDeque<>();
+	private boolean chiuso;
+
+	/**
+	 * Millisecondi entro cui un record viene scritto su disco anche in
+	 * assenza di richieste.
+	 */
+	public static final long LATENZA_MASSIMA = 100;
+
+	private static final String ESTENSIONE = ".journal";
+	private static final int NUMERO_MAGICO = 0x534A524E;
+	private static final short VERSIONE = 1;
+	private static final int DIMENSIONE_INTESTAZIONE = 4 + 2;
+	private static final int DIMENSIONE_MASSIMA_RECORD = 1 << 20;
+}
@@ -0,0 +1,360 @@
+package persistence;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+
+import struttura.Acquisto;
+import struttura.Partita;
+import struttura.Prenotazione;
+import struttura.Sconto;
+import struttura.SeatStatus;
+import struttura.SorgentePosti;
+import struttura.Stadio;
+import struttura.StatoPosti;
+import struttura.StrutturaSportiva;
+import user.Utente;
+
+/**
+ * Strumento da riga di comando che converte un file {@code <nome>.ser}
+ * scritto con la serializzazione Java nel nuovo formato su file (snapshot e
+ * file dei posti, vedi {@link ArchivioFile}) oppure in un database JDBC (vedi
+ * {@link ArchivioJdbc}).
+ * 
+ * Il file viene letto una sola volta; al termine la destinazione viene
+ * riletta e vengono confrontati con l'originale il numero di elementi di ogni
+ * aggregato, il numero di posti in ogni stato e l'incasso complessivo
+ * ({@link StrutturaSportiva#calcolaIncasso(ArrayList)}). Durante la lettura
+ * e la scrittura vengono riportati l'avanzamento e la velocita'.
+ * 
+ * Uso: {@code java persistence.Migrazione <nome>.ser <cartella>} oppure
+ * {@code java persistence.Migrazione <nome>.ser jdbc:<url>}. Il programma
+ * termina con codice 0 se la verifica ha successo, 2 se fallisce.
+ * 
+ * @author Maurizio Casciano
+ */
+public class Migrazione {
+
+	/**
+	 * Esegue la conversione.
+	 * 
+	 * @param args
+	 *            Il file da convertire e la destinazione: una cartella oppure
+	 *            l'URL JDBC di un database vuoto.
+	 */
+	public static void main(String[] args) {
+		if (args.length != 2) {
+			System.err.println("Uso: java persistence.Migrazione <nome>.ser <cartella | jdbc:url>");
+			System.exit(1);
+		}
+
+		try {
+			boolean verificata = new Migrazione(new File(args[0]), args[1]).esegui();
+			System.exit(verificata ? 0 : 2);
+		} catch (IOException | ClassNotFoundException e) {
+			e.printStackTrace();
+			System.exit(3);
+		}
+	}
+
+	private Migrazione(File sorgente, String destinazione) {
+		this.sorgente = sorgente;
+		this.destinazione = destinazione;
+	}
+
+	/**
+	 * Legge il file, scrive la destinazione e la verifica.
+	 * 
+	 * @return {@code true} se la destinazione corrisponde al file letto.
+	 */
+	private boolean esegui() throws IOException, ClassNotFoundException {
+		StrutturaSportiva strutturaSportiva = this.leggi();
+		Riepilogo atteso = new Riepilogo(strutturaSportiva, false);
+
+		if (this.destinazione.startsWith("jdbc:")) {
+			this.scriviJdbc(strutturaSportiva);
+		} else {
+			this.scriviFile(strutturaSportiva);
+		}
+
+		/*
+		 * La StrutturaSportiva letta non serve piu': la memoria viene
+		 * liberata prima di rileggere la destinazione.
+		 */
+		strutturaSportiva = null;
+
+		Riepilogo ottenuto;
+		if (this.destinazione.startsWith("jdbc:")) {
+			ArchivioJdbc archivio = ArchivioJdbc.apri(this.destinazione, "");
+			try {
+				ottenuto = new Riepilogo(archivio.getStrutturaSportiva(), true);
+			} finally {
+				archivio.close();
+			}
+		} else {
+			ottenuto = new Riepilogo(Snapshot.leggi(this.getFileDestinazione()).getStrutturaSportiva(), true);
+		}
+
+		boolean verificata = atteso.equals(ottenuto);
+
+		System.out.println();
+		System.out.println(String.format("%-22s %15s %15s", "", "Originale", "Convertito"));
+		atteso.stampa(ottenuto);
+		System.out.println(verificata ? "Verifica completata con successo." : "ERRORE: la verifica e' fallita.");
+		return verificata;
+	}
+
+	/**
+	 * Legge la StrutturaSportiva dal file serializzato, riportando
+	 * l'avanzamento della lettura.
+	 */
+	private StrutturaSportiva leggi() throws IOException, ClassNotFoundException {
+		Avanzamento avanzamento = new Avanzamento("Lettura (byte)", this.sorgente.length());
+		ObjectInputStream input = new ObjectInputStream(
+				new BufferedInputStream(new InputConAvanzamento(new FileInputStream(this.sorgente), avanzamento)));
+
+		try {
+			StrutturaSportiva strutturaSportiva = (StrutturaSportiva) input.readObject();
+			avanzamento.fine();
+			return strutturaSportiva;
+		} finally {
+			input.close();
+		}
+	}
+
+	/**
+	 * Scrive nella cartella di destinazione i file dei posti delle partite e
+	 * lo snapshot.
+	 */
+	private void scriviFile(StrutturaSportiva strutturaSportiva) throws IOException {
+		File file = this.getFileDestinazione();
+
+		if (file.exists()) {
+			throw new IOException(file + " esiste gia'");
+		}
+
+		File cartellaPosti = Snapshot.getCartellaPosti(file);
+		ArrayList<Partita> partite = strutturaSportiva.getPartiteProgrammate();
+		IdentityHashMap<Partita, FilePosti> filePosti = new IdentityHashMap<>();
+		Avanzamento avanzamento = new Avanzamento("Scrittura posti (partite)", partite.size());
+
+		for (Partita partita : partite) {
+			FilePosti posti = new FilePosti(cartellaPosti, filePosti.size(),
+					partita.getDisposizionePosti().getPostiPerSettore());
+
+			FilePosti.scrivi(cartellaPosti, posti.getNumero(), posti.getPostiPerSettore(),
+					partita.getStatoPosti().comprimi());
+			filePosti.put(partita, posti);
+			avanzamento.avanza(1);
+		}
+		avanzamento.fine();
+
+		Snapshot.scrivi(file, Snapshot.serializza(strutturaSportiva, 0, filePosti));
+		System.out.println("Scritto " + file + " (" + file.length() / 1024 + " KB)");
+	}
+
+	/**
+	 * Scrive la StrutturaSportiva in un database vuoto, passando ogni
+	 * elemento all'{@link ArchivioJdbc} come se fosse stato appena aggiunto.
+	 */
+	private void scriviJdbc(StrutturaSportiva strutturaSportiva) throws IOException {
+		ArchivioJdbc archivio = ArchivioJdbc.apri(this.destinazione, strutturaSportiva.getNome());
+
+		try {
+			StrutturaSportiva esistente = archivio.getStrutturaSportiva();
+
+			if (!esistente.getUtenti().isEmpty() || !esistente.getPartiteProgrammate().isEmpty()) {
+				throw new IOException("Il database " + this.destinazione + " non e' vuoto");
+			}
+
+			Avanzamento avanzamento = new Avanzamento("Scrittura record (record)",
+					strutturaSportiva.getUtenti().size() + strutturaSportiva.getStadi().size()
+							+ strutturaSportiva.getPartiteProgrammate().size() + strutturaSportiva.getSconti().size()
+							+ strutturaSportiva.getPrenotazioni().size() + strutturaSportiva.getAcquisti().size());
+
+			for (Utente utente : strutturaSportiva.getUtenti()) {
+				archivio.utenteAggiunto(utente);
+				avanzamento.avanza(1);
+			}
+			for (Stadio stadio : strutturaSportiva.getStadi()) {
+				archivio.stadioAggiunto(stadio);
+				avanzamento.avanza(1);
+			}
+			for (Partita partita : strutturaSportiva.getPartiteProgrammate()) {
+				archivio.partitaAggiunta(partita);
+				avanzamento.avanza(1);
+			}
+			for (Sconto sconto : strutturaSportiva.getSconti()) {
+				archivio.scontoAggiunto(sconto);
+				avanzamento.avanza(1);
+			}
+			for (Prenotazione prenotazione : strutturaSportiva.getPrenotazioni()) {
+				archivio.prenotazioneAggiunta(prenotazione);
+				avanzamento.avanza(1);
+			}
+			for (Acquisto acquisto : strutturaSportiva.getAcquisti()) {
+				archivio.acquistoAggiunto(acquisto);
+				avanzamento.avanza(1);
+			}
+			avanzamento.fine();
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		} finally {
+			archivio.close();
+		}
+	}
+
+	private File getFileDestinazione() {
+		return new File(this.destinazione, this.sorgente.getName());
+	}
+
+	/**
+	 * Numero di elementi di ogni aggregato, numero di posti in ogni stato e
+	 * incasso complessivo di una StrutturaSportiva.
+	 */
+	private static class Riepilogo {
+
+		/**
+		 * @param senzaTrattenerePosti
+		 *            se {@code true} i posti delle partite non ancora
+		 *            caricati vengono letti senza essere trattenuti in
+		 *            memoria.
+		 */
+		private Riepilogo(StrutturaSportiva strutturaSportiva, boolean senzaTrattenerePosti) {
+			this.conteggi = new long[] { strutturaSportiva.getUtenti().size(), strutturaSportiva.getStadi().size(),
+					strutturaSportiva.getPartiteProgrammate().size(), strutturaSportiva.getSconti().size(),
+					strutturaSportiva.getPrenotazioni().size(), strutturaSportiva.getAcquisti().size(), 0, 0, 0 };
+
+			for (Partita partita : strutturaSportiva.getPartiteProgrammate()) {
+				SorgentePosti sorgentePosti = partita.getSorgentePosti();
+				StatoPosti statoPosti;
+
+				if (senzaTrattenerePosti && sorgentePosti != null) {
+					statoPosti = sorgentePosti.caricaStatoPosti();
+				} else {
+					statoPosti = partita.getStatoPosti();
+				}
+
+				for (int i = 0; i < statoPosti.getNumeroPosti(); i++) {
+					this.conteggi[POSTI + statoPosti.getStato(i).ordinal()]++;
+				}
+			}
+
+			this.incasso = strutturaSportiva.calcolaIncasso(strutturaSportiva.getAcquisti());
+		}
+
+		private void stampa(Riepilogo altro) {
+			for (int i = 0; i < this.conteggi.length; i++) {
+				System.out.println(String.format("%-22s %15d %15d", NOMI[i], this.conteggi[i], altro.conteggi[i]));
+			}
+			System.out.println(String.format("%-22s %15.2f %15.2f", "Incasso", this.incasso, altro.incasso));
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Riepilogo)) {
+				return false;
+			}
+
+			Riepilogo altro = (Riepilogo) obj;
+			return Arrays.equals(this.conteggi, altro.conteggi)
+					&& Math.abs(this.incasso - altro.incasso) < 0.005;
+		}
+
+		@Override
+		public int hashCode() {
+			return Arrays.hashCode(this.conteggi);
+		}
+
+		private final long[] conteggi;
+		private final double incasso;
+
+		private static final int POSTI = 6;
+		private static final String[] NOMI = { "Utenti", "Stadi", "Partite", "Sconti", "Prenotazioni", "Acquisti",
+				"Posti " + SeatStatus.LIBERO, "Posti " + SeatStatus.PRENOTATO, "Posti " + SeatStatus.VENDUTO };
+	}
+
+	/**
+	 * Riporta l'avanzamento di un'operazione al piu' una volta al secondo,
+	 * con la velocita' media.
+	 */
+	private static class Avanzamento {
+
+		private Avanzamento(String operazione, long totale) {
+			this.operazione = operazione;
+			this.totale = totale;
+			this.inizio = System.currentTimeMillis();
+			this.ultimaStampa = this.inizio;
+		}
+
+		private void avanza(long quantita) {
+			this.corrente += quantita;
+
+			long adesso = System.currentTimeMillis();
+			if (adesso - this.ultimaStampa >= 1000) {
+				this.ultimaStampa = adesso;
+				this.stampa(adesso);
+			}
+		}
+
+		private void fine() {
+			this.stampa(System.currentTimeMillis());
+		}
+
+		private void stampa(long adesso) {
+			double secondi = Math.max(adesso - this.inizio, 1) / 1000.0;
+			long percentuale = this.totale > 0 ? this.corrente * 100 / this.totale : 100;
+
+			System.out.println(String.format("%s: %d/%d (%d%%), %.1f al secondo, %.1f s", this.operazione,
+					this.corrente, this.totale, percentuale, this.corrente / secondi, secondi));
+		}
+
+		private final String operazione;
+		private final long totale;
+		private final long inizio;
+		private long ultimaStampa;
+		private long corrente;
+	}
+
+	/**
+	 * Stream che riporta il numero di byte letti ad un {@link Avanzamento}.
+	 */
+	private static class InputConAvanzamento extends FilterInputStream {
+
+		private InputConAvanzamento(InputStream in, Avanzamento avanzamento) {
+			super(in);
+			this.avanzamento = avanzamento;
+		}
+
+		@Override
+		public int read() throws IOException {
+			int letto = super.read();
+			if (letto != -1) {
+				this.avanzamento.avanza(1);
+			}
+			return letto;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int letti = super.read(b, off, len);
+			if (letti > 0) {
+				this.avanzamento.avanza(letti);
+			}
+			return letti;
+		}
+
+		private final Avanzamento avanzamento;
+	}
+
+	private final File sorgente;
+	private final String destinazione;
+}
@@ -0,0 +1,55 @@
+package persistence;
+
+import java.io.IOException;
+import java.util.ArrayList;
+
+/**
+ * Interfaccia che modella l'archivio degli elementi di un aggregato della
+ * {@link struttura.StrutturaSportiva} (utenti, stadi, partite, sconti,
+ * prenotazioni o acquisti).
+ * 
+ * @author Maurizio Casciano
+ * @param <T>
+ *            il tipo degli elementi dell'aggregato.
+ */
+public interface Repository<T> {
+
+	/**
+	 * Restituisce tutti gli elementi presenti nell'archivio.
+	 * 
+	 * @return Gli elementi presenti nell'archivio.
+	 * @throws IOException
+	 *             Se si verifica un errore durante la lettura.
+	 */
+	ArrayList<T> elenca() throws IOException;
+
+	/**
+	 * Aggiunge un elemento all'archivio.
+	 * 
+	 * @param elemento
+	 *            - L'elemento da aggiungere.
+	 * @throws IOException
+	 *             Se si verifica un errore durante la scrittura.
+	 */
+	void aggiungi(T elemento) throws IOException;
+
+	/**
+	 * Aggiorna nell'archivio un elemento modificato.
+	 * 
+	 * @param elemento
+	 *            - L'elemento modificato.
+	 * @throws IOException
+	 *             Se si verifica un errore durante la scrittura.
+	 */
+	void aggiorna(T elemento) throws IOException;
+
+	/**
+	 * Rimuove un elemento dall'archivio.
+	 * 
+	 * @param elemento
+	 *            - L'elemento da rimuovere.
+	 * @throws IOException
+	 *             Se si verifica un errore durante la scrittura.
+	 */
+	void rimuovi(T elemento) throws IOException;
+}
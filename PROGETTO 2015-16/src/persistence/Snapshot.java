@@ -0,0 +1,216 @@
+package persistence;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamConstants;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.IdentityHashMap;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+import struttura.Partita;
+import struttura.StrutturaSportiva;
+
+/**
+ * Snapshot della {@link StrutturaSportiva} salvato nel file {@code <nome>.ser}.
+ * 
+ * Il file contiene la StrutturaSportiva nel {@link FormatoBinario}, insieme
+ * al numero del primo segmento del {@link Journal} non compreso nello
+ * snapshot, seguita dal CRC32 dell'intero contenuto. Lo stato dei posti
+ * delle partite e' contenuto nei {@link FilePosti} della cartella
+ * {@code <nome>.ser.posti}.
+ * 
+ * Vengono letti anche i file scritti dalle versioni precedenti con la
+ * serializzazione Java, riconoscibili dai primi due byte (0xACED): in tal
+ * caso il numero del primo segmento, se assente, e' considerato uguale a
+ * zero. Al primo checkpoint il file viene riscritto nel nuovo formato.
+ * 
+ * @author Maurizio Casciano
+ */
+public class Snapshot {
+
+	/**
+	 * Crea uno snapshot a partire da una StrutturaSportiva e dal primo
+	 * segmento del journal non compreso in essa.
+	 * 
+	 * @param strutturaSportiva
+	 *            - La StrutturaSportiva.
+	 * @param primoSegmento
+	 *            - Il primo segmento del journal da riapplicare.
+	 * @author Maurizio Casciano
+	 */
+	public Snapshot(StrutturaSportiva strutturaSportiva, long primoSegmento) {
+		this.strutturaSportiva = strutturaSportiva;
+		this.primoSegmento = primoSegmento;
+	}
+
+	/**
+	 * Legge uno snapshot da file.
+	 * 
+	 * @param file
+	 *            - Il file da leggere.
+	 * @return Lo snapshot letto.
+	 * @throws IOException
+	 *             Se si verifica un errore durante la lettura.
+	 * @throws ClassNotFoundException
+	 *             Se il file contiene classi sconosciute.
+	 * @author Maurizio Casciano
+	 */
+	public static Snapshot leggi(File file) throws IOException, ClassNotFoundException {
+		BufferedInputStream bufferedInput = new BufferedInputStream(new FileInputStream(file));
+
+		bufferedInput.mark(2);
+		int inizio = (bufferedInput.read() << 8) | bufferedInput.read();
+		bufferedInput.reset();
+
+		if (inizio == (ObjectStreamConstants.STREAM_MAGIC & 0xFFFF)) {
+			return leggiSerializzato(bufferedInput);
+		}
+
+		CheckedInputStream checkedInput = new CheckedInputStream(bufferedInput, new CRC32());
+		DataInputStream input = new DataInputStream(checkedInput);
+
+		try {
+			Snapshot snapshot = FormatoBinario.leggi(input, getCartellaPosti(file));
+			int crcCalcolato = (int) checkedInput.getChecksum().getValue();
+
+			if (input.readInt() != crcCalcolato) {
+				throw new IOException(file.getName() + " e' danneggiato (CRC non valido)");
+			}
+
+			return snapshot;
+		} catch (RuntimeException e) {
+			throw new IOException(file.getName() + " e' danneggiato", e);
+		} finally {
+			input.close();
+		}
+	}
+
+	/**
+	 * Legge uno snapshot scritto con la serializzazione Java.
+	 */
+	private static Snapshot leggiSerializzato(InputStream inputStream) throws IOException, ClassNotFoundException {
+		ObjectInputStream input = new ObjectInputStream(inputStream);
+
+		try {
+			StrutturaSportiva strutturaSportiva = (StrutturaSportiva) input.readObject();
+			long primoSegmento;
+
+			try {
+				primoSegmento = input.readLong();
+			} catch (EOFException e) {
+				/* Snapshot scritto prima dell'introduzione del journal */
+				primoSegmento = 0;
+			}
+
+			return new Snapshot(strutturaSportiva, primoSegmento);
+		} finally {
+			input.close();
+		}
+	}
+
+	/**
+	 * Scrive in memoria, nel {@link FormatoBinario}, la StrutturaSportiva ed
+	 * il primo segmento del journal non compreso in essa. Il metodo va
+	 * invocato sincronizzandosi sulla StrutturaSportiva.
+	 * 
+	 * @param strutturaSportiva
+	 *            - La StrutturaSportiva da serializzare.
+	 * @param primoSegmento
+	 *            - Il primo segmento del journal non compreso nello
+	 *            snapshot.
+	 * @param filePosti
+	 *            - Il file dei posti di ogni partita.
+	 * @return Il contenuto del file di snapshot.
+	 * @throws IOException
+	 *             Se si verifica un errore durante la serializzazione.
+	 * @author Maurizio Casciano
+	 */
+	static byte[] serializza(StrutturaSportiva strutturaSportiva, long primoSegmento,
+			IdentityHashMap<Partita, FilePosti> filePosti) throws IOException {
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		CheckedOutputStream checkedOutput = new CheckedOutputStream(buffer, new CRC32());
+		DataOutputStream output = new DataOutputStream(new BufferedOutputStream(checkedOutput));
+
+		FormatoBinario.scrivi(output, strutturaSportiva, primoSegmento, filePosti);
+		output.flush();
+		output.writeInt((int) checkedOutput.getChecksum().getValue());
+		output.close();
+
+		return buffer.toByteArray();
+	}
+
+	/**
+	 * Salva il contenuto di uno snapshot sostituendo in modo atomico il file
+	 * esistente: il contenuto viene scritto in un file temporaneo, forzato su
+	 * disco e poi rinominato. In caso di interruzione resta quindi valido lo
+	 * snapshot precedente.
+	 * 
+	 * @param file
+	 *            - Il file dello snapshot.
+	 * @param contenuto
+	 *            - Il contenuto da scrivere.
+	 * @throws IOException
+	 *             Se si verifica un errore durante la scrittura.
+	 * @author Maurizio Casciano
+	 */
+	static void scrivi(File file, byte[] contenuto) throws IOException {
+		File temporaneo = new File(file.getPath() + ".tmp");
+		FileOutputStream output = new FileOutputStream(temporaneo);
+
+		try {
+			output.write(contenuto);
+			output.getFD().sync();
+		} finally {
+			output.close();
+		}
+
+		Files.move(temporaneo.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Restituisce la cartella dei file dei posti di uno snapshot.
+	 * 
+	 * @param file
+	 *            - Il file dello snapshot.
+	 * @return La cartella dei file dei posti.
+	 */
+	static File getCartellaPosti(File file) {
+		return new File(file.getPath() + ".posti");
+	}
+
+	/**
+	 * Restituisce la StrutturaSportiva contenuta nello snapshot.
+	 * 
+	 * @return La StrutturaSportiva.
+	 */
+	public StrutturaSportiva getStrutturaSportiva() {
+		return this.strutturaSportiva;
+	}
+
+	/**
+	 * Restituisce il primo segmento del journal non compreso nello snapshot,
+	 * da cui iniziare a riapplicare le modifiche.
+	 * 
+	 * @return Il numero del primo segmento da riapplicare.
+	 */
+	public long getPrimoSegmento() {
+		return this.primoSegmento;
+	}
+
+	private final StrutturaSportiva strutturaSportiva;
+	private final long primoSegmento;
+}
@@ -0,0 +1,63 @@
+package persistence;
+
+/**
+ * Enum che identifica il tipo di ogni record scritto nel {@link Journal}. Il
+ * codice di ogni tipo viene scritto su file, per cui non deve mai essere
+ * modificato: i nuovi tipi vanno aggiunti con un codice non ancora usato.
+ * 
+ * @author Maurizio Casciano
+ */
+enum TipoRecord {
+	UTENTE_AGGIUNTO(1),
+	STADIO_AGGIUNTO(2),
+	STADIO_MODIFICATO(3),
+	PARTITA_AGGIUNTA(4),
+	PARTITA_MODIFICATA(5),
+	PARTITA_RIMOSSA(6),
+	SCONTO_AGGIUNTO(7),
+	SCONTO_RIMOSSO(8),
+	PRENOTAZIONE_AGGIUNTA(9),
+	PRENOTAZIONE_CANCELLATA(10),
+	ACQUISTO_AGGIUNTO(11),
+	ACQUISTO_CANCELLATO(12),
+	STATO_POSTO_MODIFICATO(13),
+	PRENOTAZIONI_AGGIUNTE(14),
+	ACQUISTI_AGGIUNTI(15),
+	PRENOTAZIONI_ACQUISTI_SCONTI_CANCELLATI(16),
+	PARTITA_AGGIUNTA_CON_ID(17),
+	PRENOTAZIONI_COMPLETATE(18),
+	PRENOTAZIONE_CANCELLATA_CON_POSTO(19),
+	ACQUISTO_CANCELLATO_CON_POSTO(20);
+
+	private TipoRecord(int codice) {
+		this.codice = (byte) codice;
+	}
+
+	/**
+	 * Restituisce il codice con cui il tipo di record viene scritto su file.
+	 * 
+	 * @return Il codice del tipo di record.
+	 */
+	byte getCodice() {
+		return this.codice;
+	}
+
+	/**
+	 * Restituisce il tipo di record corrispondente al codice letto da file.
+	 * 
+	 * @param codice
+	 *            - Il codice letto da file.
+	 * @return Il tipo di record, oppure {@code null} se il codice non e'
+	 *         riconosciuto.
+	 */
+	static TipoRecord daCodice(byte codice) {
+		for (TipoRecord tipo : TipoRecord.values()) {
+			if (tipo.codice == codice) {
+				return tipo;
+			}
+		}
+		return null;
+	}
+
+	private final byte codice;
+}
@@ -40,6 +40,39 @@ public class Acquisto implements Serializable {
 		this.biglietto.setVenduto();
 	}
 
+	private Acquisto(Biglietto biglietto) {
+		this.biglietto = biglietto;
+		this.biglietto.setVenduto();
+	}
+
+	/**
+	 * Ripristina un acquisto salvato su file a partire dal suo
+	 * {@link Biglietto}.
+	 * 
+	 * @param biglietto
+	 *            - il biglietto acquistato, ripristinato con
+	 *            {@link Biglietto#ripristina}
+	 * @return l'acquisto ripristinato
+	 * @author Maurizio Casciano
+	 */
+	public static Acquisto ripristina(Biglietto biglietto) {
+		return new Acquisto(biglietto);
+	}
+
+	/**
+	 * Costruisce l'acquisto che completa una prenotazione, con lo stesso
+	 * {@link Biglietto}, senza cancellare la prenotazione: la cancellazione
+	 * spetta a {@link StrutturaSportiva#completaPrenotazioni(java.util.ArrayList)}.
+	 * 
+	 * @param prenotazione
+	 *            - la prenotazione da completare
+	 * @return l'acquisto che completa la prenotazione
+	 * @author Maurizio Casciano
+	 */
+	static Acquisto completa(Prenotazione prenotazione) {
+		return new Acquisto(prenotazione.getBigliettoPrenotato());
+	}
+
 	/**
 	 * Costruisce un acquisto basato su una prenotazione, dopodiche' elimina la
 	 * {@link Prenotazione}
@@ -61,7 +94,7 @@ public class Acquisto implements Serializable {
 		this.biglietto.setVenduto();
 
 		/* Cancella la prenotazione in quanto e' stato effettuato l'acquisto */
-		struct.cancellaPrenotazioneCliente(this.biglietto.getCliente(), this.biglietto.getPartita());
+		struct.cancellaPrenotazione(prenotazione);
 
 	}
 
@@ -196,6 +229,18 @@ public class Acquisto implements Serializable {
 		return result;
 
 	}
+
+	/**
+	 * Restituisce il codice hash dell'acquisto, ovvero quello del biglietto
+	 * acquistato, coerente con
+	 * {@link #equals(Object)}.
+	 * 
+	 * @return il codice hash dell'acquisto.
+	 */
+	@Override
+	public int hashCode() {
+		return this.biglietto.hashCode();
+	}
 	
 	//private int IDAcquisto;
 	//private GregorianCalendar dataAcquisto;
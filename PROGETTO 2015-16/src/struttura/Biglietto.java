@@ -43,6 +43,49 @@ public class Biglietto implements Serializable {
 		this.prezzo = this.strutturaSelezionata.getBestAvailablePrice(this.partita, this.dataBiglietto);
 	}
 
+	private Biglietto(StrutturaSportiva stru, Cliente cliente, Partita partita, Settore settore, int fila, int posto,
+			GregorianCalendar dataBiglietto, double prezzo) {
+		this.cliente = cliente;
+		this.partita = partita;
+		this.settore = settore;
+		this.fila = fila;
+		this.posto = new Posto(this.partita.getStadio(), settore, fila, posto);
+		this.IDBiglietto = ++IDCounter;
+		this.dataBiglietto = dataBiglietto;
+		this.strutturaSelezionata = stru;
+		this.prezzo = prezzo;
+	}
+
+	/**
+	 * Ripristina un biglietto salvato su file. A differenza del costruttore,
+	 * il prezzo non viene ricalcolato ma e' quello pagato al momento
+	 * dell'emissione.
+	 * 
+	 * @param stru
+	 *            la {@link StrutturaSportiva} sulla quale si sta operando
+	 * @param cliente
+	 *            il {@link Cliente} che ha acquistato o prenotato il
+	 *            biglietto
+	 * @param partita
+	 *            la {@link Partita} per la quale e' stato emesso il biglietto
+	 * @param settore
+	 *            il {@link Settore} dello stadio
+	 * @param fila
+	 *            la fila del settore dello stadio
+	 * @param posto
+	 *            il numero del posto
+	 * @param dataBiglietto
+	 *            la data di emissione del biglietto
+	 * @param prezzo
+	 *            il prezzo del biglietto
+	 * @return il biglietto ripristinato
+	 * @author Maurizio Casciano
+	 */
+	public static Biglietto ripristina(StrutturaSportiva stru, Cliente cliente, Partita partita, Settore settore,
+			int fila, int posto, GregorianCalendar dataBiglietto, double prezzo) {
+		return new Biglietto(stru, cliente, partita, settore, fila, posto, dataBiglietto, prezzo);
+	}
+
 	/**
 	 * Restituisce l'ID del biglietto
 	 * 
@@ -128,6 +171,17 @@ public class Biglietto implements Serializable {
 		return this.posto;
 	}
 
+	/**
+	 * Restituisce la posizione del posto nello stato dei posti della partita,
+	 * con cui leggere o modificare direttamente lo stato del posto.
+	 * 
+	 * @return la posizione del posto, vedi {@link Partita#indicePosto(Posto)}.
+	 * @author Maurizio Casciano
+	 */
+	public int getIndicePosto() {
+		return this.partita.indicePosto(this.posto);
+	}
+
 	/**
 	 * Imposta la data del Biglietto.
 	 * Metodo usato principalmente nelle classi di test.
@@ -155,7 +209,9 @@ public class Biglietto implements Serializable {
 
 	/**
 	 * Verifica se l'oggetto corrente e' uguale all'oggetto passato come
-	 * parametro
+	 * parametro. Due biglietti sono uguali se sono dello stesso cliente, per
+	 * la stessa partita e per lo stesso posto: un cliente puo' avere piu'
+	 * biglietti per una partita con un ordine di gruppo.
 	 * 
 	 * @param obj
 	 *            - l'oggetto su cui effettuare la verifica
@@ -178,13 +234,27 @@ public class Biglietto implements Serializable {
 
 		Biglietto other = (Biglietto) obj;
 
-		if ((this.cliente.equals(other.cliente)) && (this.partita.equals(other.partita))) {
+		if ((this.cliente.equals(other.cliente)) && (this.partita.equals(other.partita))
+				&& (this.posto.equals(other.posto))) {
 			result = true;
 		}
 
 		return result;
 	}
 
+	/**
+	 * Restituisce il codice hash del biglietto, coerente con
+	 * {@link #equals(Object)}.
+	 * 
+	 * @return il codice hash del biglietto.
+	 */
+	@Override
+	public int hashCode() {
+		int result = this.cliente.hashCode();
+		result = 31 * result + this.partita.hashCode();
+		return 31 * result + this.posto.hashCode();
+	}
+
 	public GregorianCalendar getDataBiglietto() {
 		return dataBiglietto;
 	}
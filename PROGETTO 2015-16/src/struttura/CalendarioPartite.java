@@ -0,0 +1,218 @@
+package struttura;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Calendario delle partite ordinato per data di inizio, con le partite
+ * raggruppate anche per settimana, in modo che le ricerche per settimana,
+ * per intervallo di date e delle partite non ancora iniziate non debbano
+ * calcolare i campi della data di ogni partita.
+ * 
+ * La settimana di una partita e' individuata, come in
+ * {@link struttura.filters.MatchByWeekFilter}, dall'anno e dalla settimana
+ * dell'anno della sua data, calcolati una sola volta all'inserimento. Le
+ * partite sono distinte per identita': se ne viene modificata la data vanno
+ * rimosse e reinserite.
+ * 
+ * Il calendario non e' sincronizzato.
+ * 
+ * @author Maurizio Casciano
+ */
+class CalendarioPartite {
+
+	/**
+	 * Crea un calendario vuoto.
+	 * 
+	 * @author Maurizio Casciano
+	 */
+	CalendarioPartite() {
+		this.voci = new IdentityHashMap<>();
+		this.perInizio = new TreeMap<>();
+		this.perSettimana = new HashMap<>();
+	}
+
+	/**
+	 * Aggiunge una partita al calendario, se non vi e' gia' presente.
+	 * 
+	 * @param partita
+	 *            - La partita da aggiungere.
+	 * @author Maurizio Casciano
+	 */
+	void aggiungi(Partita partita) {
+		if (this.voci.containsKey(partita)) {
+			return;
+		}
+
+		Voce voce = new Voce(partita.getData().getTimeInMillis(), settimana(partita.getData()));
+		this.voci.put(partita, voce);
+
+		ArrayList<Partita> stessoInizio = this.perInizio.get(voce.inizio);
+		if (stessoInizio == null) {
+			stessoInizio = new ArrayList<>(1);
+			this.perInizio.put(voce.inizio, stessoInizio);
+		}
+		stessoInizio.add(partita);
+
+		ArrayList<Partita> settimana = this.perSettimana.get(voce.settimana);
+		if (settimana == null) {
+			settimana = new ArrayList<>();
+			this.perSettimana.put(voce.settimana, settimana);
+		}
+
+		/* La settimana resta ordinata per data di inizio. */
+		int posizione = settimana.size();
+		while (posizione > 0 && this.voci.get(settimana.get(posizione - 1)).inizio > voce.inizio) {
+			posizione--;
+		}
+		settimana.add(posizione, partita);
+	}
+
+	/**
+	 * Rimuove una partita dal calendario, usando la data con cui vi era stata
+	 * inserita.
+	 * 
+	 * @param partita
+	 *            - La partita da rimuovere.
+	 * @author Maurizio Casciano
+	 */
+	void rimuovi(Partita partita) {
+		Voce voce = this.voci.remove(partita);
+
+		if (voce != null) {
+			rimuovi(this.perInizio, voce.inizio, partita);
+			rimuovi(this.perSettimana, voce.settimana, partita);
+		}
+	}
+
+	/**
+	 * Restituisce le partite della settimana della data passata in input, in
+	 * ordine di data.
+	 * 
+	 * @param data
+	 *            - Una data della settimana.
+	 * @return Le partite della settimana.
+	 * @author Maurizio Casciano
+	 */
+	ArrayList<Partita> getPerSettimana(GregorianCalendar data) {
+		ArrayList<Partita> settimana = this.perSettimana.get(settimana(data));
+		return settimana == null ? new ArrayList<Partita>() : new ArrayList<>(settimana);
+	}
+
+	/**
+	 * Restituisce le partite che iniziano tra le due date, estremi compresi,
+	 * in ordine di data.
+	 * 
+	 * @param da
+	 *            - La data di inizio dell'intervallo.
+	 * @param a
+	 *            - La data di fine dell'intervallo.
+	 * @return Le partite dell'intervallo.
+	 * @author Maurizio Casciano
+	 */
+	ArrayList<Partita> getTra(long da, long a) {
+		ArrayList<Partita> trovate = new ArrayList<>();
+
+		if (da <= a) {
+			for (ArrayList<Partita> stessoInizio : this.perInizio.subMap(da, true, a, true).values()) {
+				trovate.addAll(stessoInizio);
+			}
+		}
+		return trovate;
+	}
+
+	/**
+	 * Restituisce le partite che iniziano dopo l'istante passato in input, in
+	 * ordine di data.
+	 * 
+	 * @param istante
+	 *            - L'istante, in millisecondi.
+	 * @return Le partite che iniziano dopo l'istante.
+	 * @author Maurizio Casciano
+	 */
+	ArrayList<Partita> getDopo(long istante) {
+		ArrayList<Partita> trovate = new ArrayList<>();
+
+		for (ArrayList<Partita> stessoInizio : this.perInizio.tailMap(istante, false).values()) {
+			trovate.addAll(stessoInizio);
+		}
+		return trovate;
+	}
+
+	/**
+	 * Restituisce la settimana della partita calcolata all'inserimento, nella
+	 * forma {@code anno * 100 + settimana dell'anno}. Se la data della
+	 * partita e' stata modificata senza reinserirla, la partita viene
+	 * reinserita; per le partite non presenti nel calendario la settimana
+	 * viene calcolata senza aggiungerle.
+	 * 
+	 * @param partita
+	 *            - La partita.
+	 * @return La settimana della partita.
+	 * @author Maurizio Casciano
+	 */
+	int getSettimana(Partita partita) {
+		Voce voce = this.voci.get(partita);
+
+		if (voce == null) {
+			return settimana(partita.getData());
+		}
+
+		if (voce.inizio != partita.getData().getTimeInMillis()) {
+			this.rimuovi(partita);
+			this.aggiungi(partita);
+			voce = this.voci.get(partita);
+		}
+		return voce.settimana;
+	}
+
+	/**
+	 * @return Il numero di partite nel calendario.
+	 * @author Maurizio Casciano
+	 */
+	int size() {
+		return this.voci.size();
+	}
+
+	static int settimana(GregorianCalendar data) {
+		return data.get(Calendar.YEAR) * 100 + data.get(Calendar.WEEK_OF_YEAR);
+	}
+
+	private static <K> void rimuovi(Map<K, ArrayList<Partita>> indice, K chiave, Partita partita) {
+		ArrayList<Partita> partite = indice.get(chiave);
+
+		for (int i = 0; i < partite.size(); i++) {
+			if (partite.get(i) == partita) {
+				partite.remove(i);
+				break;
+			}
+		}
+
+		if (partite.isEmpty()) {
+			indice.remove(chiave);
+		}
+	}
+
+	/**
+	 * Data di inizio e settimana con cui una partita e' stata inserita.
+	 */
+	private static class Voce {
+
+		Voce(long inizio, int settimana) {
+			this.inizio = inizio;
+			this.settimana = settimana;
+		}
+
+		private final long inizio;
+		private final int settimana;
+	}
+
+	private final IdentityHashMap<Partita, Voce> voci;
+	private final TreeMap<Long, ArrayList<Partita>> perInizio;
+	private final HashMap<Integer, ArrayList<Partita>> perSettimana;
+}
@@ -0,0 +1,139 @@
+package struttura;
+
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import graphics.stadium.DivisibleIntoSectors;
+
+/**
+ * Classe immutabile che modella la disposizione dei posti di uno
+ * {@link Stadio}: nomi dei settori, file per settore e posti per fila. La
+ * disposizione dipende soltanto dal numero di posti per settore, quindi viene
+ * creata una sola volta per ogni capienza e condivisa da tutti gli stadi e
+ * tutte le partite con quella capienza; ogni {@link Partita} possiede
+ * soltanto lo stato dei propri posti ({@link StatoPosti}).
+ * 
+ * @author Maurizio Casciano
+ */
+public final class DisposizionePosti implements Serializable, DivisibleIntoSectors {
+
+	private DisposizionePosti(int postiPerSettore) {
+		this.postiPerSettore = postiPerSettore;
+		this.filePerSettore = (int) Math.sqrt(postiPerSettore);
+		/*
+		 * Arrotonda per eccesso, come in Stadio, per ottenere il numero di
+		 * colonne usato dal GridLayout dei settori.
+		 */
+		this.postiPerFila = (int) Math.ceil((double) postiPerSettore / (double) this.filePerSettore);
+		this.nomiSettori = new String[DivisibleIntoSectors.NUMERO_SETTORI];
+
+		for (int i = 0; i < this.nomiSettori.length; i++) {
+			this.nomiSettori[i] = "Settore " + (char) ('A' + i / 26) + (char) ('A' + i % 26);
+		}
+	}
+
+	/**
+	 * Restituisce la disposizione dei posti con postiPerSettore posti per
+	 * ogni settore, creandola soltanto alla prima richiesta.
+	 * 
+	 * @param postiPerSettore
+	 *            Il numero di posti per settore.
+	 * @return La disposizione dei posti.
+	 * @author Maurizio Casciano
+	 */
+	public static synchronized DisposizionePosti get(int postiPerSettore) {
+		DisposizionePosti disposizione = DISPOSIZIONI.get(postiPerSettore);
+
+		if (disposizione == null) {
+			disposizione = new DisposizionePosti(postiPerSettore);
+			DISPOSIZIONI.put(postiPerSettore, disposizione);
+		}
+		return disposizione;
+	}
+
+	/**
+	 * Crea i settori di una partita (o di uno stadio), i cui posti sono viste
+	 * su statoPosti. Non viene creato nessun {@link Posto}.
+	 * 
+	 * @param stadio
+	 *            Lo stadio a cui appartengono i settori.
+	 * @param statoPosti
+	 *            Lo stato dei posti, con {@link #getCapienzaEffettiva()}
+	 *            posti.
+	 * @return I settori.
+	 * @author Maurizio Casciano
+	 */
+	public ArrayList<Settore> creaSettori(Stadio stadio, StatoPosti statoPosti) {
+		ArrayList<Settore> settori = new ArrayList<>(this.nomiSettori.length);
+
+		for (int i = 0; i < this.nomiSettori.length; i++) {
+			settori.add(new Settore(stadio, this.nomiSettori[i], this.postiPerSettore, this.filePerSettore,
+					statoPosti, i * this.postiPerSettore));
+		}
+		return settori;
+	}
+
+	/**
+	 * Restituisce il nome del settore in posizione indice.
+	 * 
+	 * @param indice
+	 *            La posizione del settore.
+	 * @return Il nome del settore.
+	 * @author Maurizio Casciano
+	 */
+	public String getNomeSettore(int indice) {
+		return this.nomiSettori[indice];
+	}
+
+	/**
+	 * Restituisce il numero della fila del posto in posizione indice nel
+	 * proprio settore.
+	 * 
+	 * @param indice
+	 *            La posizione del posto nel settore, ossia il numero del posto
+	 *            meno uno.
+	 * @return Il numero della fila, a partire da 1.
+	 * @author Maurizio Casciano
+	 */
+	public int getNumeroFila(int indice) {
+		return indice / this.postiPerFila + 1;
+	}
+
+	@Override
+	public int getPostiPerSettore() {
+		return this.postiPerSettore;
+	}
+
+	@Override
+	public int getNumeroFilePerSettore() {
+		return this.filePerSettore;
+	}
+
+	@Override
+	public int getPostiPerFila() {
+		return this.postiPerFila;
+	}
+
+	@Override
+	public int getCapienzaEffettiva() {
+		return this.postiPerSettore * DivisibleIntoSectors.NUMERO_SETTORI;
+	}
+
+	/**
+	 * Mantiene un'unica istanza per ogni numero di posti per settore anche
+	 * dopo la deserializzazione.
+	 */
+	private Object readResolve() throws ObjectStreamException {
+		return get(this.postiPerSettore);
+	}
+
+	private final int postiPerSettore;
+	private final int filePerSettore;
+	private final int postiPerFila;
+	private final String[] nomiSettori;
+
+	private static final HashMap<Integer, DisposizionePosti> DISPOSIZIONI = new HashMap<>();
+	private static final long serialVersionUID = -2740156327361548953L;
+}
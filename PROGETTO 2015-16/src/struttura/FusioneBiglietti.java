@@ -0,0 +1,129 @@
+package struttura;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+/**
+ * Scorre i biglietti di piu' sorgenti di un {@link IndiceBiglietti}, ovvero
+ * mappe dei biglietti per numero progressivo, nell'ordine di inserimento e
+ * senza ripetere i biglietti presenti in piu' sorgenti. Le sorgenti non
+ * vengono copiate: i biglietti sono letti uno alla volta, per cui la
+ * scansione puo' essere interrotta in qualunque momento senza aver
+ * esaminato gli altri.
+ * 
+ * Le sorgenti non devono essere modificate durante la scansione.
+ * 
+ * @param <T>
+ *            Il tipo dei biglietti.
+ * @author Maurizio Casciano
+ */
+class FusioneBiglietti<T> implements Iterator<T> {
+
+	/**
+	 * Crea un iteratore sui biglietti delle sorgenti passate in input.
+	 * 
+	 * @param sorgenti
+	 *            - Le mappe dei biglietti per numero progressivo.
+	 * @author Maurizio Casciano
+	 */
+	FusioneBiglietti(ArrayList<TreeMap<Long, T>> sorgenti) {
+		this.teste = new PriorityQueue<>(Math.max(1, sorgenti.size()), new Comparator<Testa<T>>() {
+
+			@Override
+			public int compare(Testa<T> t1, Testa<T> t2) {
+				return Long.compare(t1.corrente.getKey(), t2.corrente.getKey());
+			}
+		});
+
+		for (TreeMap<Long, T> biglietti : sorgenti) {
+			Testa<T> testa = new Testa<>(biglietti.entrySet().iterator());
+
+			if (testa.avanza()) {
+				this.teste.add(testa);
+			}
+		}
+	}
+
+	/**
+	 * Restituisce un iteratore sui biglietti candidati: quelli delle sorgenti
+	 * se sono state individuate, altrimenti tutti i biglietti.
+	 * 
+	 * @param sorgenti
+	 *            - Le sorgenti, oppure {@code null}.
+	 * @param tutti
+	 *            - Tutti i biglietti, nell'ordine di inserimento.
+	 * @return L'iteratore sui biglietti candidati.
+	 * @author Maurizio Casciano
+	 */
+	static <T> Iterator<T> scorri(ArrayList<TreeMap<Long, T>> sorgenti, ArrayList<T> tutti) {
+		if (sorgenti == null) {
+			return tutti.iterator();
+		}
+
+		if (sorgenti.size() == 1) {
+			return sorgenti.get(0).values().iterator();
+		}
+		return new FusioneBiglietti<>(sorgenti);
+	}
+
+	@Override
+	public boolean hasNext() {
+		return !this.teste.isEmpty();
+	}
+
+	@Override
+	public T next() {
+		if (this.teste.isEmpty()) {
+			throw new NoSuchElementException();
+		}
+
+		Testa<T> testa = this.teste.poll();
+		long progressivo = testa.corrente.getKey();
+		T biglietto = testa.corrente.getValue();
+
+		while (true) {
+			if (testa.avanza()) {
+				this.teste.add(testa);
+			}
+
+			testa = this.teste.peek();
+			if (testa == null || testa.corrente.getKey() != progressivo) {
+				return biglietto;
+			}
+			this.teste.poll();
+		}
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Il prossimo biglietto di una sorgente.
+	 */
+	private static class Testa<T> {
+
+		Testa(Iterator<Map.Entry<Long, T>> iteratore) {
+			this.iteratore = iteratore;
+		}
+
+		boolean avanza() {
+			if (!this.iteratore.hasNext()) {
+				return false;
+			}
+			this.corrente = this.iteratore.next();
+			return true;
+		}
+
+		private final Iterator<Map.Entry<Long, T>> iteratore;
+		private Map.Entry<Long, T> corrente;
+	}
+
+	private final PriorityQueue<Testa<T>> teste;
+}
@@ -0,0 +1,182 @@
+package struttura;
+
+import java.math.BigDecimal;
+import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import user.Cliente;
+
+/**
+ * Totali degli incassi degli acquisti, complessivo, per partita, per cliente
+ * e per giorno di acquisto, aggiornati ad ogni acquisto aggiunto o rimosso.
+ * Le partite sono distinte per identita', i clienti per username a meno di
+ * maiuscole e minuscole. Lo stadio di una partita puo' cambiare, per cui
+ * l'incasso di uno stadio somma quelli delle partite che vi si giocano.
+ * 
+ * Le somme sono tenute in {@link BigDecimal} a partire dal valore esatto dei
+ * prezzi, in modo che aggiunte e rimozioni successive non accumulino errori
+ * di arrotondamento.
+ * 
+ * I totali non sono sincronizzati.
+ * 
+ * @author Maurizio Casciano
+ */
+class IncassiAcquisti {
+
+	/**
+	 * Crea dei totali vuoti.
+	 * 
+	 * @author Maurizio Casciano
+	 */
+	IncassiAcquisti() {
+		this.totale = new Somma();
+		this.perPartita = new IdentityHashMap<>();
+		this.perCliente = new HashMap<>();
+		this.perGiorno = new HashMap<>();
+	}
+
+	/**
+	 * Aggiunge ai totali il prezzo di un acquisto.
+	 * 
+	 * @param acquisto
+	 *            - L'acquisto da aggiungere.
+	 * @author Maurizio Casciano
+	 */
+	void aggiungi(Acquisto acquisto) {
+		BigDecimal prezzo = new BigDecimal(acquisto.getBiglietto().getPrezzo());
+
+		this.totale.aggiungi(prezzo);
+		aggiungi(this.perPartita, acquisto.getPartita(), prezzo);
+		aggiungi(this.perCliente, StrutturaSportiva.normalizzaNome(acquisto.getCliente().getUsername()), prezzo);
+		aggiungi(this.perGiorno, giorno(acquisto.getBiglietto().getDataBiglietto()), prezzo);
+	}
+
+	/**
+	 * Toglie dai totali il prezzo di un acquisto aggiunto in precedenza.
+	 * 
+	 * @param acquisto
+	 *            - L'acquisto da rimuovere.
+	 * @author Maurizio Casciano
+	 */
+	void rimuovi(Acquisto acquisto) {
+		BigDecimal prezzo = new BigDecimal(acquisto.getBiglietto().getPrezzo());
+
+		this.totale.rimuovi(prezzo);
+		rimuovi(this.perPartita, acquisto.getPartita(), prezzo);
+		rimuovi(this.perCliente, StrutturaSportiva.normalizzaNome(acquisto.getCliente().getUsername()), prezzo);
+		rimuovi(this.perGiorno, giorno(acquisto.getBiglietto().getDataBiglietto()), prezzo);
+	}
+
+	/**
+	 * @return L'incasso complessivo.
+	 * @author Maurizio Casciano
+	 */
+	double getTotale() {
+		return this.totale.valore.doubleValue();
+	}
+
+	/**
+	 * @param partita
+	 *            - La partita.
+	 * @return L'incasso della partita.
+	 * @author Maurizio Casciano
+	 */
+	double getPerPartita(Partita partita) {
+		return valore(this.perPartita, partita);
+	}
+
+	/**
+	 * @param stadio
+	 *            - Lo stadio.
+	 * @return L'incasso delle partite che si giocano nello stadio.
+	 * @author Maurizio Casciano
+	 */
+	double getPerStadio(Stadio stadio) {
+		BigDecimal somma = BigDecimal.ZERO;
+
+		for (Map.Entry<Partita, Somma> e : this.perPartita.entrySet()) {
+			if (e.getKey().getStadio().equals(stadio)) {
+				somma = somma.add(e.getValue().valore);
+			}
+		}
+		return somma.doubleValue();
+	}
+
+	/**
+	 * @param cliente
+	 *            - Il cliente.
+	 * @return L'incasso degli acquisti del cliente.
+	 * @author Maurizio Casciano
+	 */
+	double getPerCliente(Cliente cliente) {
+		return valore(this.perCliente, StrutturaSportiva.normalizzaNome(cliente.getUsername()));
+	}
+
+	/**
+	 * @param data
+	 *            - Una data qualsiasi del giorno.
+	 * @return L'incasso degli acquisti effettuati nel giorno.
+	 * @author Maurizio Casciano
+	 */
+	double getPerGiorno(GregorianCalendar data) {
+		return valore(this.perGiorno, giorno(data));
+	}
+
+	private static int giorno(GregorianCalendar data) {
+		return data.get(GregorianCalendar.YEAR) * 10000 + (data.get(GregorianCalendar.MONTH) + 1) * 100
+				+ data.get(GregorianCalendar.DAY_OF_MONTH);
+	}
+
+	private static <K> void aggiungi(Map<K, Somma> totali, K chiave, BigDecimal prezzo) {
+		Somma somma = totali.get(chiave);
+
+		if (somma == null) {
+			somma = new Somma();
+			totali.put(chiave, somma);
+		}
+		somma.aggiungi(prezzo);
+	}
+
+	private static <K> void rimuovi(Map<K, Somma> totali, K chiave, BigDecimal prezzo) {
+		Somma somma = totali.get(chiave);
+
+		if (somma != null) {
+			somma.rimuovi(prezzo);
+
+			if (somma.acquisti == 0) {
+				totali.remove(chiave);
+			}
+		}
+	}
+
+	private static <K> double valore(Map<K, Somma> totali, K chiave) {
+		Somma somma = totali.get(chiave);
+		return somma == null ? 0 : somma.valore.doubleValue();
+	}
+
+	/**
+	 * Somma dei prezzi di un gruppo di acquisti.
+	 */
+	private static class Somma {
+
+		void aggiungi(BigDecimal prezzo) {
+			this.valore = this.valore.add(prezzo);
+			this.acquisti++;
+		}
+
+		void rimuovi(BigDecimal prezzo) {
+			this.valore = this.valore.subtract(prezzo);
+			this.acquisti--;
+		}
+
+		private BigDecimal valore = BigDecimal.ZERO;
+		private int acquisti;
+	}
+
+	private final Somma totale;
+	private final IdentityHashMap<Partita, Somma> perPartita;
+	private final HashMap<String, Somma> perCliente;
+	private final HashMap<Integer, Somma> perGiorno;
+}
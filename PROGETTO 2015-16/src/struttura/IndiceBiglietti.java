@@ -0,0 +1,281 @@
+package struttura;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import user.Cliente;
+
+/**
+ * Indice delle prenotazioni o degli acquisti per cliente, per partita e per
+ * cliente e partita. Le partite sono distinte per identita', i clienti per
+ * username a meno di maiuscole e minuscole, come in
+ * {@link Cliente#equals(Object)}. Per ogni coppia l'indice mantiene i
+ * biglietti nell'ordine di inserimento: piu' di uno soltanto per gli ordini
+ * di gruppo.
+ * 
+ * Ad ogni biglietto e' assegnato un numero progressivo, in modo che le
+ * ricerche per cliente, partita o stadio restituiscano i biglietti
+ * nell'ordine di inserimento e che la rimozione costi un tempo logaritmico.
+ * Lo stadio di una partita puo' cambiare, per cui la ricerca per stadio
+ * unisce quelle delle partite che vi si giocano.
+ * 
+ * L'indice non e' sincronizzato.
+ * 
+ * @param <T>
+ *            Il tipo dei biglietti indicizzati.
+ * @author Maurizio Casciano
+ */
+class IndiceBiglietti<T> {
+
+	/**
+	 * Crea un indice vuoto.
+	 * 
+	 * @author Maurizio Casciano
+	 */
+	IndiceBiglietti() {
+		this.perClienteEPartita = new IdentityHashMap<>();
+		this.progressivi = new IdentityHashMap<>();
+		this.perPartita = new IdentityHashMap<>();
+		this.perCliente = new HashMap<>();
+	}
+
+	/**
+	 * Aggiunge un biglietto all'indice.
+	 * 
+	 * @param cliente
+	 *            - Il cliente del biglietto.
+	 * @param partita
+	 *            - La partita del biglietto.
+	 * @param biglietto
+	 *            - Il biglietto da aggiungere.
+	 * @author Maurizio Casciano
+	 */
+	void aggiungi(Cliente cliente, Partita partita, T biglietto) {
+		HashMap<String, ArrayList<T>> clientiPartita = this.perClienteEPartita.get(partita);
+
+		if (clientiPartita == null) {
+			clientiPartita = new HashMap<>();
+			this.perClienteEPartita.put(partita, clientiPartita);
+		}
+
+		String chiave = StrutturaSportiva.normalizzaNome(cliente.getUsername());
+		ArrayList<T> biglietti = clientiPartita.get(chiave);
+
+		if (biglietti == null) {
+			biglietti = new ArrayList<>(1);
+			clientiPartita.put(chiave, biglietti);
+		}
+		biglietti.add(biglietto);
+
+		Long progressivo = this.prossimoProgressivo++;
+		this.progressivi.put(biglietto, progressivo);
+
+		TreeMap<Long, T> bigliettiPartita = this.perPartita.get(partita);
+
+		if (bigliettiPartita == null) {
+			bigliettiPartita = new TreeMap<>();
+			this.perPartita.put(partita, bigliettiPartita);
+		}
+		bigliettiPartita.put(progressivo, biglietto);
+
+		TreeMap<Long, T> bigliettiCliente = this.perCliente.get(chiave);
+
+		if (bigliettiCliente == null) {
+			bigliettiCliente = new TreeMap<>();
+			this.perCliente.put(chiave, bigliettiCliente);
+		}
+		bigliettiCliente.put(progressivo, biglietto);
+		this.size++;
+	}
+
+	/**
+	 * Rimuove un biglietto dall'indice.
+	 * 
+	 * @param cliente
+	 *            - Il cliente del biglietto.
+	 * @param partita
+	 *            - La partita del biglietto.
+	 * @param biglietto
+	 *            - Il biglietto da rimuovere, cercato per identita'.
+	 * @author Maurizio Casciano
+	 */
+	void rimuovi(Cliente cliente, Partita partita, T biglietto) {
+		Long progressivo = this.progressivi.remove(biglietto);
+
+		if (progressivo == null) {
+			return;
+		}
+
+		String chiave = StrutturaSportiva.normalizzaNome(cliente.getUsername());
+		HashMap<String, ArrayList<T>> clientiPartita = this.perClienteEPartita.get(partita);
+		ArrayList<T> biglietti = clientiPartita.get(chiave);
+
+		for (int i = 0; i < biglietti.size(); i++) {
+			if (biglietti.get(i) == biglietto) {
+				biglietti.remove(i);
+				break;
+			}
+		}
+
+		if (biglietti.isEmpty()) {
+			clientiPartita.remove(chiave);
+
+			if (clientiPartita.isEmpty()) {
+				this.perClienteEPartita.remove(partita);
+			}
+		}
+
+		rimuovi(this.perPartita, partita, progressivo);
+		rimuovi(this.perCliente, chiave, progressivo);
+		this.size--;
+	}
+
+	private static <K, T> void rimuovi(Map<K, TreeMap<Long, T>> indice, K chiave, Long progressivo) {
+		TreeMap<Long, T> biglietti = indice.get(chiave);
+		biglietti.remove(progressivo);
+
+		if (biglietti.isEmpty()) {
+			indice.remove(chiave);
+		}
+	}
+
+	/**
+	 * Restituisce i biglietti di un cliente per una partita.
+	 * 
+	 * @param cliente
+	 *            - Il cliente.
+	 * @param partita
+	 *            - La partita.
+	 * @return I biglietti nell'ordine di inserimento, in una lista non
+	 *         modificabile ed eventualmente vuota.
+	 * @author Maurizio Casciano
+	 */
+	List<T> get(Cliente cliente, Partita partita) {
+		HashMap<String, ArrayList<T>> clientiPartita = cliente == null ? null : this.perClienteEPartita.get(partita);
+
+		if (clientiPartita == null) {
+			return Collections.emptyList();
+		}
+
+		ArrayList<T> biglietti = clientiPartita.get(StrutturaSportiva.normalizzaNome(cliente.getUsername()));
+
+		if (biglietti == null) {
+			return Collections.emptyList();
+		}
+		return Collections.unmodifiableList(biglietti);
+	}
+
+	/**
+	 * Restituisce i biglietti di una partita.
+	 * 
+	 * @param partita
+	 *            - La partita.
+	 * @return I biglietti nell'ordine di inserimento.
+	 * @author Maurizio Casciano
+	 */
+	ArrayList<T> getPerPartita(Partita partita) {
+		TreeMap<Long, T> biglietti = this.perPartita.get(partita);
+
+		return biglietti == null ? new ArrayList<T>() : new ArrayList<>(biglietti.values());
+	}
+
+	/**
+	 * Restituisce i biglietti di un cliente come sorgente per
+	 * {@link FusioneBiglietti}, senza copiarli.
+	 * 
+	 * @param cliente
+	 *            - Il cliente.
+	 * @return Le mappe dei biglietti per numero progressivo, eventualmente
+	 *         nessuna.
+	 * @author Maurizio Casciano
+	 */
+	ArrayList<TreeMap<Long, T>> getSorgentiPerCliente(Cliente cliente) {
+		TreeMap<Long, T> biglietti = cliente == null ? null
+				: this.perCliente.get(StrutturaSportiva.normalizzaNome(cliente.getUsername()));
+
+		return sorgenti(biglietti);
+	}
+
+	/**
+	 * Restituisce i biglietti di una partita come sorgente per
+	 * {@link FusioneBiglietti}, senza copiarli.
+	 * 
+	 * @param partita
+	 *            - La partita.
+	 * @return Le mappe dei biglietti per numero progressivo, eventualmente
+	 *         nessuna.
+	 * @author Maurizio Casciano
+	 */
+	ArrayList<TreeMap<Long, T>> getSorgentiPerPartita(Partita partita) {
+		return sorgenti(this.perPartita.get(partita));
+	}
+
+	/**
+	 * Restituisce i biglietti delle partite che si giocano in uno stadio come
+	 * sorgente per {@link FusioneBiglietti}, senza copiarli.
+	 * 
+	 * @param stadio
+	 *            - Lo stadio, confrontato con {@link Stadio#equals(Object)}.
+	 * @return Le mappe dei biglietti per numero progressivo, una per partita.
+	 * @author Maurizio Casciano
+	 */
+	ArrayList<TreeMap<Long, T>> getSorgentiPerStadio(Stadio stadio) {
+		ArrayList<TreeMap<Long, T>> sorgenti = new ArrayList<>();
+
+		for (Map.Entry<Partita, TreeMap<Long, T>> e : this.perPartita.entrySet()) {
+			if (e.getKey().getStadio().equals(stadio)) {
+				sorgenti.add(e.getValue());
+			}
+		}
+		return sorgenti;
+	}
+
+	private static <T> ArrayList<TreeMap<Long, T>> sorgenti(TreeMap<Long, T> biglietti) {
+		ArrayList<TreeMap<Long, T>> sorgenti = new ArrayList<>(1);
+
+		if (biglietti != null) {
+			sorgenti.add(biglietti);
+		}
+		return sorgenti;
+	}
+
+	/**
+	 * Restituisce il numero di biglietti contenuti nelle sorgenti, contando
+	 * piu' volte quelli presenti in piu' sorgenti.
+	 * 
+	 * @param sorgenti
+	 *            - Le sorgenti.
+	 * @return Il numero di biglietti.
+	 * @author Maurizio Casciano
+	 */
+	static <T> int conta(ArrayList<TreeMap<Long, T>> sorgenti) {
+		int n = 0;
+
+		for (TreeMap<Long, T> biglietti : sorgenti) {
+			n += biglietti.size();
+		}
+		return n;
+	}
+
+	/**
+	 * Restituisce il numero di biglietti nell'indice.
+	 * 
+	 * @return Il numero di biglietti.
+	 * @author Maurizio Casciano
+	 */
+	int size() {
+		return this.size;
+	}
+
+	private final IdentityHashMap<Partita, HashMap<String, ArrayList<T>>> perClienteEPartita;
+	private final IdentityHashMap<T, Long> progressivi;
+	private final IdentityHashMap<Partita, TreeMap<Long, T>> perPartita;
+	private final HashMap<String, TreeMap<Long, T>> perCliente;
+	private long prossimoProgressivo;
+	private int size;
+}
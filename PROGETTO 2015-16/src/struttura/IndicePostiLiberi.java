@@ -0,0 +1,320 @@
+package struttura;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import graphics.stadium.DivisibleIntoSectors;
+
+/**
+ * Indice delle sequenze di posti liberi contigui di uno {@link StatoPosti}.
+ * Per ogni fila memorizza la lunghezza della piu' lunga sequenza di posti
+ * liberi e per ogni settore il massimo tra quelli delle sue file: per trovare
+ * una fila con n posti liberi contigui si esaminano i massimi dei settori e
+ * poi soltanto le file del settore scelto.
+ * 
+ * L'indice viene aggiornato dopo ogni cambiamento di stato che libera o
+ * occupa un posto, esaminando soltanto la fila del posto. Gli aggiornamenti
+ * dello stesso settore sono serializzati da un lock per settore, mentre le
+ * ricerche non acquisiscono lock.
+ * 
+ * @author Maurizio Casciano
+ */
+class IndicePostiLiberi {
+
+	/**
+	 * Crea l'indice dello stato dei posti, considerando tutti i posti liberi.
+	 * 
+	 * @param statoPosti
+	 *            Lo stato dei posti da indicizzare.
+	 * @author Maurizio Casciano
+	 */
+	IndicePostiLiberi(StatoPosti statoPosti) {
+		DisposizionePosti disposizionePosti = statoPosti.getDisposizionePosti();
+
+		this.statoPosti = statoPosti;
+		this.postiPerSettore = disposizionePosti.getPostiPerSettore();
+		this.postiPerFila = disposizionePosti.getPostiPerFila();
+		this.filePerSettore = this.postiPerSettore == 0 ? 0
+				: (this.postiPerSettore + this.postiPerFila - 1) / this.postiPerFila;
+		this.massimiFile = new AtomicIntegerArray(DivisibleIntoSectors.NUMERO_SETTORI * this.filePerSettore);
+		this.massimiSettori = new AtomicIntegerArray(DivisibleIntoSectors.NUMERO_SETTORI);
+		this.lockSettori = new Object[DivisibleIntoSectors.NUMERO_SETTORI];
+
+		for (int settore = 0; settore < DivisibleIntoSectors.NUMERO_SETTORI; settore++) {
+			this.lockSettori[settore] = new Object();
+
+			for (int fila = 0; fila < this.filePerSettore; fila++) {
+				this.massimiFile.set(settore * this.filePerSettore + fila, this.getLunghezzaFila(fila));
+			}
+			this.massimiSettori.set(settore, Math.min(this.postiPerFila, this.postiPerSettore));
+		}
+	}
+
+	/**
+	 * Aggiorna l'indice dopo che il posto in posizione indice e' stato
+	 * liberato oppure occupato.
+	 * 
+	 * @param indice
+	 *            La posizione del posto.
+	 * @author Maurizio Casciano
+	 */
+	void aggiorna(int indice) {
+		int settore = indice / this.postiPerSettore;
+		int fila = (indice % this.postiPerSettore) / this.postiPerFila;
+
+		synchronized (this.lockSettori[settore]) {
+			int massimo = this.calcolaMassimoFila(settore, fila);
+
+			if (massimo != this.massimiFile.get(settore * this.filePerSettore + fila)) {
+				this.massimiFile.set(settore * this.filePerSettore + fila, massimo);
+				this.aggiornaMassimoSettore(settore);
+			}
+		}
+	}
+
+	/**
+	 * Ricalcola l'intero indice a partire dallo stato dei posti.
+	 * 
+	 * @author Maurizio Casciano
+	 */
+	void ricostruisci() {
+		for (int settore = 0; settore < DivisibleIntoSectors.NUMERO_SETTORI; settore++) {
+			synchronized (this.lockSettori[settore]) {
+				for (int fila = 0; fila < this.filePerSettore; fila++) {
+					this.massimiFile.set(settore * this.filePerSettore + fila, this.calcolaMassimoFila(settore, fila));
+				}
+				this.aggiornaMassimoSettore(settore);
+			}
+		}
+	}
+
+	/**
+	 * Cerca n posti liberi contigui nella stessa fila, esaminando prima i
+	 * settori preferiti nell'ordine indicato e poi tutti gli altri. Se nessuna
+	 * fila ha n posti liberi contigui e la divisione e' ammessa, restituisce i
+	 * posti liberi del primo settore che li distribuisce sul minor numero di
+	 * file consecutive.
+	 * 
+	 * Il risultato non occupa i posti: un altro thread puo' occuparli prima
+	 * che vengano prenotati o acquistati.
+	 * 
+	 * @param n
+	 *            Il numero di posti.
+	 * @param settoriPreferiti
+	 *            Le posizioni dei settori preferiti, in ordine di preferenza.
+	 * @param fileAnteriori
+	 *            true per preferire le prime file del settore, false per
+	 *            preferire le ultime.
+	 * @param divisibile
+	 *            true se i posti possono essere divisi su piu' file.
+	 * @return Le posizioni dei posti in ordine crescente, oppure {@code null}
+	 *         se non ci sono abbastanza posti liberi.
+	 * @author Maurizio Casciano
+	 */
+	int[] cerca(int n, int[] settoriPreferiti, boolean fileAnteriori, boolean divisibile) {
+		int[] ordineSettori = this.getOrdineSettori(settoriPreferiti);
+
+		if (n <= this.postiPerFila) {
+			for (int settore : ordineSettori) {
+				if (this.massimiSettori.get(settore) >= n) {
+					int[] posti = this.cercaNelSettore(settore, n, fileAnteriori);
+
+					if (posti != null) {
+						return posti;
+					}
+				}
+			}
+		}
+
+		if (divisibile) {
+			for (int settore : ordineSettori) {
+				if (this.statoPosti.contaNelSettore(settore, SeatStatus.LIBERO) >= n) {
+					int[] posti = this.dividiNelSettore(settore, n, fileAnteriori);
+
+					if (posti != null) {
+						return posti;
+					}
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Restituisce i settori preferiti seguiti da tutti gli altri.
+	 */
+	private int[] getOrdineSettori(int[] settoriPreferiti) {
+		int[] ordine = new int[DivisibleIntoSectors.NUMERO_SETTORI];
+		boolean[] inseriti = new boolean[DivisibleIntoSectors.NUMERO_SETTORI];
+		int dimensione = 0;
+
+		for (int settore : settoriPreferiti) {
+			if (settore >= 0 && settore < ordine.length && !inseriti[settore]) {
+				inseriti[settore] = true;
+				ordine[dimensione++] = settore;
+			}
+		}
+
+		for (int settore = 0; settore < ordine.length; settore++) {
+			if (!inseriti[settore]) {
+				ordine[dimensione++] = settore;
+			}
+		}
+		return ordine;
+	}
+
+	/**
+	 * Cerca nelle file del settore la sequenza di posti liberi piu' corta
+	 * tra quelle di almeno n posti, nella prima fila che ne contiene una.
+	 */
+	private int[] cercaNelSettore(int settore, int n, boolean fileAnteriori) {
+		for (int i = 0; i < this.filePerSettore; i++) {
+			int fila = fileAnteriori ? i : this.filePerSettore - 1 - i;
+
+			if (this.massimiFile.get(settore * this.filePerSettore + fila) < n) {
+				continue;
+			}
+
+			int[] migliore = null;
+
+			for (int[] sequenza : this.getSequenze(settore, fila)) {
+				if (sequenza[1] >= n && (migliore == null || sequenza[1] < migliore[1])) {
+					migliore = sequenza;
+				}
+			}
+
+			if (migliore != null) {
+				int[] posti = new int[n];
+
+				for (int j = 0; j < n; j++) {
+					posti[j] = migliore[0] + j;
+				}
+				return posti;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Distribuisce n posti liberi sul minor numero di file consecutive del
+	 * settore, usando in ogni fila le sequenze piu' lunghe.
+	 */
+	private int[] dividiNelSettore(int settore, int n, boolean fileAnteriori) {
+		ArrayList<ArrayList<int[]>> sequenze = new ArrayList<>();
+		int[] liberiPerFila = new int[this.filePerSettore];
+
+		for (int fila = 0; fila < this.filePerSettore; fila++) {
+			ArrayList<int[]> sequenzeFila = this.getSequenze(settore, fila);
+
+			for (int[] sequenza : sequenzeFila) {
+				liberiPerFila[fila] += sequenza[1];
+			}
+			sequenze.add(sequenzeFila);
+		}
+
+		int primaFila = -1;
+		int ultimaFila = -1;
+
+		for (int i = 0; i < this.filePerSettore; i++) {
+			int inizio = fileAnteriori ? i : this.filePerSettore - 1 - i;
+			int liberi = 0;
+			int fine = inizio;
+
+			while (fine < this.filePerSettore && liberi + liberiPerFila[fine] < n) {
+				liberi += liberiPerFila[fine++];
+			}
+
+			if (fine < this.filePerSettore && (primaFila == -1 || fine - inizio < ultimaFila - primaFila)) {
+				primaFila = inizio;
+				ultimaFila = fine;
+			}
+		}
+
+		if (primaFila == -1) {
+			return null;
+		}
+
+		int[] posti = new int[n];
+		int trovati = 0;
+
+		for (int fila = primaFila; fila <= ultimaFila; fila++) {
+			ArrayList<int[]> sequenzeFila = sequenze.get(fila);
+
+			Collections.sort(sequenzeFila, new Comparator<int[]>() {
+
+				@Override
+				public int compare(int[] s1, int[] s2) {
+					return Integer.compare(s2[1], s1[1]);
+				}
+			});
+
+			for (int[] sequenza : sequenzeFila) {
+				for (int j = 0; j < sequenza[1] && trovati < n; j++) {
+					posti[trovati++] = sequenza[0] + j;
+				}
+			}
+		}
+
+		Arrays.sort(posti);
+		return posti;
+	}
+
+	/**
+	 * Restituisce le sequenze di posti liberi della fila come coppie
+	 * {posizione del primo posto, lunghezza}.
+	 */
+	private ArrayList<int[]> getSequenze(int settore, int fila) {
+		ArrayList<int[]> sequenze = new ArrayList<>();
+		int primo = settore * this.postiPerSettore + fila * this.postiPerFila;
+		int ultimo = primo + this.getLunghezzaFila(fila);
+		int inizio = -1;
+
+		for (int indice = primo; indice <= ultimo; indice++) {
+			boolean libero = indice < ultimo && this.statoPosti.getStato(indice) == SeatStatus.LIBERO;
+
+			if (libero && inizio == -1) {
+				inizio = indice;
+			} else if (!libero && inizio != -1) {
+				sequenze.add(new int[] { inizio, indice - inizio });
+				inizio = -1;
+			}
+		}
+		return sequenze;
+	}
+
+	private int calcolaMassimoFila(int settore, int fila) {
+		int massimo = 0;
+
+		for (int[] sequenza : this.getSequenze(settore, fila)) {
+			massimo = Math.max(massimo, sequenza[1]);
+		}
+		return massimo;
+	}
+
+	private void aggiornaMassimoSettore(int settore) {
+		int massimo = 0;
+
+		for (int fila = 0; fila < this.filePerSettore; fila++) {
+			massimo = Math.max(massimo, this.massimiFile.get(settore * this.filePerSettore + fila));
+		}
+		this.massimiSettori.set(settore, massimo);
+	}
+
+	/**
+	 * L'ultima fila di un settore puo' avere meno posti delle altre.
+	 */
+	private int getLunghezzaFila(int fila) {
+		return Math.min(this.postiPerFila, this.postiPerSettore - fila * this.postiPerFila);
+	}
+
+	private final StatoPosti statoPosti;
+	private final int postiPerSettore;
+	private final int postiPerFila;
+	private final int filePerSettore;
+	private final AtomicIntegerArray massimiFile;
+	private final AtomicIntegerArray massimiSettori;
+	private final Object[] lockSettori;
+}
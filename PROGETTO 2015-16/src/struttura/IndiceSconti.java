@@ -0,0 +1,338 @@
+package struttura;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Indice delle politiche di sconto per destinatario (partita, stadio o giorno
+ * della settimana) e per periodo di validita'. Per ogni destinatario gli
+ * sconti sono memorizzati in un albero di intervalli, per cui la ricerca
+ * degli sconti validi in una data esamina soltanto quelli che la contengono,
+ * oltre ad un numero logaritmico di nodi.
+ * 
+ * L'indice non viene modificato dopo la costruzione: quando cambiano gli
+ * sconti se ne costruisce uno nuovo. Le partite sono distinte per identita',
+ * gli stadi per nome a meno di maiuscole e minuscole, come in
+ * {@link Stadio#equals(Object)}. Stadio e data della partita sono letti al
+ * momento della ricerca, per cui possono cambiare senza ricostruire l'indice.
+ * 
+ * Per ogni partita l'indice ricorda inoltre lo sconto massimo dell'ultima
+ * ricerca, insieme al periodo in cui gli sconti validi restano gli stessi:
+ * le ricerche successive in quel periodo non esaminano gli sconti.
+ * 
+ * @author Maurizio Casciano
+ */
+class IndiceSconti {
+
+	/**
+	 * Costruisce l'indice delle politiche di sconto.
+	 * 
+	 * @param sconti
+	 *            - Le politiche di sconto da indicizzare.
+	 * @author Maurizio Casciano
+	 */
+	IndiceSconti(List<Sconto> sconti) {
+		IdentityHashMap<Partita, ArrayList<Sconto>> scontiPartite = new IdentityHashMap<>();
+		HashMap<String, ArrayList<Sconto>> scontiStadi = new HashMap<>();
+		EnumMap<DaysOfWeek, ArrayList<Sconto>> scontiGiorni = new EnumMap<>(DaysOfWeek.class);
+
+		for (Sconto sconto : sconti) {
+			/* Uno sconto che termina prima di iniziare non e' mai valido */
+			if (sconto.getFineValidita().before(sconto.getInizioValidita())) {
+				continue;
+			}
+
+			if (sconto.getPartita() != null) {
+				aggiungi(scontiPartite, sconto.getPartita(), sconto);
+			}
+
+			if (sconto.getStadio() != null) {
+				aggiungi(scontiStadi, StrutturaSportiva.normalizzaNome(sconto.getStadio().getNome()), sconto);
+			}
+
+			if (sconto.getGiornoSettimana() != null) {
+				aggiungi(scontiGiorni, sconto.getGiornoSettimana(), sconto);
+			}
+		}
+
+		this.perPartita = new IdentityHashMap<>();
+		for (Map.Entry<Partita, ArrayList<Sconto>> e : scontiPartite.entrySet()) {
+			this.perPartita.put(e.getKey(), new Destinatario(e.getValue()));
+		}
+
+		this.perStadio = new HashMap<>();
+		for (Map.Entry<String, ArrayList<Sconto>> e : scontiStadi.entrySet()) {
+			this.perStadio.put(e.getKey(), new Destinatario(e.getValue()));
+		}
+
+		this.perGiorno = new EnumMap<>(DaysOfWeek.class);
+		for (Map.Entry<DaysOfWeek, ArrayList<Sconto>> e : scontiGiorni.entrySet()) {
+			this.perGiorno.put(e.getKey(), new Destinatario(e.getValue()));
+		}
+		this.numeroSconti = sconti.size();
+		this.scontiMassimi = new IdentityHashMap<>();
+	}
+
+	/**
+	 * Restituisce la percentuale dello sconto piu' alto valido per una
+	 * partita in una data, tra quelli sulla partita, sul suo stadio e sul
+	 * giorno della settimana in cui si gioca.
+	 * 
+	 * @param partita
+	 *            - La partita.
+	 * @param data
+	 *            - La data in cui deve valere lo sconto.
+	 * @return La percentuale di sconto, 0 se non ci sono sconti validi.
+	 * @author Maurizio Casciano
+	 */
+	double getScontoMassimo(Partita partita, GregorianCalendar data) {
+		long istante = data.getTimeInMillis();
+		Stadio stadio = partita.getStadio();
+		long dataPartita = partita.getData().getTimeInMillis();
+
+		synchronized (this.scontiMassimi) {
+			ScontoMassimo memorizzato = this.scontiMassimi.get(partita);
+
+			if (memorizzato != null && memorizzato.valeFino > istante && memorizzato.valeDa <= istante
+					&& memorizzato.stadio == stadio && memorizzato.dataPartita == dataPartita) {
+				return memorizzato.percentuale;
+			}
+		}
+
+		Destinatario[] destinatari = this.getDestinatari(partita);
+		ArrayList<Sconto> applicabili = new ArrayList<>();
+		long valeDa = Long.MIN_VALUE;
+		long valeFino = Long.MAX_VALUE;
+
+		for (Destinatario destinatario : destinatari) {
+			if (destinatario != null) {
+				destinatario.albero.cerca(istante, applicabili);
+				valeDa = Math.max(valeDa, destinatario.confinePrecedente(istante));
+				valeFino = Math.min(valeFino, destinatario.confineSuccessivo(istante));
+			}
+		}
+
+		double percentuale = 0.00;
+
+		for (Sconto sconto : applicabili) {
+			if (percentuale <= sconto.getPercetualeSconto()) {
+				percentuale = sconto.getPercetualeSconto();
+			}
+		}
+
+		synchronized (this.scontiMassimi) {
+			this.scontiMassimi.put(partita, new ScontoMassimo(valeDa, valeFino, stadio, dataPartita, percentuale));
+		}
+		return percentuale;
+	}
+
+	/**
+	 * Gli sconti sulla partita, sul suo stadio e sul giorno della settimana.
+	 */
+	private Destinatario[] getDestinatari(Partita partita) {
+		return new Destinatario[] { this.perPartita.get(partita),
+				this.perStadio.get(StrutturaSportiva.normalizzaNome(partita.getStadio().getNome())),
+				this.perGiorno.get(DaysOfWeek.findDay(partita.getData().get(Calendar.DAY_OF_WEEK))) };
+	}
+
+	/**
+	 * Restituisce il numero di sconti indicizzati.
+	 * 
+	 * @return Il numero di sconti.
+	 * @author Maurizio Casciano
+	 */
+	int size() {
+		return this.numeroSconti;
+	}
+
+	private static <K> void aggiungi(Map<K, ArrayList<Sconto>> sconti, K chiave, Sconto sconto) {
+		ArrayList<Sconto> elenco = sconti.get(chiave);
+
+		if (elenco == null) {
+			elenco = new ArrayList<>();
+			sconti.put(chiave, elenco);
+		}
+		elenco.add(sconto);
+	}
+
+	/**
+	 * Gli sconti di un destinatario, con gli istanti in cui cambia l'insieme
+	 * di quelli validi: l'inizio di ogni periodo di validita' e l'istante
+	 * successivo alla sua fine.
+	 */
+	private static class Destinatario {
+
+		Destinatario(List<Sconto> sconti) {
+			long[] istanti = new long[sconti.size() * 2];
+
+			for (int i = 0; i < sconti.size(); i++) {
+				istanti[2 * i] = sconti.get(i).getInizioValidita().getTimeInMillis();
+				istanti[2 * i + 1] = sconti.get(i).getFineValidita().getTimeInMillis() + 1;
+			}
+			Arrays.sort(istanti);
+
+			this.albero = new AlberoIntervalli(sconti);
+			this.confini = istanti;
+		}
+
+		/**
+		 * L'ultimo confine non successivo all'istante.
+		 */
+		long confinePrecedente(long istante) {
+			int i = Arrays.binarySearch(this.confini, istante);
+
+			if (i >= 0) {
+				return istante;
+			}
+			i = -i - 2;
+			return i < 0 ? Long.MIN_VALUE : this.confini[i];
+		}
+
+		/**
+		 * Il primo confine successivo all'istante.
+		 */
+		long confineSuccessivo(long istante) {
+			int i = Arrays.binarySearch(this.confini, istante);
+
+			if (i >= 0) {
+				/* I confini possono ripetersi */
+				while (i < this.confini.length && this.confini[i] == istante) {
+					i++;
+				}
+			} else {
+				i = -i - 1;
+			}
+			return i == this.confini.length ? Long.MAX_VALUE : this.confini[i];
+		}
+
+		private final AlberoIntervalli albero;
+		private final long[] confini;
+	}
+
+	/**
+	 * Lo sconto massimo di una partita, valido nel periodo [valeDa, valeFino)
+	 * finche' non cambiano stadio e data della partita.
+	 */
+	private static class ScontoMassimo {
+
+		ScontoMassimo(long valeDa, long valeFino, Stadio stadio, long dataPartita, double percentuale) {
+			this.valeDa = valeDa;
+			this.valeFino = valeFino;
+			this.stadio = stadio;
+			this.dataPartita = dataPartita;
+			this.percentuale = percentuale;
+		}
+
+		private final long valeDa;
+		private final long valeFino;
+		private final Stadio stadio;
+		private final long dataPartita;
+		private final double percentuale;
+	}
+
+	/**
+	 * Albero di intervalli centrato sui periodi di validita' degli sconti.
+	 * Ogni nodo contiene gli intervalli che comprendono il suo centro,
+	 * ordinati per inizio e per fine, mentre i sottoalberi contengono quelli
+	 * che terminano prima o iniziano dopo il centro.
+	 */
+	private static class AlberoIntervalli {
+
+		AlberoIntervalli(List<Sconto> sconti) {
+			long[] estremi = new long[sconti.size() * 2];
+
+			for (int i = 0; i < sconti.size(); i++) {
+				estremi[2 * i] = inizio(sconti.get(i));
+				estremi[2 * i + 1] = fine(sconti.get(i));
+			}
+			Arrays.sort(estremi);
+			this.centro = estremi[estremi.length / 2];
+
+			ArrayList<Sconto> prima = new ArrayList<>();
+			ArrayList<Sconto> dopo = new ArrayList<>();
+			this.perInizio = new ArrayList<>();
+
+			for (Sconto sconto : sconti) {
+				if (fine(sconto) < this.centro) {
+					prima.add(sconto);
+				} else if (inizio(sconto) > this.centro) {
+					dopo.add(sconto);
+				} else {
+					this.perInizio.add(sconto);
+				}
+			}
+
+			this.perFine = new ArrayList<>(this.perInizio);
+			Collections.sort(this.perInizio, new Comparator<Sconto>() {
+
+				@Override
+				public int compare(Sconto s1, Sconto s2) {
+					return Long.compare(inizio(s1), inizio(s2));
+				}
+			});
+			Collections.sort(this.perFine, new Comparator<Sconto>() {
+
+				@Override
+				public int compare(Sconto s1, Sconto s2) {
+					return Long.compare(fine(s2), fine(s1));
+				}
+			});
+
+			this.sinistro = prima.isEmpty() ? null : new AlberoIntervalli(prima);
+			this.destro = dopo.isEmpty() ? null : new AlberoIntervalli(dopo);
+		}
+
+		void cerca(long istante, ArrayList<Sconto> risultato) {
+			AlberoIntervalli nodo = this;
+
+			while (nodo != null) {
+				if (istante < nodo.centro) {
+					for (Sconto sconto : nodo.perInizio) {
+						if (inizio(sconto) > istante) {
+							break;
+						}
+						risultato.add(sconto);
+					}
+					nodo = nodo.sinistro;
+				} else {
+					for (Sconto sconto : nodo.perFine) {
+						if (fine(sconto) < istante) {
+							break;
+						}
+						risultato.add(sconto);
+					}
+					nodo = istante > nodo.centro ? nodo.destro : null;
+				}
+			}
+		}
+
+		private static long inizio(Sconto sconto) {
+			return sconto.getInizioValidita().getTimeInMillis();
+		}
+
+		private static long fine(Sconto sconto) {
+			return sconto.getFineValidita().getTimeInMillis();
+		}
+
+		private final long centro;
+		private final ArrayList<Sconto> perInizio;
+		private final ArrayList<Sconto> perFine;
+		private final AlberoIntervalli sinistro;
+		private final AlberoIntervalli destro;
+	}
+
+	private final IdentityHashMap<Partita, Destinatario> perPartita;
+	private final HashMap<String, Destinatario> perStadio;
+	private final EnumMap<DaysOfWeek, Destinatario> perGiorno;
+	private final int numeroSconti;
+	private final IdentityHashMap<Partita, ScontoMassimo> scontiMassimi;
+}
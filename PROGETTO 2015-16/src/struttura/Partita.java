@@ -1,13 +1,24 @@
 package struttura;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.GregorianCalendar;
+import java.util.concurrent.atomic.AtomicLong;
+
+import graphics.stadium.DivisibleIntoSectors;
 
 /**
  * Classe che modella una partita di calcio
  * 
+ * Ogni partita ha un identificativo numerico assegnato alla creazione e
+ * salvato insieme alla partita, su cui si basano {@link #equals(Object)} e
+ * {@link #hashCode()}: squadre, stadio e data possono essere modificati
+ * anche dopo l'inserimento nella {@link StrutturaSportiva}.
+ * 
  * @author Maurizio Casciano
  * @author Gaetano Antonucci
  */
@@ -29,13 +40,15 @@ public class Partita implements Serializable {
 	 * @author Maurizio Casciano
 	 */
 	public Partita(Squadra squadraInCasa, Squadra squadraInTrasferta, Stadio stadio, GregorianCalendar data) {
+		this.id = nuovoId(0);
 		this.squadraInCasa = squadraInCasa;
 		this.squadraInTrasferta = squadraInTrasferta;
 		this.stadio = stadio;
 		this.data = data;
 
-		/* ArrayList per salvare lo stato dei posti */
-		this.settori = this.stadio.getCopyOfSettori();
+		/* Stato dei posti, i settori vengono creati solo quando richiesti */
+		this.disposizionePosti = this.stadio.getDisposizionePosti();
+		this.statoPosti = new StatoPosti(this.disposizionePosti);
 	}
 
 	/**
@@ -46,20 +59,280 @@ public class Partita implements Serializable {
 	 * @author Maurizio Casciano
 	 */
 	public Partita() {
+		this(0);
+	}
+
+	/**
+	 * Crea una nuova partita con valori di default e l'identificativo
+	 * indicato, usata per ripristinare una partita salvata prima di
+	 * impostarne squadre, stadio e data.
+	 * 
+	 * @param id
+	 *            - L'identificativo della partita, oppure 0 per assegnarne
+	 *            uno nuovo.
+	 * @author Maurizio Casciano
+	 */
+	public Partita(long id) {
+		this.id = nuovoId(id);
 		this.squadraInCasa = new Squadra("-");
 		this.squadraInTrasferta = new Squadra("-");
 		this.stadio = new Stadio("-", Stadio.CAPIENZA_MINIMA, Stadio.PREZZO_MINIMO);
 		this.data = new GregorianCalendar();
-		this.settori = this.stadio.getCopyOfSettori();
+		this.disposizionePosti = this.stadio.getDisposizionePosti();
+		this.statoPosti = new StatoPosti(this.disposizionePosti);
+	}
+
+	private Partita(long id, Squadra squadraInCasa, Squadra squadraInTrasferta, Stadio stadio,
+			GregorianCalendar data, DisposizionePosti disposizionePosti, StatoPosti statoPosti,
+			SorgentePosti sorgentePosti) {
+		this.id = nuovoId(id);
+		this.squadraInCasa = squadraInCasa;
+		this.squadraInTrasferta = squadraInTrasferta;
+		this.stadio = stadio;
+		this.data = data;
+		this.disposizionePosti = disposizionePosti;
+		this.statoPosti = statoPosti;
+		this.sorgentePosti = sorgentePosti;
 	}
 
 	/**
-	 * Restituisce i settori dello stadio per questa partita.
+	 * Ripristina una partita salvata su file insieme allo stato dei suoi
+	 * posti. I settori possono differire da quelli attuali dello stadio, se
+	 * la capienza e' stata modificata dopo la creazione della partita.
+	 * 
+	 * @param id
+	 *            - l'identificativo della partita, oppure 0 per assegnarne uno
+	 *            nuovo (file salvati prima degli identificativi)
+	 * @param squadraInCasa
+	 *            - la {@link Squadra} che gioca in Casa
+	 * @param squadraInTrasferta
+	 *            - la {@link Squadra} che gioca in Trasferta
+	 * @param stadio
+	 *            - lo {@link Stadio} in cui sara' giocata la partita
+	 * @param data
+	 *            - la data in cui sara' disputata la partita
+	 * @param postiPerSettore
+	 *            - il numero di posti per settore della partita
+	 * @param statoPosti
+	 *            - lo stato dei posti della partita
+	 * @return la partita ripristinata
+	 * @author Maurizio Casciano
+	 */
+	public static Partita ripristina(long id, Squadra squadraInCasa, Squadra squadraInTrasferta, Stadio stadio,
+			GregorianCalendar data, int postiPerSettore, StatoPosti statoPosti) {
+		return new Partita(id, squadraInCasa, squadraInTrasferta, stadio, data,
+				DisposizionePosti.get(postiPerSettore), statoPosti, null);
+	}
+
+	/**
+	 * Ripristina una partita salvata su file, il cui stato dei posti sara'
+	 * caricato dalla sorgente indicata soltanto al primo accesso ai settori.
+	 * 
+	 * @param id
+	 *            - l'identificativo della partita, oppure 0 per assegnarne uno
+	 *            nuovo (file salvati prima degli identificativi)
+	 * @param squadraInCasa
+	 *            - la {@link Squadra} che gioca in Casa
+	 * @param squadraInTrasferta
+	 *            - la {@link Squadra} che gioca in Trasferta
+	 * @param stadio
+	 *            - lo {@link Stadio} in cui sara' giocata la partita
+	 * @param data
+	 *            - la data in cui sara' disputata la partita
+	 * @param sorgentePosti
+	 *            - la sorgente da cui caricare lo stato dei posti
+	 * @return la partita ripristinata
+	 * @author Maurizio Casciano
+	 */
+	public static Partita ripristina(long id, Squadra squadraInCasa, Squadra squadraInTrasferta, Stadio stadio,
+			GregorianCalendar data, SorgentePosti sorgentePosti) {
+		return new Partita(id, squadraInCasa, squadraInTrasferta, stadio, data,
+				DisposizionePosti.get(sorgentePosti.getPostiPerSettore()), null, sorgentePosti);
+	}
+
+	/**
+	 * Restituisce l'identificativo della partita, che non cambia quando la
+	 * partita viene modificata e viene salvato insieme ad essa.
+	 * 
+	 * @return L'identificativo della partita.
+	 * @author Maurizio Casciano
+	 */
+	public long getId() {
+		return this.id;
+	}
+
+	/**
+	 * Restituisce l'identificativo da assegnare ad una partita: quello
+	 * passato in input, se diverso da 0, altrimenti uno nuovo. Gli
+	 * identificativi assegnati in seguito sono sempre maggiori di quelli delle
+	 * partite ripristinate.
+	 */
+	private static long nuovoId(long id) {
+		if (id == 0) {
+			return ULTIMO_ID.incrementAndGet();
+		}
+
+		long ultimo = ULTIMO_ID.get();
+		while (ultimo < id && !ULTIMO_ID.compareAndSet(ultimo, id)) {
+			ultimo = ULTIMO_ID.get();
+		}
+		return id;
+	}
+
+	/**
+	 * Restituisce i settori dello stadio per questa partita, creati al primo
+	 * accesso a partire dalla disposizione dei posti. Se la partita e' stata
+	 * ripristinata da file, lo stato dei posti viene caricato al primo
+	 * accesso.
 	 * 
 	 * @return l'ArrayList contenente i settori dello stadio per questa partita
 	 */
 	public ArrayList<Settore> getSettori() {
-		return this.settori;
+		ArrayList<Settore> settori = this.settori;
+
+		if (settori == null) {
+			synchronized (this) {
+				if (this.settori == null) {
+					this.settori = this.disposizionePosti.creaSettori(this.stadio, this.getStatoPosti());
+				}
+				settori = this.settori;
+			}
+		}
+		return settori;
+	}
+
+	/**
+	 * Restituisce lo stato di tutti i posti della partita, su cui sono
+	 * definiti i posti dei settori. Se la partita e' stata ripristinata da
+	 * file, lo stato dei posti viene caricato al primo accesso; in seguito
+	 * viene restituito senza acquisire il monitor della partita.
+	 * 
+	 * @return lo stato dei posti della partita
+	 * @author Maurizio Casciano
+	 */
+	public StatoPosti getStatoPosti() {
+		StatoPosti statoPosti = this.statoPosti;
+
+		if (statoPosti == null) {
+			synchronized (this) {
+				if (this.statoPosti == null) {
+					this.statoPosti = this.sorgentePosti.caricaStatoPosti();
+					this.sorgentePosti = null;
+				}
+				statoPosti = this.statoPosti;
+			}
+		}
+		return statoPosti;
+	}
+
+	/**
+	 * Restituisce la disposizione dei posti della partita, senza caricare lo
+	 * stato dei posti. Puo' differire da quella attuale dello stadio se la
+	 * capienza e' stata modificata dopo la creazione della partita.
+	 * 
+	 * @return la disposizione dei posti della partita
+	 * @author Maurizio Casciano
+	 */
+	public DisposizionePosti getDisposizionePosti() {
+		return this.disposizionePosti;
+	}
+
+	/**
+	 * Restituisce la sorgente da cui saranno caricati i posti della partita.
+	 * 
+	 * @return la sorgente dei posti, oppure {@code null} se i posti sono gia'
+	 *         stati caricati.
+	 * @author Maurizio Casciano
+	 */
+	public synchronized SorgentePosti getSorgentePosti() {
+		return this.sorgentePosti;
+	}
+
+	/**
+	 * Restituisce il settore in posizione indice, senza creare i settori e
+	 * caricare lo stato dei posti se non necessario: finche' la disposizione
+	 * dei posti coincide con quella dello stadio viene restituito il settore
+	 * dello stadio, uguale (secondo {@link Settore#equals(Object)}) a quello
+	 * della partita.
+	 * 
+	 * @param indice
+	 *            la posizione del settore.
+	 * @return il settore in posizione indice.
+	 * @author Maurizio Casciano
+	 */
+	public Settore getSettore(int indice) {
+		if (this.isDisposizioneDelloStadio()) {
+			return this.stadio.getSettori().get(indice);
+		}
+		return this.getSettori().get(indice);
+	}
+
+	/**
+	 * Restituisce la posizione del settore passato in input, senza creare i
+	 * settori e caricare lo stato dei posti se non necessario. La posizione
+	 * viene ricavata direttamente dal settore e verificata, senza acquisire
+	 * il monitor della partita, con gli stessi campi confrontati da
+	 * {@link Settore#equals(Object)} letti dalla disposizione dei posti; i
+	 * settori che non la conoscono vengono cercati tra tutti i settori della
+	 * partita.
+	 * 
+	 * @param settore
+	 *            il settore da cercare.
+	 * @return la posizione del settore, oppure -1 se non appartiene alla
+	 *         partita.
+	 * @author Maurizio Casciano
+	 */
+	public int indiceSettore(Settore settore) {
+		return this.indiceSettore(settore, this.disposizionePosti);
+	}
+
+	private int indiceSettore(Settore settore, DisposizionePosti disposizione) {
+		int indice = settore.getIndiceSettore();
+
+		if (indice >= 0 && indice < DivisibleIntoSectors.NUMERO_SETTORI
+				&& settore.getNumeroPosti() == disposizione.getPostiPerSettore()
+				&& settore.getNumeroFile() == disposizione.getNumeroFilePerSettore()
+				&& settore.getNomeSettore().equals(disposizione.getNomeSettore(indice))
+				&& settore.getStadio().equals(this.stadio)) {
+			return indice;
+		}
+		return this.cercaSettore(settore);
+	}
+
+	private int cercaSettore(Settore settore) {
+		if (this.isDisposizioneDelloStadio()) {
+			return this.stadio.getSettori().indexOf(settore);
+		}
+		return this.getSettori().indexOf(settore);
+	}
+
+	/**
+	 * Restituisce la posizione, nello stato dei posti della partita, del posto
+	 * passato in input, ad esempio il posto memorizzato in un
+	 * {@link Biglietto}: {@code indiceSettore * postiPerSettore + numeroPosto
+	 * - 1}.
+	 * 
+	 * @param posto
+	 *            il posto da cercare.
+	 * @return la posizione del posto, oppure -1 se il posto non appartiene
+	 *         alla partita.
+	 * @author Maurizio Casciano
+	 */
+	public int indicePosto(Posto posto) {
+		DisposizionePosti disposizione = this.disposizionePosti;
+		int indiceSettore = this.indiceSettore(posto.getSettore(), disposizione);
+		int postiPerSettore = disposizione.getPostiPerSettore();
+		int indice = posto.getNumeroPosto() - 1;
+
+		if (indiceSettore == -1 || indice < 0 || indice >= postiPerSettore
+				|| posto.getNumeroFila() != disposizione.getNumeroFila(indice)) {
+			return -1;
+		}
+		return indiceSettore * postiPerSettore + indice;
+	}
+
+	private boolean isDisposizioneDelloStadio() {
+		return this.settori == null && this.disposizionePosti == this.stadio.getDisposizionePosti();
 	}
 
 	/**
@@ -74,20 +347,109 @@ public class Partita implements Serializable {
 	 * @author Maurizio Casciano
 	 */
 	public void resetSeatStatus(Prenotazione prenotazione, SeatStatus newSeatStaus) {
-		Posto posto = prenotazione.getPosto();
-		Settore settore = posto.getSettore();
-
-		for (Settore s : this.settori) {
-			if (s.equals(settore)) {
-				for (Posto p : s.getPosti()) {
-					if (p.equals(posto)) {
-						p.setStato(newSeatStaus);
-						break;
-					}
-				}
-				break;
-			}
+		int indice = this.indicePosto(prenotazione.getPosto());
+
+		if (indice != -1) {
+			this.getStatoPosti().setStato(indice, newSeatStaus);
+		}
+	}
+
+	/**
+	 * Restituisce il numero di posti della partita nello stato indicato. I
+	 * conteggi sono aggiornati ad ogni cambiamento di stato di un posto,
+	 * quindi il costo non dipende dalla capienza dello stadio.
+	 * 
+	 * @param stato
+	 *            Lo stato dei posti da contare.
+	 * @return Il numero di posti nello stato indicato.
+	 * @author Maurizio Casciano
+	 */
+	public int contaPosti(SeatStatus stato) {
+		return this.getStatoPosti().conta(stato);
+	}
+
+	/**
+	 * Cerca n posti liberi vicini secondo le preferenze indicate: n posti
+	 * contigui nella stessa fila oppure, se non ce ne sono e le preferenze lo
+	 * ammettono, n posti dello stesso settore sul minor numero di file
+	 * consecutive. I posti non vengono occupati.
+	 * 
+	 * @param n
+	 *            Il numero di posti.
+	 * @param preferenze
+	 *            Le preferenze del cliente.
+	 * @return I posti trovati, oppure {@code null} se non ci sono abbastanza
+	 *         posti liberi.
+	 * @author Maurizio Casciano
+	 */
+	public ArrayList<Posto> cercaPostiContigui(int n, PreferenzePosti preferenze) {
+		ArrayList<Settore> settoriPreferiti = preferenze.getSettoriPreferiti();
+		int[] indiciSettori = new int[settoriPreferiti.size()];
+
+		for (int i = 0; i < indiciSettori.length; i++) {
+			indiciSettori[i] = this.indiceSettore(settoriPreferiti.get(i));
+		}
+
+		int[] indici = this.getStatoPosti().cercaPostiContigui(n, indiciSettori, preferenze.isFileAnteriori(),
+				preferenze.isDivisibile());
+
+		if (indici == null) {
+			return null;
+		}
+
+		ArrayList<Settore> settori = this.getSettori();
+		int postiPerSettore = this.disposizionePosti.getPostiPerSettore();
+		ArrayList<Posto> posti = new ArrayList<>();
+
+		for (int indice : indici) {
+			posti.add(settori.get(indice / postiPerSettore).getPosto(indice % postiPerSettore));
 		}
+		return posti;
+	}
+
+	/**
+	 * Verifica se tutti i posti della partita sono prenotati o venduti.
+	 * 
+	 * @return true se non ci sono posti liberi, false altrimenti.
+	 * @author Maurizio Casciano
+	 */
+	public boolean isEsaurita() {
+		return this.contaPosti(SeatStatus.LIBERO) == 0;
+	}
+
+	/**
+	 * Restituisce il {@link Posto} di questa partita corrispondente al posto
+	 * passato in input, ad esempio il posto memorizzato in un
+	 * {@link Biglietto}.
+	 * 
+	 * @param posto
+	 *            Il posto da cercare.
+	 * @return Il posto di questa partita, oppure {@code null} se il posto non
+	 *         appartiene allo stadio della partita.
+	 * @author Maurizio Casciano
+	 */
+	public Posto cercaPosto(Posto posto) {
+		int indice = this.indicePosto(posto);
+
+		if (indice == -1) {
+			return null;
+		}
+		return this.getPosto(indice);
+	}
+
+	/**
+	 * Restituisce il {@link Posto} di questa partita nella posizione indicata
+	 * dello stato dei posti, ad esempio quella restituita da
+	 * {@link #indicePosto(Posto)}.
+	 * 
+	 * @param indice
+	 *            La posizione del posto.
+	 * @return Il posto di questa partita.
+	 * @author Maurizio Casciano
+	 */
+	public Posto getPosto(int indice) {
+		int postiPerSettore = this.disposizionePosti.getPostiPerSettore();
+		return this.getSettori().get(indice / postiPerSettore).getPosto(indice % postiPerSettore);
 	}
 
 	/**
@@ -151,10 +513,13 @@ public class Partita implements Serializable {
 	 *            - Lo stadio in cui sara' disputata la partita.
 	 * @author Maurizio Casciano
 	 */
-	public void setStadio(Stadio stadio) {
+	public synchronized void setStadio(Stadio stadio) {
 		if (stadio != null) {
 			this.stadio = stadio;
-			this.settori = this.stadio.getCopyOfSettori();
+			this.disposizionePosti = this.stadio.getDisposizionePosti();
+			this.statoPosti = new StatoPosti(this.disposizionePosti);
+			this.settori = null;
+			this.sorgentePosti = null;
 		}
 	}
 
@@ -197,18 +562,17 @@ public class Partita implements Serializable {
 
 	/**
 	 * Verifica se l'oggetto corrente e' uguale all'oggetto passato come
-	 * parametro
+	 * parametro, ossia se ha lo stesso identificativo.
 	 * 
 	 * @param obj
 	 *            - l'oggetto su cui effettuare la verifica
 	 * @return {@code true} se quest'oggetto e' uguale all'oggetto passato come
 	 *         parametro, {@code false} altrimenti
 	 * @author Gaetano Antonucci
+	 * @author Maurizio Casciano
 	 */
 	@Override
 	public boolean equals(Object obj) {
-		boolean result = false;
-
 		if (this == obj) {
 			return true;
 		}
@@ -222,21 +586,73 @@ public class Partita implements Serializable {
 
 		Partita other = (Partita) obj;
 
-		if ((this.data.equals(other.data)) && (this.squadraInCasa.equals(other.squadraInCasa))
-				&& (this.squadraInTrasferta.equals(other.squadraInTrasferta)) && (this.stadio.equals(other.stadio))) {
-			result = true;
-		}
+		return this.id == other.id;
+	}
+
+	/**
+	 * Restituisce il codice hash della partita, calcolato sull'identificativo
+	 * e coerente con {@link #equals(Object)}.
+	 * 
+	 * @return il codice hash della partita.
+	 * @author Maurizio Casciano
+	 */
+	@Override
+	public int hashCode() {
+		return Long.hashCode(this.id);
+	}
+
+	/**
+	 * Verifica se la partita passata in input si gioca tra le stesse squadre,
+	 * nello stesso stadio e alla stessa data di questa partita, a prescindere
+	 * dall'identificativo.
+	 * 
+	 * @param other
+	 *            - La partita da confrontare.
+	 * @return {@code true} se le due partite coincidono, {@code false}
+	 *         altrimenti.
+	 * @author Gaetano Antonucci
+	 * @author Maurizio Casciano
+	 */
+	public boolean stessaPartita(Partita other) {
+		return this.data.equals(other.data) && this.squadraInCasa.equals(other.squadraInCasa)
+				&& this.squadraInTrasferta.equals(other.squadraInTrasferta) && this.stadio.equals(other.stadio);
+	}
 
-		return result;
+	/**
+	 * Crea i settori prima della serializzazione, in quanto vengono
+	 * serializzati soltanto i settori con lo stato dei posti.
+	 */
+	private synchronized void writeObject(ObjectOutputStream out) throws IOException {
+		this.getSettori();
+		out.defaultWriteObject();
+	}
+
+	/**
+	 * Nelle partite salvate con le versioni precedenti ogni settore contiene i
+	 * propri posti: lo stato dei posti viene spostato in un unico
+	 * {@link StatoPosti}. Le partite salvate senza identificativo ne ricevono
+	 * uno nuovo.
+	 */
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		this.id = nuovoId(this.id);
+		Settore.spostaStatoPosti(this.settori);
+		this.statoPosti = this.settori.get(0).getStatoPosti();
+		this.disposizionePosti = DisposizionePosti.get(this.settori.get(0).getNumeroPosti());
 	}
 
+	private long id;
 	private Squadra squadraInCasa, squadraInTrasferta;
 	private Stadio stadio;
 	private GregorianCalendar data;
-	private ArrayList<Settore> settori;
+	private volatile ArrayList<Settore> settori;
+	private transient volatile DisposizionePosti disposizionePosti;
+	private transient volatile StatoPosti statoPosti;
+	private transient SorgentePosti sorgentePosti;
 
 	public static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("E  dd/MM/yyyy  HH:mm");
 
 	private static final long serialVersionUID = 1548727127680681004L;
+	private static final AtomicLong ULTIMO_ID = new AtomicLong();
 
 }
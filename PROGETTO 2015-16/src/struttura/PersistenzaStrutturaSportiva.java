@@ -0,0 +1,22 @@
+package struttura;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Interfaccia implementata dagli ascoltatori della {@link StrutturaSportiva}
+ * che rendono persistenti le modifiche ricevute, ad esempio scrivendole su
+ * disco.
+ * 
+ * @author Maurizio Casciano
+ */
+public interface PersistenzaStrutturaSportiva {
+
+	/**
+	 * Restituisce un future che viene completato quando tutte le modifiche
+	 * ricevute fino a questo momento sono state rese persistenti, oppure
+	 * completato con un'eccezione se cio' non e' stato possibile.
+	 * 
+	 * @return Il future che segnala la persistenza delle modifiche.
+	 */
+	CompletableFuture<Void> modifichePersistenti();
+}
@@ -55,6 +55,33 @@ public class Posto implements Serializable {
 		this.stato = stato;
 	}
 
+	/**
+	 * Crea un {@link Posto} che non memorizza il proprio stato, ma legge e
+	 * modifica quello memorizzato in statoPosti nella posizione indicata.
+	 * 
+	 * @param stadio
+	 *            Lo stadio a cui appartiene questo Posto.
+	 * @param settore
+	 *            Il settore a cui appartiene questo Posto.
+	 * @param numeroFila
+	 *            Il numero della fila in cui e' situato questo Posto.
+	 * @param numeroPosto
+	 *            Il numero di questo Posto.
+	 * @param statoPosti
+	 *            Lo stato dei posti della partita.
+	 * @param indice
+	 *            La posizione di questo Posto in statoPosti.
+	 * @author Maurizio Casciano
+	 */
+	Posto(Stadio stadio, Settore settore, int numeroFila, int numeroPosto, StatoPosti statoPosti, int indice) {
+		this.stadio = stadio;
+		this.settore = settore;
+		this.numeroFila = numeroFila;
+		this.numeroPosto = numeroPosto;
+		this.statoPosti = statoPosti;
+		this.indice = indice;
+	}
+
 	/**
 	 * Aggiunge un listener alla lista degli ascoltatori per il cambiamento
 	 * dello stato del posto.
@@ -65,7 +92,17 @@ public class Posto implements Serializable {
 	 * @author Maurizio
 	 */
 	public void addPropertyChangeListener(PropertyChangeListener listener) {
-		this.PROPERTY_CHANGE_SUPPORT.addPropertyChangeListener(listener);
+		if (this.statoPosti != null) {
+			this.statoPosti.addPropertyChangeListener(this.indice, listener);
+			return;
+		}
+
+		synchronized (this) {
+			if (this.propertyChangeSupport == null) {
+				this.propertyChangeSupport = new PropertyChangeSupport(this);
+			}
+		}
+		this.propertyChangeSupport.addPropertyChangeListener(listener);
 	}
 
 	/**
@@ -78,7 +115,11 @@ public class Posto implements Serializable {
 	 * @author Maurizio
 	 */
 	public void removePropertyChangeListener(PropertyChangeListener listener) {
-		this.PROPERTY_CHANGE_SUPPORT.removePropertyChangeListener(listener);
+		if (this.statoPosti != null) {
+			this.statoPosti.removePropertyChangeListener(this.indice, listener);
+		} else if (this.propertyChangeSupport != null) {
+			this.propertyChangeSupport.removePropertyChangeListener(listener);
+		}
 	}
 
 	/**
@@ -106,6 +147,9 @@ public class Posto implements Serializable {
 	 * @author Maurizio Casciano
 	 */
 	public SeatStatus getStato() {
+		if (this.statoPosti != null) {
+			return this.statoPosti.getStato(this.indice);
+		}
 		return this.stato;
 	}
 
@@ -117,9 +161,17 @@ public class Posto implements Serializable {
 	 * @author Maurizio
 	 */
 	public void setStato(SeatStatus newSeatStatus) {
+		if (this.statoPosti != null) {
+			this.statoPosti.setStato(this.indice, newSeatStatus);
+			return;
+		}
+
 		SeatStatus oldStatus = this.stato;
 		this.stato = newSeatStatus;
-		this.PROPERTY_CHANGE_SUPPORT.firePropertyChange(STATUS_PROPERTY_CHANGED, oldStatus, newSeatStatus);
+
+		if (this.propertyChangeSupport != null) {
+			this.propertyChangeSupport.firePropertyChange(STATUS_PROPERTY_CHANGED, oldStatus, newSeatStatus);
+		}
 	}
 
 	/**
@@ -152,7 +204,7 @@ public class Posto implements Serializable {
 	@Override
 	public String toString() {
 		return this.getClass().getName() + " [stadio=" + stadio.getNome() + ", settore=" + settore.getNomeSettore() + ", fila="
-				+ numeroFila + ", posto=" + numeroPosto + ", stato=" + stato + "]";
+				+ numeroFila + ", posto=" + numeroPosto + ", stato=" + this.getStato() + "]";
 	}
 
 	/**
@@ -186,12 +238,28 @@ public class Posto implements Serializable {
 		return false;
 	}
 
+	/**
+	 * Restituisce il codice hash del posto, coerente con
+	 * {@link #equals(Object)}.
+	 * 
+	 * @return il codice hash del posto.
+	 */
+	@Override
+	public int hashCode() {
+		int result = this.stadio.hashCode();
+		result = 31 * result + this.settore.hashCode();
+		result = 31 * result + this.numeroFila;
+		return 31 * result + this.numeroPosto;
+	}
+
 	private static final long serialVersionUID = 7526566854555308360L;
 	private Stadio stadio;
 	private Settore settore;
 	private int numeroFila;
 	private int numeroPosto;
 	private SeatStatus stato;
-	private String STATUS_PROPERTY_CHANGED = "stato";
-	private final PropertyChangeSupport PROPERTY_CHANGE_SUPPORT = new PropertyChangeSupport(this);;
+	private StatoPosti statoPosti;
+	private int indice;
+	private PropertyChangeSupport propertyChangeSupport;
+	static final String STATUS_PROPERTY_CHANGED = "stato";
 }
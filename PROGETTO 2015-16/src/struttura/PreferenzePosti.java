@@ -0,0 +1,97 @@
+package struttura;
+
+import java.util.ArrayList;
+
+/**
+ * Classe che modella le preferenze di un cliente nella ricerca di posti
+ * vicini per un gruppo ({@link StrutturaSportiva#findBestAvailable(Partita, int, PreferenzePosti)}).
+ * Senza preferenze vengono cercati posti nelle prime file di qualsiasi
+ * settore, eventualmente divisi su piu' file.
+ * 
+ * @author Maurizio Casciano
+ */
+public class PreferenzePosti {
+
+	/**
+	 * Crea le preferenze predefinite: nessun settore preferito, prime file,
+	 * posti divisibili su piu' file.
+	 * 
+	 * @author Maurizio Casciano
+	 */
+	public PreferenzePosti() {
+		this.settoriPreferiti = new ArrayList<>();
+		this.fileAnteriori = true;
+		this.divisibile = true;
+	}
+
+	/**
+	 * Aggiunge un settore a quelli preferiti; i settori vengono esaminati
+	 * nell'ordine in cui sono stati aggiunti.
+	 * 
+	 * @param settore
+	 *            Il settore preferito.
+	 * @author Maurizio Casciano
+	 */
+	public void addSettorePreferito(Settore settore) {
+		this.settoriPreferiti.add(settore);
+	}
+
+	/**
+	 * Restituisce i settori preferiti, in ordine di preferenza.
+	 * 
+	 * @return I settori preferiti.
+	 * @author Maurizio Casciano
+	 */
+	public ArrayList<Settore> getSettoriPreferiti() {
+		return this.settoriPreferiti;
+	}
+
+	/**
+	 * Indica se sono preferite le prime file dei settori.
+	 * 
+	 * @return true se sono preferite le prime file, false se sono preferite
+	 *         le ultime.
+	 * @author Maurizio Casciano
+	 */
+	public boolean isFileAnteriori() {
+		return this.fileAnteriori;
+	}
+
+	/**
+	 * Imposta se sono preferite le prime file dei settori.
+	 * 
+	 * @param fileAnteriori
+	 *            true per preferire le prime file, false per preferire le
+	 *            ultime.
+	 * @author Maurizio Casciano
+	 */
+	public void setFileAnteriori(boolean fileAnteriori) {
+		this.fileAnteriori = fileAnteriori;
+	}
+
+	/**
+	 * Indica se i posti possono essere divisi su piu' file quando nessuna
+	 * fila ha abbastanza posti liberi contigui.
+	 * 
+	 * @return true se i posti possono essere divisi, false altrimenti.
+	 * @author Maurizio Casciano
+	 */
+	public boolean isDivisibile() {
+		return this.divisibile;
+	}
+
+	/**
+	 * Imposta se i posti possono essere divisi su piu' file.
+	 * 
+	 * @param divisibile
+	 *            true se i posti possono essere divisi, false altrimenti.
+	 * @author Maurizio Casciano
+	 */
+	public void setDivisibile(boolean divisibile) {
+		this.divisibile = divisibile;
+	}
+
+	private ArrayList<Settore> settoriPreferiti;
+	private boolean fileAnteriori;
+	private boolean divisibile;
+}
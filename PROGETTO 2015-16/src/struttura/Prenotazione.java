@@ -39,6 +39,25 @@ public class Prenotazione implements Serializable {
 		this.bigliettoPrenotato.setPrenotato();
 	}
 
+	private Prenotazione(Biglietto bigliettoPrenotato) {
+		this.bigliettoPrenotato = bigliettoPrenotato;
+		this.bigliettoPrenotato.setPrenotato();
+	}
+
+	/**
+	 * Ripristina una prenotazione salvata su file a partire dal suo
+	 * {@link Biglietto}.
+	 * 
+	 * @param bigliettoPrenotato
+	 *            - il biglietto prenotato, ripristinato con
+	 *            {@link Biglietto#ripristina}
+	 * @return la prenotazione ripristinata
+	 * @author Maurizio Casciano
+	 */
+	public static Prenotazione ripristina(Biglietto bigliettoPrenotato) {
+		return new Prenotazione(bigliettoPrenotato);
+	}
+
 	/**
 	 * Restituisce il {@link Cliente} che ha prenotato il {@link Biglietto}
 	 * 
@@ -155,6 +174,18 @@ public class Prenotazione implements Serializable {
 
 	}
 
+	/**
+	 * Restituisce il codice hash della prenotazione, ovvero quello del biglietto
+	 * prenotato, coerente con
+	 * {@link #equals(Object)}.
+	 * 
+	 * @return il codice hash della prenotazione.
+	 */
+	@Override
+	public int hashCode() {
+		return this.bigliettoPrenotato.hashCode();
+	}
+
 	/**
 	 * Restituisce le informazioni dell'oggetto corrente come {@link String}
 	 * 
@@ -0,0 +1,268 @@
+package struttura;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+
+/**
+ * Ruota temporale gerarchica che associa ad ogni elemento una scadenza. Il
+ * tempo e' diviso in scatti di durata fissa: il primo livello ha una
+ * posizione per ciascuno dei prossimi {@value #POSIZIONI} scatti, ed ogni
+ * livello successivo ha posizioni {@value #POSIZIONI} volte piu' ampie di
+ * quelle del precedente. Quando il tempo entra in una nuova posizione di un
+ * livello, i suoi elementi vengono ridistribuiti nei livelli inferiori; le
+ * scadenze oltre l'ultimo livello restano in una lista a parte.
+ * 
+ * Aggiungere e rimuovere un elemento costa un tempo costante, mentre far
+ * avanzare la ruota costa un tempo proporzionale agli scatti trascorsi e agli
+ * elementi scaduti. La ruota non e' sincronizzata.
+ * 
+ * @param <T>
+ *            Il tipo degli elementi, distinti per identita'.
+ * @author Maurizio Casciano
+ */
+class RuotaScadenze<T> {
+
+	/**
+	 * Crea una ruota vuota.
+	 * 
+	 * @param durataScatto
+	 *            - La durata di uno scatto in millisecondi.
+	 * @param adesso
+	 *            - L'istante iniziale in millisecondi.
+	 * @author Maurizio Casciano
+	 */
+	@SuppressWarnings("unchecked")
+	RuotaScadenze(long durataScatto, long adesso) {
+		this.durataScatto = durataScatto;
+		this.scattoCorrente = adesso / durataScatto;
+		this.livelli = (Nodo<T>[][]) new Nodo<?>[LIVELLI][POSIZIONI];
+
+		for (int livello = 0; livello < LIVELLI; livello++) {
+			for (int posizione = 0; posizione < POSIZIONI; posizione++) {
+				this.livelli[livello][posizione] = new Nodo<T>(null, 0);
+			}
+		}
+		this.oltre = new Nodo<T>(null, 0);
+		this.scaduti = new Nodo<T>(null, 0);
+		this.nodi = new IdentityHashMap<>();
+	}
+
+	/**
+	 * Aggiunge un elemento alla ruota, oppure ne modifica la scadenza se e'
+	 * gia' presente. Un elemento gia' scaduto sara' restituito dal prossimo
+	 * {@link #avanza(long)}.
+	 * 
+	 * @param elemento
+	 *            - L'elemento da aggiungere.
+	 * @param scadenza
+	 *            - L'istante di scadenza in millisecondi.
+	 * @author Maurizio Casciano
+	 */
+	void aggiungi(T elemento, long scadenza) {
+		this.rimuovi(elemento);
+
+		Nodo<T> nodo = new Nodo<T>(elemento, (scadenza + this.durataScatto - 1) / this.durataScatto);
+		this.nodi.put(elemento, nodo);
+		this.inserisci(nodo);
+	}
+
+	/**
+	 * Rimuove un elemento dalla ruota.
+	 * 
+	 * @param elemento
+	 *            - L'elemento da rimuovere.
+	 * @return {@code true} se l'elemento era presente.
+	 * @author Maurizio Casciano
+	 */
+	boolean rimuovi(T elemento) {
+		Nodo<T> nodo = this.nodi.remove(elemento);
+
+		if (nodo == null) {
+			return false;
+		}
+		nodo.scollega();
+		return true;
+	}
+
+	/**
+	 * Fa avanzare la ruota fino all'istante indicato e ne rimuove gli
+	 * elementi scaduti.
+	 * 
+	 * @param adesso
+	 *            - L'istante corrente in millisecondi.
+	 * @return Gli elementi scaduti, in ordine di scadenza.
+	 * @author Maurizio Casciano
+	 */
+	ArrayList<T> avanza(long adesso) {
+		long ultimoScatto = adesso / this.durataScatto;
+		ArrayList<T> risultato = new ArrayList<>();
+
+		this.svuota(this.scaduti, risultato);
+
+		/* Una ruota vuota non ha nulla da ridistribuire */
+		if (this.nodi.isEmpty() && this.scattoCorrente < ultimoScatto) {
+			this.scattoCorrente = ultimoScatto;
+		}
+
+		while (this.scattoCorrente < ultimoScatto) {
+			this.scattoCorrente++;
+			this.ridistribuisci();
+
+			/* La ridistribuzione sposta tra gli scaduti lo scatto corrente */
+			this.svuota(this.scaduti, risultato);
+			this.svuota(this.livelli[0][(int) (this.scattoCorrente & MASCHERA)], risultato);
+		}
+		return risultato;
+	}
+
+	/**
+	 * Restituisce il numero di elementi nella ruota.
+	 * 
+	 * @return Il numero di elementi.
+	 * @author Maurizio Casciano
+	 */
+	int size() {
+		return this.nodi.size();
+	}
+
+	/**
+	 * Rimuove tutti gli elementi dalla ruota.
+	 * 
+	 * @author Maurizio Casciano
+	 */
+	void clear() {
+		for (Nodo<T> nodo : this.nodi.values()) {
+			nodo.scollega();
+		}
+		this.nodi.clear();
+	}
+
+	/**
+	 * Inserisce un nodo nel livello piu' basso che contiene la sua scadenza:
+	 * un livello contiene le scadenze che condividono con lo scatto corrente
+	 * la posizione nel livello superiore.
+	 */
+	private void inserisci(Nodo<T> nodo) {
+		if (nodo.scatto <= this.scattoCorrente) {
+			this.scaduti.collega(nodo);
+			return;
+		}
+
+		for (int livello = 0; livello < LIVELLI; livello++) {
+			int bit = BIT * (livello + 1);
+
+			if ((nodo.scatto >>> bit) == (this.scattoCorrente >>> bit)) {
+				int posizione = (int) ((nodo.scatto >>> (BIT * livello)) & MASCHERA);
+				this.livelli[livello][posizione].collega(nodo);
+				return;
+			}
+		}
+		this.oltre.collega(nodo);
+	}
+
+	/**
+	 * Quando lo scatto corrente entra in una nuova posizione di un livello
+	 * superiore, ne ridistribuisce gli elementi, a partire dal livello piu'
+	 * alto.
+	 */
+	private void ridistribuisci() {
+		int livelloMassimo = 0;
+
+		while (livelloMassimo < LIVELLI && (this.scattoCorrente & ((1L << (BIT * (livelloMassimo + 1))) - 1)) == 0) {
+			livelloMassimo++;
+		}
+
+		if (livelloMassimo == LIVELLI) {
+			this.reinserisci(this.oltre);
+			livelloMassimo--;
+		}
+
+		for (int livello = livelloMassimo; livello > 0; livello--) {
+			this.reinserisci(this.livelli[livello][(int) ((this.scattoCorrente >>> (BIT * livello)) & MASCHERA)]);
+		}
+	}
+
+	/**
+	 * Reinserisce gli elementi di una lista, che possono anche tornare nella
+	 * lista stessa.
+	 */
+	private void reinserisci(Nodo<T> lista) {
+		Nodo<T> daReinserire = new Nodo<T>(null, 0);
+		daReinserire.sposta(lista);
+
+		while (daReinserire.successivo != daReinserire) {
+			Nodo<T> nodo = daReinserire.successivo;
+			nodo.scollega();
+			this.inserisci(nodo);
+		}
+	}
+
+	private void svuota(Nodo<T> lista, ArrayList<T> risultato) {
+		while (lista.successivo != lista) {
+			Nodo<T> nodo = lista.successivo;
+			nodo.scollega();
+			this.nodi.remove(nodo.elemento);
+			risultato.add(nodo.elemento);
+		}
+	}
+
+	/**
+	 * Elemento di una lista circolare doppiamente collegata; la lista di una
+	 * posizione ha come testa un nodo senza elemento.
+	 */
+	private static class Nodo<T> {
+
+		Nodo(T elemento, long scatto) {
+			this.elemento = elemento;
+			this.scatto = scatto;
+			this.precedente = this;
+			this.successivo = this;
+		}
+
+		void collega(Nodo<T> nodo) {
+			nodo.precedente = this.precedente;
+			nodo.successivo = this;
+			this.precedente.successivo = nodo;
+			this.precedente = nodo;
+		}
+
+		/**
+		 * Sposta in questa lista, vuota, tutti i nodi di un'altra lista.
+		 */
+		void sposta(Nodo<T> lista) {
+			if (lista.successivo == lista) {
+				return;
+			}
+			this.successivo = lista.successivo;
+			this.precedente = lista.precedente;
+			this.successivo.precedente = this;
+			this.precedente.successivo = this;
+			lista.successivo = lista;
+			lista.precedente = lista;
+		}
+
+		void scollega() {
+			this.precedente.successivo = this.successivo;
+			this.successivo.precedente = this.precedente;
+			this.precedente = this;
+			this.successivo = this;
+		}
+
+		private final T elemento;
+		private final long scatto;
+		private Nodo<T> precedente;
+		private Nodo<T> successivo;
+	}
+
+	private final long durataScatto;
+	private long scattoCorrente;
+	private final Nodo<T>[][] livelli;
+	private final Nodo<T> oltre;
+	private final Nodo<T> scaduti;
+	private final IdentityHashMap<T, Nodo<T>> nodi;
+
+	private static final int BIT = 6;
+	private static final int POSIZIONI = 1 << BIT;
+	private static final long MASCHERA = POSIZIONI - 1;
+	private static final int LIVELLI = 4;
+}
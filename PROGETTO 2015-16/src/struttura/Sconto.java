@@ -255,6 +255,33 @@ public class Sconto implements Serializable {
 		return result;
 	}
 
+	/**
+	 * Restituisce il codice hash dello sconto, coerente con
+	 * {@link #equals(Object)}.
+	 * 
+	 * @return il codice hash dello sconto.
+	 */
+	@Override
+	public int hashCode() {
+		int result = this.tipoSconto.hashCode();
+		result = 31 * result + this.inizioValidita.hashCode();
+		result = 31 * result + this.fineValidita.hashCode();
+
+		switch (this.tipoSconto) {
+		case PARTITA_CORRENTE:
+			return 31 * result + (this.partita == null ? 0 : this.partita.hashCode());
+
+		case TUTTE_LE_PARTITE_DELLO_STADIO:
+			return 31 * result + (this.stadio == null ? 0 : this.stadio.hashCode());
+
+		case GIORNO_PRESTABILITO:
+			return 31 * result + (this.giornoSettimana == null ? 0 : this.giornoSettimana.ordinal());
+
+		default:
+			return result;
+		}
+	}
+
 	private static final long serialVersionUID = 8088987206686770452L;
 	private TipoSconto tipoSconto;
 	private double percetualeSconto;
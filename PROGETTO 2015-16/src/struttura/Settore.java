@@ -3,6 +3,8 @@ package struttura;
 import java.io.Serializable;
 import java.util.ArrayList;
 
+import graphics.stadium.DivisibleIntoSectors;
+
 /**
  * Classe che modella un Settore di uno {@link Stadio}
  * 
@@ -37,6 +39,34 @@ public class Settore implements Serializable {
 		this.posti = new ArrayList<>();
 	}
 
+	/**
+	 * Costruisce un settore i cui posti sono viste, create solo quando
+	 * richieste, sullo stato dei posti della partita.
+	 * 
+	 * @param stadio
+	 *            - lo {@link Stadio} a cui appartiene il Settore
+	 * @param nomeSettore
+	 *            - il nome del settore
+	 * @param numeroPosti
+	 *            - il numero di posti del settore
+	 * @param numeroFile
+	 *            - il numero di file del settore
+	 * @param statoPosti
+	 *            - lo stato dei posti della partita
+	 * @param primoPosto
+	 *            - la posizione del primo posto del settore in statoPosti
+	 * @author Maurizio Casciano
+	 */
+	Settore(Stadio stadio, String nomeSettore, int numeroPosti, int numeroFile, StatoPosti statoPosti,
+			int primoPosto) {
+		this.stadio = stadio;
+		this.nomeSettore = nomeSettore;
+		this.numeroPosti = numeroPosti;
+		this.numeroFile = numeroFile;
+		this.statoPosti = statoPosti;
+		this.primoPosto = primoPosto;
+	}
+
 	/**
 	 * Aggiunge il {@link Posto} passato in input alla lista dei Posti.
 	 * 
@@ -45,16 +75,30 @@ public class Settore implements Serializable {
 	 * @author Maurizio Casciano
 	 */
 	public void addPosto(Posto p) {
+		if (this.statoPosti != null) {
+			throw new UnsupportedOperationException("I posti del settore sono gia' definiti");
+		}
 		this.posti.add(p);
 	}
 
 	/**
-	 * Restituisce la lista dei posti del settore
+	 * Restituisce la lista dei posti del settore. Se lo stato dei posti e'
+	 * memorizzato nella partita, la lista viene creata ad ogni chiamata e le
+	 * sue modifiche non hanno effetto sul settore.
 	 * 
 	 * @return ArrayList dei posti del Settore
 	 */
 	public ArrayList<Posto> getPosti() {
-		return this.posti;
+		if (this.statoPosti == null) {
+			return this.posti;
+		}
+
+		ArrayList<Posto> posti = new ArrayList<>(this.numeroPosti);
+
+		for (int i = 0; i < this.numeroPosti; i++) {
+			posti.add(this.creaPosto(i));
+		}
+		return posti;
 	}
 
 	/**
@@ -66,7 +110,155 @@ public class Settore implements Serializable {
 	 * @author Maurizio Casciano
 	 */
 	public Posto getPosto(int index) {
-		return this.posti.get(index);
+		if (this.statoPosti == null) {
+			return this.posti.get(index);
+		}
+
+		if (index < 0 || index >= this.numeroPosti) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.numeroPosti);
+		}
+		return this.creaPosto(index);
+	}
+
+	/**
+	 * Restituisce il numero di posti del settore nello stato indicato. Se i
+	 * posti del settore sono viste sullo stato dei posti della partita il
+	 * conteggio e' immediato.
+	 * 
+	 * @param stato
+	 *            Lo stato dei posti da contare.
+	 * @return Il numero di posti del settore nello stato indicato.
+	 * @author Maurizio Casciano
+	 */
+	public int contaPosti(SeatStatus stato) {
+		if (this.statoPosti != null) {
+			return this.statoPosti.contaNelSettore(this.getIndiceSettore(), stato);
+		}
+
+		int conteggio = 0;
+
+		for (Posto posto : this.posti) {
+			if (posto.getStato() == stato) {
+				conteggio++;
+			}
+		}
+		return conteggio;
+	}
+
+	/**
+	 * Restituisce il numero di posti della fila numeroFila nello stato
+	 * indicato.
+	 * 
+	 * @param numeroFila
+	 *            Il numero della fila, a partire da 1.
+	 * @param stato
+	 *            Lo stato dei posti da contare.
+	 * @return Il numero di posti della fila nello stato indicato.
+	 * @author Maurizio Casciano
+	 */
+	public int contaPostiNellaFila(int numeroFila, SeatStatus stato) {
+		if (this.statoPosti != null) {
+			return this.statoPosti.contaNellaFila(this.getIndiceSettore(), numeroFila, stato);
+		}
+
+		int conteggio = 0;
+
+		for (Posto posto : this.posti) {
+			if (posto.getNumeroFila() == numeroFila && posto.getStato() == stato) {
+				conteggio++;
+			}
+		}
+		return conteggio;
+	}
+
+	/**
+	 * Restituisce lo stato dei posti della partita su cui sono definiti i
+	 * posti del settore.
+	 * 
+	 * @return lo stato dei posti, oppure {@code null} se il settore contiene
+	 *         i propri posti.
+	 * @author Maurizio Casciano
+	 */
+	StatoPosti getStatoPosti() {
+		return this.statoPosti;
+	}
+
+	/**
+	 * Restituisce la posizione del settore tra i settori della partita.
+	 * 
+	 * @return la posizione del settore, oppure -1 se il settore contiene i
+	 *         propri posti.
+	 * @author Maurizio Casciano
+	 */
+	int getIndiceSettore() {
+		if (this.statoPosti == null) {
+			return -1;
+		}
+		return this.primoPosto / this.numeroPosti;
+	}
+
+	/**
+	 * Sposta lo stato dei posti del settore in statoPosti a partire dalla
+	 * posizione primoPosto; da questo momento i posti del settore sono viste
+	 * su statoPosti.
+	 * 
+	 * @param statoPosti
+	 *            - lo stato dei posti della partita
+	 * @param primoPosto
+	 *            - la posizione del primo posto del settore in statoPosti
+	 * @author Maurizio Casciano
+	 */
+	void spostaStatoPosti(StatoPosti statoPosti, int primoPosto) {
+		for (int i = 0; i < this.numeroPosti; i++) {
+			SeatStatus stato = this.getPosto(i).getStato();
+
+			if (stato != SeatStatus.LIBERO) {
+				statoPosti.setStato(primoPosto + i, stato);
+			}
+		}
+
+		this.statoPosti = statoPosti;
+		this.primoPosto = primoPosto;
+		this.posti = null;
+	}
+
+	/**
+	 * Sposta lo stato dei posti dei settori, ciascuno dei quali contiene i
+	 * propri posti, in un unico {@link StatoPosti}. Usato per i settori
+	 * salvati con le versioni precedenti.
+	 * 
+	 * @param settori
+	 *            - i settori di uno stadio o di una partita
+	 * @author Maurizio Casciano
+	 */
+	static void spostaStatoPosti(ArrayList<Settore> settori) {
+		if (settori.size() != DivisibleIntoSectors.NUMERO_SETTORI) {
+			return;
+		}
+
+		int postiPerSettore = settori.get(0).numeroPosti;
+
+		for (Settore settore : settori) {
+			if (settore.posti == null || settore.posti.size() != settore.numeroPosti
+					|| settore.numeroPosti != postiPerSettore) {
+				return;
+			}
+		}
+
+		StatoPosti statoPosti = new StatoPosti(DisposizionePosti.get(postiPerSettore));
+		int primoPosto = 0;
+
+		for (Settore settore : settori) {
+			settore.spostaStatoPosti(statoPosti, primoPosto);
+			primoPosto += settore.numeroPosti;
+		}
+	}
+
+	private Posto creaPosto(int index) {
+		int postiPerFila = (this.numeroPosti + this.numeroFile - 1) / this.numeroFile;
+
+		return new Posto(this.stadio, this, index / postiPerFila + 1, index + 1, this.statoPosti,
+				this.primoPosto + index);
 	}
 
 	/**
@@ -153,9 +345,25 @@ public class Settore implements Serializable {
 		return false;
 	}
 
+	/**
+	 * Restituisce il codice hash del settore, coerente con
+	 * {@link #equals(Object)}.
+	 * 
+	 * @return il codice hash del settore.
+	 */
+	@Override
+	public int hashCode() {
+		int result = this.stadio.hashCode();
+		result = 31 * result + this.nomeSettore.hashCode();
+		result = 31 * result + this.numeroFile;
+		return 31 * result + this.numeroPosti;
+	}
+
 	private Stadio stadio;
 	private String nomeSettore;
 	private int numeroPosti;
 	private int numeroFile;
 	private ArrayList<Posto> posti;
+	private StatoPosti statoPosti;
+	private int primoPosto;
 }
@@ -0,0 +1,28 @@
+package struttura;
+
+/**
+ * Interfaccia che modella la sorgente da cui caricare, solo quando
+ * necessario, lo stato dei posti di una {@link Partita} ripristinata da file.
+ * 
+ * @author Maurizio Casciano
+ */
+public interface SorgentePosti {
+
+	/**
+	 * Restituisce il numero di posti per settore della partita, senza caricare
+	 * lo stato dei posti.
+	 * 
+	 * @return Il numero di posti per settore.
+	 */
+	int getPostiPerSettore();
+
+	/**
+	 * Carica lo stato dei posti della partita, con
+	 * {@link #getPostiPerSettore()} posti per ogni settore.
+	 * 
+	 * @return Lo stato dei posti della partita.
+	 * @throws java.io.UncheckedIOException
+	 *             Se lo stato dei posti non puo' essere letto.
+	 */
+	StatoPosti caricaStatoPosti();
+}
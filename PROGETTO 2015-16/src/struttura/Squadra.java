@@ -100,6 +100,17 @@ public class Squadra implements Serializable, Comparable<Squadra> {
 		return result;
 	}
 
+	/**
+	 * Restituisce il codice hash della squadra, calcolato sul nome, coerente con
+	 * {@link #equals(Object)}.
+	 * 
+	 * @return il codice hash della squadra.
+	 */
+	@Override
+	public int hashCode() {
+		return this.nome.hashCode();
+	}
+
 	private static final long serialVersionUID = -5406532006369346747L;
 	private String nome;
 }
@@ -1,6 +1,8 @@
 
 package struttura;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 
@@ -64,14 +66,6 @@ public class Stadio implements Serializable, DivisibleIntoSectors, Comparable<St
 	 */
 	private ArrayList<Settore> createSettori() {
 
-		/*
-		 * Necessita' di re-inizializzare i due caratteri, altrimenti alla
-		 * chiamata del metodo setCapienza() che richiama createSettori() i
-		 * settori dello stadio non partiranno da AA.
-		 */
-		firstChar = 'A';
-		secondChar = 'A';
-
 		this.postiPerSettore = this.capienzaDesiderata / DivisibleIntoSectors.NUMERO_SETTORI;
 		this.filePerSettore = (int) Math.sqrt(this.postiPerSettore);
 		this.capienzaEffettiva = this.postiPerSettore * DivisibleIntoSectors.NUMERO_SETTORI;
@@ -100,46 +94,7 @@ public class Stadio implements Serializable, DivisibleIntoSectors, Comparable<St
 		// System.out.println("PostiPerFila arrotondati = " + Math.ceil((double)
 		// this.postiPerSettore / (double) this.filePerSettore));
 
-		ArrayList<Settore> localSettori = new ArrayList<>(DivisibleIntoSectors.NUMERO_SETTORI);
-
-		/*
-		 * Crea i settori dello stadio.
-		 */
-		for (int numeroSettore = 0; numeroSettore < DivisibleIntoSectors.NUMERO_SETTORI; numeroSettore++) {
-			/*
-			 * Crea il settore corrente.
-			 */
-
-			String nomeSettore = this.getNextNomeSettore();
-			// System.out.println(nomeSettore);
-
-			final Settore settore = new Settore(Stadio.this, nomeSettore, this.postiPerSettore, this.filePerSettore);
-
-			/*
-			 * Crea i posti per il settore.
-			 */
-			for (int numeroFila = 0, numeroPosto = 1; numeroPosto <= this.postiPerSettore; numeroPosto++) {
-
-				if (numeroPosto % this.postiPerFila == 1) {
-					numeroFila++;
-				}
-
-				/*
-				 * Crea il posto corrente.
-				 */
-				final Posto posto = new Posto(this, settore, numeroFila, numeroPosto);
-				/*
-				 * Aggiunge il posto corrente al settore corrente.
-				 */
-				settore.addPosto(posto);
-			}
-
-			/*
-			 * Aggiunge il settore corrente all'ArrayList di setttori.
-			 */
-			localSettori.add(settore);
-		}
-		return localSettori;
+		return this.getCopyOfSettori();
 	}
 
 	/**
@@ -151,7 +106,18 @@ public class Stadio implements Serializable, DivisibleIntoSectors, Comparable<St
 	 */
 	public ArrayList<Settore> getCopyOfSettori() {
 
-		return createSettori();
+		return this.getDisposizionePosti().creaSettori(this, new StatoPosti(this.getDisposizionePosti()));
+	}
+
+	/**
+	 * Restituisce la disposizione dei posti dello stadio, condivisa con tutti
+	 * gli stadi e le partite con lo stesso numero di posti per settore.
+	 * 
+	 * @return la disposizione dei posti.
+	 * @author Maurizio Casciano
+	 */
+	public DisposizionePosti getDisposizionePosti() {
+		return DisposizionePosti.get(this.postiPerSettore);
 	}
 
 	/**
@@ -238,6 +204,18 @@ public class Stadio implements Serializable, DivisibleIntoSectors, Comparable<St
 		return result;
 	}
 
+	/**
+	 * Restituisce il codice hash dello stadio, calcolato sul nome senza distinguere
+	 * maiuscole e minuscole, coerente con
+	 * {@link #equals(Object)}.
+	 * 
+	 * @return il codice hash dello stadio.
+	 */
+	@Override
+	public int hashCode() {
+		return StrutturaSportiva.normalizzaNome(this.nome).hashCode();
+	}
+
 	/**
 	 * Restituisce la capienza desiderata, ossia quella impostata dall'utente al
 	 * momento della creazione.
@@ -258,7 +236,7 @@ public class Stadio implements Serializable, DivisibleIntoSectors, Comparable<St
 	 */
 	public void setCapienzaStadio(int nuovaCapienza) {
 		this.capienzaDesiderata = nuovaCapienza;
-		this.createSettori();
+		this.settori = this.createSettori();
 	}
 
 	/**
@@ -326,6 +304,16 @@ public class Stadio implements Serializable, DivisibleIntoSectors, Comparable<St
 		return nomeSettore;
 	}
 
+	/**
+	 * Negli stadi salvati con le versioni precedenti ogni settore contiene i
+	 * propri posti: lo stato dei posti viene spostato in un unico
+	 * {@link StatoPosti}.
+	 */
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		Settore.spostaStatoPosti(this.settori);
+	}
+
 	private char firstChar = 'A', secondChar = 'A';
 	private static final long serialVersionUID = -5785492477034953352L;
 	private String nome;
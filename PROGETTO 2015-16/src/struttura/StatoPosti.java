@@ -0,0 +1,548 @@
+package struttura;
+
+import java.beans.PropertyChangeListener;
+import java.beans.PropertyChangeSupport;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import graphics.stadium.DivisibleIntoSectors;
+
+/**
+ * Classe che memorizza lo stato ({@link SeatStatus}) di tutti i posti di una
+ * {@link Partita} usando 2 bit per posto. I posti sono individuati dalla loro
+ * posizione nella partita: {@code indiceSettore * postiPerSettore +
+ * numeroPosto - 1}.
+ * 
+ * I {@link Posto} dei settori della partita non memorizzano lo stato, ma sono
+ * viste su questo oggetto create solo quando richieste.
+ * 
+ * Lo stato dei posti viene letto e modificato senza lock, con operazioni
+ * compare-and-set: {@link #occupa(int, SeatStatus)} permette di occupare un
+ * posto soltanto se e' ancora libero, anche quando piu' thread tentano di
+ * occupare lo stesso posto (o posti memorizzati nello stesso intero).
+ * 
+ * Ad ogni cambiamento di stato vengono aggiornati i conteggi dei posti
+ * prenotati e venduti della partita e di ogni settore, in modo da conoscere
+ * i posti disponibili senza esaminare tutti i posti, e un indice delle
+ * sequenze di posti liberi contigui di ogni fila ({@link IndicePostiLiberi})
+ * usato per cercare posti vicini per un gruppo.
+ * 
+ * @author Maurizio Casciano
+ */
+public class StatoPosti implements Serializable {
+
+	/**
+	 * Crea lo stato dei posti di una partita con la disposizione indicata,
+	 * tutti {@link SeatStatus#LIBERO}. La memoria per lo stato dei posti
+	 * viene allocata soltanto alla prima modifica.
+	 * 
+	 * @param disposizionePosti
+	 *            La disposizione dei posti della partita.
+	 * @author Maurizio Casciano
+	 */
+	public StatoPosti(DisposizionePosti disposizionePosti) {
+		this.disposizionePosti = disposizionePosti;
+		this.numeroPosti = disposizionePosti.getCapienzaEffettiva();
+	}
+
+	/**
+	 * Restituisce il numero di posti.
+	 * 
+	 * @return Il numero di posti.
+	 * @author Maurizio Casciano
+	 */
+	public int getNumeroPosti() {
+		return this.numeroPosti;
+	}
+
+	/**
+	 * Restituisce lo stato del posto in posizione indice.
+	 * 
+	 * @param indice
+	 *            La posizione del posto.
+	 * @return Lo stato del posto.
+	 * @author Maurizio Casciano
+	 */
+	public SeatStatus getStato(int indice) {
+		this.verificaIndice(indice);
+		AtomicIntegerArray stati = this.stati;
+
+		if (stati == null) {
+			return SeatStatus.LIBERO;
+		}
+		return estrai(stati.get(indice / POSTI_PER_INT), indice);
+	}
+
+	/**
+	 * Imposta lo stato del posto in posizione indice, qualunque sia lo stato
+	 * attuale, e lo notifica agli ascoltatori del posto.
+	 * 
+	 * @param indice
+	 *            La posizione del posto.
+	 * @param stato
+	 *            Il nuovo stato del posto.
+	 * @author Maurizio Casciano
+	 */
+	public void setStato(int indice, SeatStatus stato) {
+		this.verificaIndice(indice);
+		AtomicIntegerArray stati = this.getStati();
+		int parola = indice / POSTI_PER_INT;
+		int vecchiaParola;
+
+		do {
+			vecchiaParola = stati.get(parola);
+		} while (!stati.compareAndSet(parola, vecchiaParola, sostituisci(vecchiaParola, indice, stato)));
+
+		SeatStatus vecchioStato = estrai(vecchiaParola, indice);
+		this.aggiornaConteggi(indice, vecchioStato, stato);
+
+		if ((vecchioStato == SeatStatus.LIBERO) != (stato == SeatStatus.LIBERO)) {
+			this.indicePostiLiberi.aggiorna(indice);
+		}
+		this.notifica(indice, vecchioStato, stato);
+	}
+
+	/**
+	 * Occupa atomicamente il posto in posizione indice, impostandone lo stato
+	 * a nuovoStato soltanto se il posto e' {@link SeatStatus#LIBERO}. Se piu'
+	 * thread tentano di occupare lo stesso posto, soltanto uno ci riesce.
+	 * 
+	 * @param indice
+	 *            La posizione del posto.
+	 * @param nuovoStato
+	 *            Lo stato da impostare, {@link SeatStatus#PRENOTATO} oppure
+	 *            {@link SeatStatus#VENDUTO}.
+	 * @return {@link SeatStatus#LIBERO} se il posto e' stato occupato,
+	 *         altrimenti lo stato che ha impedito di occuparlo.
+	 * @throws IllegalArgumentException
+	 *             Se nuovoStato e' {@link SeatStatus#LIBERO}.
+	 * @author Maurizio Casciano
+	 */
+	public SeatStatus occupa(int indice, SeatStatus nuovoStato) throws IllegalArgumentException {
+		if (nuovoStato == SeatStatus.LIBERO) {
+			throw new IllegalArgumentException("Un posto non puo' essere occupato come " + nuovoStato);
+		}
+
+		this.verificaIndice(indice);
+		AtomicIntegerArray stati = this.getStati();
+		int parola = indice / POSTI_PER_INT;
+
+		while (true) {
+			int vecchiaParola = stati.get(parola);
+			SeatStatus attuale = estrai(vecchiaParola, indice);
+
+			if (attuale != SeatStatus.LIBERO) {
+				return attuale;
+			}
+
+			if (stati.compareAndSet(parola, vecchiaParola, sostituisci(vecchiaParola, indice, nuovoStato))) {
+				this.aggiornaConteggi(indice, SeatStatus.LIBERO, nuovoStato);
+				this.indicePostiLiberi.aggiorna(indice);
+				this.notifica(indice, SeatStatus.LIBERO, nuovoStato);
+				return SeatStatus.LIBERO;
+			}
+		}
+	}
+
+	/**
+	 * Occupa tutti i posti indicati oppure nessuno: i posti vengono occupati
+	 * con {@link #occupa(int, SeatStatus)} in un'unica scansione in ordine di
+	 * posizione e, se uno di essi non e' libero, quelli gia' occupati vengono
+	 * liberati.
+	 * 
+	 * @param indici
+	 *            Le posizioni dei posti, tutte diverse.
+	 * @param nuovoStato
+	 *            Lo stato da impostare, {@link SeatStatus#PRENOTATO} oppure
+	 *            {@link SeatStatus#VENDUTO}.
+	 * @return -1 se tutti i posti sono stati occupati, altrimenti la
+	 *         posizione in indici del primo posto non libero.
+	 * @throws IllegalArgumentException
+	 *             Se nuovoStato e' {@link SeatStatus#LIBERO} o se una
+	 *             posizione e' ripetuta.
+	 * @author Maurizio Casciano
+	 */
+	public int occupaTutti(int[] indici, SeatStatus nuovoStato) throws IllegalArgumentException {
+		int[] ordinati = indici.clone();
+		Arrays.sort(ordinati);
+
+		for (int i = 1; i < ordinati.length; i++) {
+			if (ordinati[i] == ordinati[i - 1]) {
+				throw new IllegalArgumentException("Posto ripetuto: " + ordinati[i]);
+			}
+		}
+
+		for (int i = 0; i < ordinati.length; i++) {
+			if (this.occupa(ordinati[i], nuovoStato) != SeatStatus.LIBERO) {
+				for (int j = 0; j < i; j++) {
+					this.setStato(ordinati[j], SeatStatus.LIBERO);
+				}
+
+				for (int j = 0; j < indici.length; j++) {
+					if (indici[j] == ordinati[i]) {
+						return j;
+					}
+				}
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Restituisce il numero di posti della partita nello stato indicato, in
+	 * tempo costante.
+	 * 
+	 * @param stato
+	 *            Lo stato dei posti da contare.
+	 * @return Il numero di posti nello stato indicato.
+	 * @author Maurizio Casciano
+	 */
+	public int conta(SeatStatus stato) {
+		return this.conta(0, this.numeroPosti, stato);
+	}
+
+	/**
+	 * Restituisce il numero di posti del settore in posizione indiceSettore
+	 * nello stato indicato, in tempo costante.
+	 * 
+	 * @param indiceSettore
+	 *            La posizione del settore.
+	 * @param stato
+	 *            Lo stato dei posti da contare.
+	 * @return Il numero di posti del settore nello stato indicato.
+	 * @author Maurizio Casciano
+	 */
+	public int contaNelSettore(int indiceSettore, SeatStatus stato) {
+		if (indiceSettore < 0 || indiceSettore >= DivisibleIntoSectors.NUMERO_SETTORI) {
+			throw new IndexOutOfBoundsException("Settore: " + indiceSettore);
+		}
+		return this.conta(1 + indiceSettore, this.disposizionePosti.getPostiPerSettore(), stato);
+	}
+
+	/**
+	 * Restituisce il numero di posti di una fila di un settore nello stato
+	 * indicato, esaminando soltanto i posti della fila.
+	 * 
+	 * @param indiceSettore
+	 *            La posizione del settore.
+	 * @param numeroFila
+	 *            Il numero della fila, a partire da 1.
+	 * @param stato
+	 *            Lo stato dei posti da contare.
+	 * @return Il numero di posti della fila nello stato indicato.
+	 * @author Maurizio Casciano
+	 */
+	public int contaNellaFila(int indiceSettore, int numeroFila, SeatStatus stato) {
+		int postiPerSettore = this.disposizionePosti.getPostiPerSettore();
+		int postiPerFila = this.disposizionePosti.getPostiPerFila();
+		int primo = indiceSettore * postiPerSettore + (numeroFila - 1) * postiPerFila;
+		int ultimo = Math.min(primo + postiPerFila, (indiceSettore + 1) * postiPerSettore);
+		int conteggio = 0;
+
+		for (int indice = primo; indice < ultimo; indice++) {
+			if (this.getStato(indice) == stato) {
+				conteggio++;
+			}
+		}
+		return conteggio;
+	}
+
+	/**
+	 * Cerca n posti liberi contigui nella stessa fila, esaminando prima i
+	 * settori preferiti e poi tutti gli altri; se nessuna fila li contiene e
+	 * la divisione e' ammessa, restituisce n posti liberi dello stesso
+	 * settore distribuiti sul minor numero di file consecutive. I posti non
+	 * vengono occupati.
+	 * 
+	 * @param n
+	 *            Il numero di posti.
+	 * @param settoriPreferiti
+	 *            Le posizioni dei settori preferiti, in ordine di preferenza.
+	 * @param fileAnteriori
+	 *            true per preferire le prime file dei settori, false per
+	 *            preferire le ultime.
+	 * @param divisibile
+	 *            true se i posti possono essere divisi su piu' file.
+	 * @return Le posizioni dei posti in ordine crescente, oppure {@code null}
+	 *         se non ci sono abbastanza posti liberi.
+	 * @throws IllegalArgumentException
+	 *             Se n non e' positivo.
+	 * @author Maurizio Casciano
+	 */
+	public int[] cercaPostiContigui(int n, int[] settoriPreferiti, boolean fileAnteriori, boolean divisibile)
+			throws IllegalArgumentException {
+		if (n <= 0) {
+			throw new IllegalArgumentException("Il numero di posti deve essere positivo: " + n);
+		}
+
+		this.getStati();
+		return this.indicePostiLiberi.cerca(n, settoriPreferiti, fileAnteriori, divisibile);
+	}
+
+	/**
+	 * Restituisce la disposizione dei posti della partita.
+	 * 
+	 * @return La disposizione dei posti.
+	 * @author Maurizio Casciano
+	 */
+	public DisposizionePosti getDisposizionePosti() {
+		return this.disposizionePosti;
+	}
+
+	/**
+	 * Aggiunge un listener alla lista degli ascoltatori per il cambiamento
+	 * dello stato del posto in posizione indice.
+	 * 
+	 * @param indice
+	 *            La posizione del posto.
+	 * @param listener
+	 *            il listener a cui notificare il cambiamento dello stato del
+	 *            posto.
+	 * @author Maurizio Casciano
+	 */
+	public synchronized void addPropertyChangeListener(int indice, PropertyChangeListener listener) {
+		this.verificaIndice(indice);
+
+		if (this.ascoltatori == null) {
+			this.ascoltatori = new ConcurrentHashMap<>();
+		}
+
+		PropertyChangeSupport ascoltatori = this.ascoltatori.get(indice);
+
+		if (ascoltatori == null) {
+			ascoltatori = new PropertyChangeSupport(this);
+			this.ascoltatori.put(indice, ascoltatori);
+		}
+		ascoltatori.addPropertyChangeListener(listener);
+	}
+
+	/**
+	 * Rimuove il listener dalla lista degli ascoltatori per il cambiamento di
+	 * stato del posto in posizione indice.
+	 * 
+	 * @param indice
+	 *            La posizione del posto.
+	 * @param listener
+	 *            il listener da rimuovere.
+	 * @author Maurizio Casciano
+	 */
+	public synchronized void removePropertyChangeListener(int indice, PropertyChangeListener listener) {
+		if (this.ascoltatori != null) {
+			PropertyChangeSupport ascoltatori = this.ascoltatori.get(indice);
+
+			if (ascoltatori != null) {
+				ascoltatori.removePropertyChangeListener(listener);
+
+				if (!ascoltatori.hasListeners(null)) {
+					this.ascoltatori.remove(indice);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Restituisce lo stato dei posti compresso in un array di byte, 4 posti
+	 * per byte a partire dai bit meno significativi.
+	 * 
+	 * @return Lo stato dei posti compresso.
+	 * @author Maurizio Casciano
+	 */
+	public byte[] comprimi() {
+		AtomicIntegerArray stati = this.stati;
+		byte[] compresso = new byte[getDimensioneCompressa(this.numeroPosti)];
+
+		for (int i = 0; stati != null && i < compresso.length; i++) {
+			compresso[i] = (byte) (stati.get(i / 4) >>> ((i % 4) * 8));
+		}
+		return compresso;
+	}
+
+	/**
+	 * Imposta lo stato dei posti a partire dallo stato compresso con
+	 * {@link #comprimi()}, letto dalla posizione corrente del buffer senza
+	 * modificarla. Gli ascoltatori non vengono notificati.
+	 * 
+	 * @param compresso
+	 *            Lo stato dei posti compresso.
+	 * @author Maurizio Casciano
+	 */
+	public void decomprimi(ByteBuffer compresso) {
+		AtomicIntegerArray stati = this.getStati();
+		int inizio = compresso.position();
+		int dimensione = getDimensioneCompressa(this.numeroPosti);
+		int parola = 0;
+
+		for (int i = 0; i < dimensione; i++) {
+			parola |= (compresso.get(inizio + i) & 0xFF) << ((i % 4) * 8);
+
+			if (i % 4 == 3 || i == dimensione - 1) {
+				stati.set(i / 4, parola);
+				parola = 0;
+			}
+		}
+
+		this.ricalcolaConteggi(stati);
+		this.indicePostiLiberi.ricostruisci();
+	}
+
+	/**
+	 * Restituisce il numero di byte occupati dallo stato compresso di
+	 * numeroPosti posti.
+	 * 
+	 * @param numeroPosti
+	 *            Il numero di posti.
+	 * @return Il numero di byte dello stato compresso.
+	 * @author Maurizio Casciano
+	 */
+	public static int getDimensioneCompressa(int numeroPosti) {
+		return (numeroPosti + 3) / 4;
+	}
+
+	private AtomicIntegerArray getStati() {
+		AtomicIntegerArray stati = this.stati;
+
+		if (stati == null) {
+			synchronized (this) {
+				if (this.stati == null) {
+					/* I conteggi e l'indice devono essere visibili prima dello stato */
+					this.conteggi = new AtomicIntegerArray((1 + DivisibleIntoSectors.NUMERO_SETTORI) * 2);
+					this.indicePostiLiberi = new IndicePostiLiberi(this);
+					this.stati = new AtomicIntegerArray((this.numeroPosti + POSTI_PER_INT - 1) / POSTI_PER_INT);
+				}
+				stati = this.stati;
+			}
+		}
+		return stati;
+	}
+
+	/**
+	 * Conta i posti nello stato indicato; i conteggi sono memorizzati per la
+	 * partita (gruppo 0) e per ogni settore (gruppo 1 + indiceSettore),
+	 * soltanto per i posti prenotati e venduti.
+	 */
+	private int conta(int gruppo, int numeroPosti, SeatStatus stato) {
+		AtomicIntegerArray conteggi = this.stati != null ? this.conteggi : null;
+
+		if (conteggi == null) {
+			return stato == SeatStatus.LIBERO ? numeroPosti : 0;
+		}
+
+		if (stato == SeatStatus.LIBERO) {
+			return numeroPosti - conteggi.get(gruppo * 2) - conteggi.get(gruppo * 2 + 1);
+		}
+		return conteggi.get(gruppo * 2 + stato.ordinal() - 1);
+	}
+
+	/**
+	 * Ricalcola i conteggi a partire dallo stato dei posti.
+	 */
+	private void ricalcolaConteggi(AtomicIntegerArray stati) {
+		int[] nuoviConteggi = new int[(1 + DivisibleIntoSectors.NUMERO_SETTORI) * 2];
+		int postiPerSettore = this.disposizionePosti.getPostiPerSettore();
+
+		for (int indice = 0; indice < this.numeroPosti; indice++) {
+			int stato = estrai(stati.get(indice / POSTI_PER_INT), indice).ordinal();
+
+			if (stato != SeatStatus.LIBERO.ordinal()) {
+				nuoviConteggi[stato - 1]++;
+				nuoviConteggi[(1 + indice / postiPerSettore) * 2 + stato - 1]++;
+			}
+		}
+
+		AtomicIntegerArray conteggi = this.conteggi;
+
+		if (conteggi == null) {
+			this.conteggi = new AtomicIntegerArray(nuoviConteggi);
+		} else {
+			for (int i = 0; i < nuoviConteggi.length; i++) {
+				conteggi.set(i, nuoviConteggi[i]);
+			}
+		}
+	}
+
+	/**
+	 * I conteggi e l'indice dei posti liberi non vengono salvati ma
+	 * ricalcolati; per lo stato dei posti salvato senza disposizione, questa
+	 * viene ricavata dal numero di posti.
+	 */
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+
+		if (this.disposizionePosti == null) {
+			this.disposizionePosti = DisposizionePosti.get(this.numeroPosti / DivisibleIntoSectors.NUMERO_SETTORI);
+		}
+
+		if (this.stati != null) {
+			this.ricalcolaConteggi(this.stati);
+			this.indicePostiLiberi = new IndicePostiLiberi(this);
+			this.indicePostiLiberi.ricostruisci();
+		}
+	}
+
+	private void aggiornaConteggi(int indice, SeatStatus vecchioStato, SeatStatus nuovoStato) {
+		if (vecchioStato == nuovoStato) {
+			return;
+		}
+
+		AtomicIntegerArray conteggi = this.conteggi;
+		int settore = 1 + indice / this.disposizionePosti.getPostiPerSettore();
+
+		if (vecchioStato != SeatStatus.LIBERO) {
+			conteggi.decrementAndGet(vecchioStato.ordinal() - 1);
+			conteggi.decrementAndGet(settore * 2 + vecchioStato.ordinal() - 1);
+		}
+
+		if (nuovoStato != SeatStatus.LIBERO) {
+			conteggi.incrementAndGet(nuovoStato.ordinal() - 1);
+			conteggi.incrementAndGet(settore * 2 + nuovoStato.ordinal() - 1);
+		}
+	}
+
+	private void notifica(int indice, SeatStatus vecchioStato, SeatStatus nuovoStato) {
+		ConcurrentHashMap<Integer, PropertyChangeSupport> ascoltatori = this.ascoltatori;
+
+		if (ascoltatori != null) {
+			PropertyChangeSupport ascoltatoriPosto = ascoltatori.get(indice);
+
+			if (ascoltatoriPosto != null) {
+				ascoltatoriPosto.firePropertyChange(Posto.STATUS_PROPERTY_CHANGED, vecchioStato, nuovoStato);
+			}
+		}
+	}
+
+	private void verificaIndice(int indice) {
+		if (indice < 0 || indice >= this.numeroPosti) {
+			throw new IndexOutOfBoundsException("Posto: " + indice + ", Posti: " + this.numeroPosti);
+		}
+	}
+
+	private static SeatStatus estrai(int parola, int indice) {
+		return VALORI[(parola >>> spostamento(indice)) & MASCHERA];
+	}
+
+	private static int sostituisci(int parola, int indice, SeatStatus stato) {
+		int spostamento = spostamento(indice);
+		return (parola & ~(MASCHERA << spostamento)) | (stato.ordinal() << spostamento);
+	}
+
+	private static int spostamento(int indice) {
+		return (indice % POSTI_PER_INT) * 2;
+	}
+
+	private DisposizionePosti disposizionePosti;
+	private final int numeroPosti;
+	private volatile AtomicIntegerArray stati;
+	private transient volatile AtomicIntegerArray conteggi;
+	private transient volatile IndicePostiLiberi indicePostiLiberi;
+	private transient volatile ConcurrentHashMap<Integer, PropertyChangeSupport> ascoltatori;
+
+	private static final int POSTI_PER_INT = 16;
+	private static final int MASCHERA = 0x3;
+	private static final SeatStatus[] VALORI = SeatStatus.values();
+	private static final long serialVersionUID = 3071598410482259817L;
+}
@@ -2,18 +2,35 @@ package struttura;
 
 import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.GregorianCalendar;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
 import struttura.filters.Filter;
+import struttura.filters.MatchAndFilter;
+import struttura.filters.MatchByWeekFilter;
+import struttura.filters.MatchNotYetStartedFilter;
+import struttura.filters.PrenotationAndFilter;
 import struttura.filters.PrenotationFilter;
+import struttura.filters.PrenotationOrFilter;
+import struttura.filters.PrenotationByCustomerFilter;
 import struttura.filters.PrenotationByMatchFilter;
+import struttura.filters.PrenotationByStadiumFilter;
+import struttura.filters.PurchaseAndFilter;
+import struttura.filters.PurchaseByCustomerFilter;
 import struttura.filters.PurchaseByMatchFilter;
+import struttura.filters.PurchaseByStadiumFilter;
 import struttura.filters.PurchaseFilter;
-import struttura.filters.ScontoByDayOfWeekFilter;
+import struttura.filters.PurchaseOrFilter;
 import struttura.filters.ScontoFilter;
-import struttura.filters.ScontoByStadiumFilter;
-import struttura.filters.ScontoByMatchFilter;
 import user.AlreadyRegisteredUserException;
 import user.Cliente;
 import user.UserNotFoundException;
@@ -22,6 +39,10 @@ import user.Utente;
 /**
  * Classe principale che modella l'intera Struttura Sportiva
  * 
+ * I metodi che modificano la StrutturaSportiva sono sincronizzati sull'oggetto
+ * stesso: sincronizzandosi sulla StrutturaSportiva si ottiene una vista
+ * consistente dei dati, ad esempio per scriverne uno snapshot.
+ * 
  * @author Maurizio Casciano
  * @author Gaetano Antonucci
  */
@@ -44,6 +65,63 @@ public class StrutturaSportiva implements Serializable {
 		this.acquisti = new ArrayList<>();
 	}
 
+	/**
+	 * Aggiunge un ascoltatore che sara' notificato ad ogni modifica della
+	 * StrutturaSportiva.
+	 * 
+	 * @param listener
+	 *            - L'ascoltatore da aggiungere.
+	 * @author Maurizio Casciano
+	 */
+	public synchronized void addStrutturaSportivaListener(StrutturaSportivaListener listener) {
+		this.getListeners().add(listener);
+	}
+
+	/**
+	 * Rimuove un ascoltatore precedentemente aggiunto. Se l'ascoltatore non e'
+	 * mai stato aggiunto non viene eseguita nessuna azione.
+	 * 
+	 * @param listener
+	 *            - L'ascoltatore da rimuovere.
+	 * @author Maurizio Casciano
+	 */
+	public synchronized void removeStrutturaSportivaListener(StrutturaSportivaListener listener) {
+		this.getListeners().remove(listener);
+	}
+
+	/**
+	 * Restituisce un future che viene completato quando tutte le modifiche
+	 * effettuate fino a questo momento sono state rese persistenti dagli
+	 * ascoltatori che implementano {@link PersistenzaStrutturaSportiva}. Il
+	 * future e' gia' completato se nessun ascoltatore rende persistenti le
+	 * modifiche.
+	 * 
+	 * @return Il future che segnala la persistenza delle modifiche.
+	 * @author Maurizio Casciano
+	 */
+	public synchronized CompletableFuture<Void> attendiModifichePersistenti() {
+		ArrayList<CompletableFuture<Void>> futures = new ArrayList<>();
+
+		for (StrutturaSportivaListener l : this.getListeners()) {
+			if (l instanceof PersistenzaStrutturaSportiva) {
+				futures.add(((PersistenzaStrutturaSportiva) l).modifichePersistenti());
+			}
+		}
+
+		return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[futures.size()]));
+	}
+
+	/**
+	 * Restituisce la lista degli ascoltatori, creandola se necessario (ad
+	 * esempio dopo la lettura da file, essendo un campo transient).
+	 */
+	private ArrayList<StrutturaSportivaListener> getListeners() {
+		if (this.listeners == null) {
+			this.listeners = new ArrayList<>();
+		}
+		return this.listeners;
+	}
+
 	/**
 	 * Restituisce il nome della StrutturaSportiva.
 	 * 
@@ -55,7 +133,8 @@ public class StrutturaSportiva implements Serializable {
 	}
 
 	/**
-	 * Aggiunge un {@link Utente} al database se non e' gia' presente,
+	 * Aggiunge un {@link Utente} al database se non e' gia' presente un
+	 * utente con lo stesso username, a meno di maiuscole e minuscole,
 	 * altrimenti lancia eccezione.
 	 * 
 	 * @param utente
@@ -65,14 +144,19 @@ public class StrutturaSportiva implements Serializable {
 	 *             inserire sia gia' presente nel database
 	 * @author Maurizio Casciano
 	 */
-	public void addUtente(Utente utente) throws AlreadyRegisteredUserException {
-		for (Utente u : this.utenti) {
-			if (u.equals(utente)) {
-				throw new AlreadyRegisteredUserException();
-			}
+	public synchronized void addUtente(Utente utente) throws AlreadyRegisteredUserException {
+		Map<String, Utente> indice = this.getIndiceUtenti();
+
+		if (indice.containsKey(normalizzaNome(utente.getUsername()))) {
+			throw new AlreadyRegisteredUserException();
 		}
 
 		this.utenti.add(utente);
+		indice.put(normalizzaNome(utente.getUsername()), utente);
+
+		for (StrutturaSportivaListener l : this.getListeners()) {
+			l.utenteAggiunto(utente);
+		}
 	}
 
 	/**
@@ -87,13 +171,53 @@ public class StrutturaSportiva implements Serializable {
 	 * @author Maurizio Casciano
 	 */
 	public Utente getUtente(String username) throws UserNotFoundException {
-		for (Utente u : this.utenti) {
-			if (u.getUsername().equalsIgnoreCase(username)) {
-				return u;
+		Utente u = this.getIndiceUtenti().get(normalizzaNome(username));
+
+		if (u == null) {
+			throw new UserNotFoundException();
+		}
+		return u;
+	}
+
+	/**
+	 * Restituisce l'indice degli utenti per username normalizzato, creandolo
+	 * alla prima richiesta oppure dopo {@link #invalidaIndici()}.
+	 */
+	private synchronized Map<String, Utente> getIndiceUtenti() {
+		if (this.indiceUtenti == null) {
+			this.indiceUtenti = new ConcurrentHashMap<>();
+
+			/* A parita' di username vale il primo utente, come nella ricerca lineare */
+			for (Utente u : this.utenti) {
+				this.indiceUtenti.putIfAbsent(normalizzaNome(u.getUsername()), u);
 			}
 		}
+		return this.indiceUtenti;
+	}
 
-		throw new UserNotFoundException();
+	/**
+	 * Normalizza un nome, ad esempio un username o il nome di uno stadio, in
+	 * modo che due nomi siano uguali a meno di maiuscole e minuscole, come per
+	 * {@link String#equalsIgnoreCase(String)}, se e solo se sono uguali le
+	 * loro forme normalizzate.
+	 */
+	static String normalizzaNome(String nome) {
+		char[] caratteri = nome.toCharArray();
+
+		for (int i = 0; i < caratteri.length; i++) {
+			caratteri[i] = Character.toLowerCase(Character.toUpperCase(caratteri[i]));
+		}
+		return new String(caratteri);
+	}
+
+	/**
+	 * Restituisce tutti gli utenti registrati.
+	 * 
+	 * @return ArrayList con tutti gli utenti.
+	 * @author Maurizio Casciano
+	 */
+	public ArrayList<Utente> getUtenti() {
+		return this.utenti;
 	}
 
 	/**
@@ -107,11 +231,111 @@ public class StrutturaSportiva implements Serializable {
 	 * @author Maurizio Casciano
 	 * @author Gaetano Antonucci
 	 */
-	public void addPartita(Partita p) throws AlreadyExistsObjectException {
-		if (this.partiteProgrammate.contains(p)) {
-			throw new AlreadyExistsObjectException("Partita gia' presente !!!");
+	public synchronized void addPartita(Partita p) throws AlreadyExistsObjectException {
+		CalendarioPartite calendario = this.getCalendario();
+
+		for (Partita stessaData : calendario.getTra(p.getData().getTimeInMillis(), p.getData().getTimeInMillis())) {
+			if (stessaData.equals(p) || stessaData.stessaPartita(p)) {
+				throw new AlreadyExistsObjectException("Partita gia' presente !!!");
+			}
 		}
 		this.partiteProgrammate.add(p);
+		calendario.aggiungi(p);
+
+		for (StrutturaSportivaListener l : this.getListeners()) {
+			l.partitaAggiunta(p);
+		}
+	}
+
+	/**
+	 * Notifica agli ascoltatori che la partita passata in input e' stata
+	 * modificata (squadre, stadio o data), ad esempio tramite la tabella delle
+	 * partite.
+	 * 
+	 * @param p
+	 *            - La partita modificata.
+	 * @author Maurizio Casciano
+	 */
+	public synchronized void notificaPartitaModificata(Partita p) {
+		this.aggiornaPartita(p);
+
+		for (StrutturaSportivaListener l : this.getListeners()) {
+			l.partitaModificata(p);
+		}
+	}
+
+	/**
+	 * Aggiorna il calendario delle partite e la scadenza delle prenotazioni
+	 * per una partita, ad esempio dopo che ne e' stata modificata la data. Non
+	 * notifica gli ascoltatori.
+	 * 
+	 * @param p
+	 *            - La partita modificata.
+	 * @author Maurizio Casciano
+	 */
+	public synchronized void aggiornaPartita(Partita p) {
+		if (this.calendario != null) {
+			this.calendario.rimuovi(p);
+			this.calendario.aggiungi(p);
+		}
+		this.aggiornaScadenzePrenotazioni(p);
+	}
+
+	/**
+	 * Ricalcola la scadenza delle prenotazioni per una partita.
+	 */
+	private void aggiornaScadenzePrenotazioni(Partita p) {
+		if (this.scadenze == null) {
+			return;
+		}
+
+		for (Prenotazione pren : this.prenotazioni) {
+			if (pren.getPartita() == p) {
+				this.scadenze.aggiungi(pren, this.calcolaScadenza(pren));
+			}
+		}
+	}
+
+	/**
+	 * Rimuove una {@link Partita} dal database, insieme alle prenotazioni,
+	 * agli acquisti e agli sconti ad essa collegati.
+	 * 
+	 * @param p
+	 *            - La partita da rimuovere.
+	 * @author Maurizio Casciano
+	 */
+	public synchronized void rimuoviPartita(Partita p) {
+		int indice = this.indiceDi(p);
+
+		if (indice != -1) {
+			this.cancellaPrenotazioniAcquistiScontiPerPartita(p);
+			CalendarioPartite calendario = this.getCalendario();
+			this.partiteProgrammate.remove(indice);
+			calendario.rimuovi(p);
+
+			for (StrutturaSportivaListener l : this.getListeners()) {
+				l.partitaRimossa(indice);
+			}
+		}
+	}
+
+	/**
+	 * Restituisce la posizione della partita passata in input tra le partite
+	 * programmate. Il confronto avviene per riferimento, in quanto le partite
+	 * possono essere modificate dopo l'inserimento.
+	 * 
+	 * @param p
+	 *            - La partita da cercare.
+	 * @return La posizione della partita, oppure -1 se non presente.
+	 * @author Maurizio Casciano
+	 */
+	public int indiceDi(Partita p) {
+		for (int i = 0; i < this.partiteProgrammate.size(); i++) {
+			if (this.partiteProgrammate.get(i) == p) {
+				return i;
+			}
+		}
+		return -1;
 	}
 
 	/**
@@ -125,99 +349,697 @@ public class StrutturaSportiva implements Serializable {
 	 * @author Maurzio Casciano
 	 * @author Gaetano Antonucci
 	 */
-	public void addStadio(Stadio s) throws AlreadyExistsObjectException {
+	public synchronized void addStadio(Stadio s) throws AlreadyExistsObjectException {
+
+		if (this.getInsiemeStadi().contains(s)) {
+			throw new AlreadyExistsObjectException("Stadio con lo stesso nome gia' presente !!!");
+		}
+
+		this.stadi.add(s);
+		this.insiemeStadi.add(s);
+
+		for (StrutturaSportivaListener l : this.getListeners()) {
+			l.stadioAggiunto(s);
+		}
+	}
+
+	/**
+	 * Modifica la capienza ed il prezzo per partita di uno {@link Stadio}.
+	 * 
+	 * @param s
+	 *            - Lo stadio da modificare.
+	 * @param capienza
+	 *            - La nuova capienza desiderata.
+	 * @param prezzo
+	 *            - Il nuovo prezzo per partita.
+	 * @author Maurizio Casciano
+	 */
+	public synchronized void modificaStadio(Stadio s, int capienza, double prezzo) {
+		if (s.getCapienzaDesiderataStadio() != capienza) {
+			s.setCapienzaStadio(capienza);
+		}
+		s.setPrezzoPerPartita(prezzo);
+
+		for (StrutturaSportivaListener l : this.getListeners()) {
+			l.stadioModificato(s);
+		}
+	}
+
+	/**
+	 * Restituisce lo {@link Stadio} con il nome passato in input.
+	 * 
+	 * @param nome
+	 *            - Il nome dello stadio (non si distingue tra maiuscole e
+	 *            minuscole).
+	 * @return Lo stadio trovato, oppure {@code null} se non presente.
+	 * @author Maurizio Casciano
+	 */
+	public Stadio getStadio(String nome) {
+		for (Stadio s : this.stadi) {
+			if (s.getNome().equalsIgnoreCase(nome)) {
+				return s;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Aggiunge una politica di sconto ({@link Sconto}) al database.
+	 * 
+	 * @param sconto
+	 *            - La politica di sconto da inserire.
+	 * @throws AlreadyExistsObjectException
+	 *             Ecceziona lanciata nel caso in cui la politica di sconto che
+	 *             si vuole inserire gia' e' nel database
+	 * @author Gaetano Antonucci
+	 * @author Maurizio Casciano
+	 */
+	public synchronized void addSconto(Sconto sconto) throws AlreadyExistsObjectException {
+
+		if (this.getInsiemeSconti().contains(sconto)) {
+			throw new AlreadyExistsObjectException("Politica di Sconto gia' presente !!!");
+		}
+		this.sconti.add(sconto);
+		this.insiemeSconti.add(sconto);
+		this.indiceSconti = null;
+
+		for (StrutturaSportivaListener l : this.getListeners()) {
+			l.scontoAggiunto(sconto);
+		}
+	}
+
+	/**
+	 * Rimuove una politica di sconto dal database.
+	 * 
+	 * @param sconto
+	 *            - La politica di sconto da rimuovere.
+	 * @author Maurizio Casciano
+	 */
+	public synchronized void rimuoviSconto(Sconto sconto) {
+		if (this.sconti.remove(sconto)) {
+			this.indiceSconti = null;
+			this.insiemeSconti = null;
+
+			for (StrutturaSportivaListener l : this.getListeners()) {
+				l.scontoRimosso(sconto);
+			}
+		}
+	}
+
+	/**
+	 * Aggiunge una {@link Prenotazione} al database. Un cliente puo' prenotare
+	 * un solo posto per partita, salvo con un ordine di gruppo
+	 * ({@link #prenotaPosti(Cliente, Partita, ArrayList)}).
+	 * 
+	 * @param pren
+	 *            - La prenotazione da inserire.
+	 * @throws AlreadyExistsObjectException
+	 *             Ecceziona lanciata nel caso in cui nel database sia gia'
+	 *             presente una prenotazione del cliente per la partita
+	 * @author Gaetano Antonucci
+	 * @author Maurizio Casciano
+	 */
+	public synchronized void addPrenotazione(Prenotazione pren) throws AlreadyExistsObjectException {
+
+		if (this.verificaPrenotazione(pren.getCliente(), pren.getPartita())) {
+			throw new AlreadyExistsObjectException("Prenotazione gia' presente !!!");
+		}
+		this.prenotazioni.add(pren);
+		this.indicePrenotazioni.aggiungi(pren.getCliente(), pren.getPartita(), pren);
+		this.getScadenze().aggiungi(pren, this.calcolaScadenza(pren));
+
+		for (StrutturaSportivaListener l : this.getListeners()) {
+			l.prenotazioneAggiunta(pren);
+		}
+	}
+
+	/**
+	 * Aggiunge l'acquisto di un biglietto al database. Un cliente puo'
+	 * acquistare un solo posto per partita, salvo con un ordine di gruppo
+	 * ({@link #acquistaPosti(Cliente, Partita, ArrayList)}).
+	 * 
+	 * @param acq
+	 *            - L'acquisto da inserire
+	 * @throws AlreadyExistsObjectException
+	 *             Ecceziona lanciata nel caso in cui nel database sia gia'
+	 *             presente un acquisto del cliente per la partita
+	 * @author Gaetano Antonucci
+	 * @author Maurizio Casciano
+	 */
+	public synchronized void addAcquisto(Acquisto acq) throws AlreadyExistsObjectException {
+
+		if (this.verificaAcquisto(acq.getCliente(), acq.getPartita())) {
+			throw new AlreadyExistsObjectException("Acquisto gia' presente !!!");
+		}
+		this.acquisti.add(acq);
+		this.indiceAcquisti.aggiungi(acq.getCliente(), acq.getPartita(), acq);
+		this.incassi.aggiungi(acq);
+
+		for (StrutturaSportivaListener l : this.getListeners()) {
+			l.acquistoAggiunto(acq);
+		}
+	}
+
+	/**
+	 * Aggiunge al database le prenotazioni di un ordine di gruppo, tutte
+	 * dello stesso cliente per la stessa partita, e le notifica agli
+	 * ascoltatori con un'unica modifica. Lo stato dei posti deve essere gia'
+	 * stato impostato come {@link SeatStatus#PRENOTATO}.
+	 * 
+	 * @param gruppo
+	 *            - Le prenotazioni da inserire.
+	 * @throws AlreadyExistsObjectException
+	 *             Se nel database e' gia' presente una prenotazione o un
+	 *             acquisto del cliente per la partita.
+	 * @author Maurizio Casciano
+	 */
+	public synchronized void addPrenotazioni(ArrayList<Prenotazione> gruppo) throws AlreadyExistsObjectException {
+		Cliente cliente = gruppo.get(0).getCliente();
+		Partita partita = gruppo.get(0).getPartita();
+
+		for (Prenotazione pren : gruppo) {
+			if (!pren.getCliente().equals(cliente) || !pren.getPartita().equals(partita)) {
+				throw new IllegalArgumentException("Un ordine di gruppo riguarda un solo cliente e una sola partita");
+			}
+		}
+
+		if (this.verificaPrenotazione(cliente, partita) || this.verificaAcquisto(cliente, partita)) {
+			throw new AlreadyExistsObjectException("Prenotazione gia' presente !!!");
+		}
+		this.prenotazioni.addAll(gruppo);
+
+		for (Prenotazione pren : gruppo) {
+			this.indicePrenotazioni.aggiungi(pren.getCliente(), pren.getPartita(), pren);
+			this.getScadenze().aggiungi(pren, this.calcolaScadenza(pren));
+		}
+
+		for (StrutturaSportivaListener l : this.getListeners()) {
+			l.prenotazioniAggiunte(gruppo);
+		}
+	}
+
+	/**
+	 * Aggiunge al database gli acquisti di un ordine di gruppo, tutti dello
+	 * stesso cliente per la stessa partita, e li notifica agli ascoltatori con
+	 * un'unica modifica. Lo stato dei posti deve essere gia' stato impostato
+	 * come {@link SeatStatus#VENDUTO}.
+	 * 
+	 * @param gruppo
+	 *            - Gli acquisti da inserire.
+	 * @throws AlreadyExistsObjectException
+	 *             Se nel database e' gia' presente un acquisto del cliente
+	 *             per la partita.
+	 * @author Maurizio Casciano
+	 */
+	public synchronized void addAcquisti(ArrayList<Acquisto> gruppo) throws AlreadyExistsObjectException {
+		this.aggiungiAcquisti(gruppo);
+
+		for (StrutturaSportivaListener l : this.getListeners()) {
+			l.acquistiAggiunti(gruppo);
+		}
+	}
+
+	/**
+	 * Aggiunge al database gli acquisti di un ordine di gruppo senza
+	 * notificarli agli ascoltatori.
+	 */
+	private void aggiungiAcquisti(ArrayList<Acquisto> gruppo) throws AlreadyExistsObjectException {
+		Cliente cliente = gruppo.get(0).getCliente();
+		Partita partita = gruppo.get(0).getPartita();
+
+		for (Acquisto acq : gruppo) {
+			if (!acq.getCliente().equals(cliente) || !acq.getPartita().equals(partita)) {
+				throw new IllegalArgumentException("Un ordine di gruppo riguarda un solo cliente e una sola partita");
+			}
+		}
+
+		if (this.verificaAcquisto(cliente, partita)) {
+			throw new AlreadyExistsObjectException("Acquisto gia' presente !!!");
+		}
+		this.acquisti.addAll(gruppo);
+
+		for (Acquisto acq : gruppo) {
+			this.indiceAcquisti.aggiungi(acq.getCliente(), acq.getPartita(), acq);
+			this.incassi.aggiungi(acq);
+		}
+	}
+
+	/**
+	 * Imposta lo stato del posto di una partita e notifica la modifica agli
+	 * ascoltatori. Il posto passato in input puo' essere anche quello
+	 * memorizzato in un {@link Biglietto}: verra' aggiornato il corrispondente
+	 * posto della partita.
+	 * 
+	 * @param partita
+	 *            - La partita a cui appartiene il posto.
+	 * @param posto
+	 *            - Il posto da aggiornare.
+	 * @param nuovoStato
+	 *            - Il nuovo stato del posto.
+	 * @author Maurizio Casciano
+	 */
+	public synchronized void aggiornaStatoPosto(Partita partita, Posto posto, SeatStatus nuovoStato) {
+		Posto postoPartita = partita.cercaPosto(posto);
+
+		if (postoPartita != null) {
+			postoPartita.setStato(nuovoStato);
+
+			for (StrutturaSportivaListener l : this.getListeners()) {
+				l.statoPostoModificato(partita, postoPartita);
+			}
+		}
+	}
+
+	/**
+	 * Occupa il posto di una partita soltanto se e' ancora libero, e notifica
+	 * la modifica agli ascoltatori. La verifica e la modifica dello stato
+	 * avvengono in un'unica operazione atomica, senza bloccare la
+	 * StrutturaSportiva: se piu' thread tentano di occupare lo stesso posto,
+	 * soltanto uno ci riesce.
+	 * 
+	 * @param partita
+	 *            - La partita a cui appartiene il posto.
+	 * @param posto
+	 *            - Il posto da occupare, anche quello di un {@link Biglietto}.
+	 * @param nuovoStato
+	 *            - {@link SeatStatus#PRENOTATO} oppure
+	 *            {@link SeatStatus#VENDUTO}.
+	 * @throws PostoIndisponibileException
+	 *             Se il posto non e' libero oppure non appartiene alla
+	 *             partita.
+	 * @author Maurizio Casciano
+	 */
+	public void occupaPosto(Partita partita, Posto posto, SeatStatus nuovoStato) throws PostoIndisponibileException {
+		int indice = partita.indicePosto(posto);
+
+		if (indice == -1) {
+			throw new PostoIndisponibileException("Il posto non appartiene alla partita selezionata");
+		}
+
+		SeatStatus attuale = partita.getStatoPosti().occupa(indice, nuovoStato);
+
+		if (attuale != SeatStatus.LIBERO) {
+			throw new PostoIndisponibileException("Il posto selezionato e' gia' " + attuale.toString().toLowerCase());
+		}
+
+		Posto postoPartita = partita.getPosto(indice);
+
+		synchronized (this) {
+			for (StrutturaSportivaListener l : this.getListeners()) {
+				l.statoPostoModificato(partita, postoPartita);
+			}
+		}
+	}
+
+	/**
+	 * Prenota per un cliente tutti i posti indicati di una partita, oppure
+	 * nessuno (ordine di gruppo). I posti vengono occupati con un'unica
+	 * scansione dello stato dei posti della partita e le prenotazioni vengono
+	 * aggiunte e notificate agli ascoltatori con un'unica modifica, che
+	 * comprende lo stato dei posti. L'occupazione, l'aggiunta e l'eventuale
+	 * rilascio dei posti avvengono sincronizzandosi sulla StrutturaSportiva,
+	 * per cui un checkpoint non puo' salvare posti occupati da un ordine non
+	 * ancora aggiunto.
+	 * 
+	 * @param cliente
+	 *            - Il cliente che effettua l'ordine.
+	 * @param partita
+	 *            - La partita.
+	 * @param posti
+	 *            - I posti da prenotare, ad esempio quelli restituiti da
+	 *            {@link #findBestAvailable(Partita, int, PreferenzePosti)}.
+	 * @return Le prenotazioni aggiunte.
+	 * @throws PostoIndisponibileException
+	 *             Se uno dei posti non e' libero oppure non appartiene alla
+	 *             partita; in tal caso nessun posto viene prenotato.
+	 * @throws AlreadyExistsObjectException
+	 *             Se nel database e' gia' presente una prenotazione o un
+	 *             acquisto del cliente per la partita.
+	 * @author Maurizio Casciano
+	 */
+	public synchronized ArrayList<Prenotazione> prenotaPosti(Cliente cliente, Partita partita, ArrayList<Posto> posti)
+			throws PostoIndisponibileException, AlreadyExistsObjectException {
+		ArrayList<Posto> postiPartita = this.occupaPosti(partita, posti, SeatStatus.PRENOTATO);
+		ArrayList<Prenotazione> gruppo = new ArrayList<>();
+
+		for (Posto posto : postiPartita) {
+			gruppo.add(new Prenotazione(this, cliente, partita, posto.getSettore(), posto.getNumeroFila(),
+					posto.getNumeroPosto()));
+		}
+
+		try {
+			this.addPrenotazioni(gruppo);
+		} catch (AlreadyExistsObjectException e) {
+			this.liberaPosti(partita, postiPartita);
+			throw e;
+		}
+		return gruppo;
+	}
+
+	/**
+	 * Acquista per un cliente tutti i posti indicati di una partita, oppure
+	 * nessuno (ordine di gruppo), come
+	 * {@link #prenotaPosti(Cliente, Partita, ArrayList)}.
+	 * 
+	 * @param cliente
+	 *            - Il cliente che effettua l'ordine.
+	 * @param partita
+	 *            - La partita.
+	 * @param posti
+	 *            - I posti da acquistare.
+	 * @return Gli acquisti aggiunti.
+	 * @throws PostoIndisponibileException
+	 *             Se uno dei posti non e' libero oppure non appartiene alla
+	 *             partita; in tal caso nessun posto viene acquistato.
+	 * @throws AlreadyExistsObjectException
+	 *             Se nel database e' gia' presente una prenotazione (da
+	 *             completare con {@link #completaPrenotazioni(Cliente, Partita)})
+	 *             o un acquisto del cliente per la partita.
+	 * @author Maurizio Casciano
+	 */
+	public synchronized ArrayList<Acquisto> acquistaPosti(Cliente cliente, Partita partita, ArrayList<Posto> posti)
+			throws PostoIndisponibileException, AlreadyExistsObjectException {
+		if (this.verificaPrenotazione(cliente, partita)) {
+			throw new AlreadyExistsObjectException("Prenotazione gia' presente, completarla !!!");
+		}
+
+		ArrayList<Posto> postiPartita = this.occupaPosti(partita, posti, SeatStatus.VENDUTO);
+		ArrayList<Acquisto> gruppo = new ArrayList<>();
+
+		for (Posto posto : postiPartita) {
+			gruppo.add(new Acquisto(cliente, partita, posto.getSettore(), posto.getNumeroFila(),
+					posto.getNumeroPosto(), this));
+		}
+
+		try {
+			this.addAcquisti(gruppo);
+		} catch (AlreadyExistsObjectException e) {
+			this.liberaPosti(partita, postiPartita);
+			throw e;
+		}
+		return gruppo;
+	}
+
+	/**
+	 * Trasforma in acquisti tutte le prenotazioni di un cliente per una
+	 * partita, anche quelle di un ordine di gruppo, con
+	 * {@link #completaPrenotazioni(ArrayList)}.
+	 * 
+	 * @param cliente
+	 *            - Il cliente che ha prenotato.
+	 * @param partita
+	 *            - La partita prenotata.
+	 * @return Gli acquisti aggiunti, nessuno se il cliente non ha prenotazioni
+	 *         per la partita.
+	 * @throws AlreadyExistsObjectException
+	 *             Se nel database e' gia' presente un acquisto del cliente
+	 *             per la partita.
+	 * @author Maurizio Casciano
+	 */
+	public synchronized ArrayList<Acquisto> completaPrenotazioni(Cliente cliente, Partita partita)
+			throws AlreadyExistsObjectException {
+		ArrayList<Prenotazione> daCompletare = new ArrayList<>(this.getIndicePrenotazioni().get(cliente, partita));
+		ArrayList<Acquisto> gruppo = new ArrayList<>();
+
+		if (daCompletare.isEmpty()) {
+			return gruppo;
+		}
+
+		if (this.verificaAcquisto(cliente, partita)) {
+			throw new AlreadyExistsObjectException("Acquisto gia' presente !!!");
+		}
+
+		for (Prenotazione pren : daCompletare) {
+			gruppo.add(Acquisto.completa(pren));
+		}
+
+		this.completaPrenotazioni(gruppo);
+		return gruppo;
+	}
+
+	/**
+	 * Sostituisce tutte le prenotazioni di un cliente per una partita con gli
+	 * acquisti indicati, tutti dello stesso cliente per la stessa partita. Le
+	 * prenotazioni vengono cancellate con un'unica scansione della lista
+	 * (anche dalle scadenze, per cui i loro posti non verranno liberati)
+	 * soltanto dopo l'aggiunta degli acquisti, i posti degli acquisti
+	 * diventano {@link SeatStatus#VENDUTO} e la sostituzione viene notificata
+	 * agli ascoltatori con un'unica modifica.
+	 * 
+	 * @param gruppo
+	 *            - Gli acquisti che completano le prenotazioni.
+	 * @throws AlreadyExistsObjectException
+	 *             Se nel database e' gia' presente un acquisto del cliente
+	 *             per la partita.
+	 * @throws IllegalArgumentException
+	 *             Se il cliente non ha prenotazioni per la partita.
+	 * @author Maurizio Casciano
+	 */
+	public synchronized void completaPrenotazioni(ArrayList<Acquisto> gruppo) throws AlreadyExistsObjectException {
+		Partita partita = gruppo.get(0).getPartita();
+		ArrayList<Prenotazione> completate = new ArrayList<>(
+				this.getIndicePrenotazioni().get(gruppo.get(0).getCliente(), partita));
+
+		if (completate.isEmpty()) {
+			throw new IllegalArgumentException("Nessuna prenotazione da completare");
+		}
+
+		this.aggiungiAcquisti(gruppo);
+		this.rimuoviPrenotazioni(completate);
+
+		for (Acquisto acq : gruppo) {
+			int indice = partita.indicePosto(acq.getPosto());
+
+			if (indice != -1) {
+				partita.getStatoPosti().setStato(indice, SeatStatus.VENDUTO);
+			}
+		}
+
+		for (StrutturaSportivaListener l : this.getListeners()) {
+			l.prenotazioniCompletate(completate, gruppo);
+		}
+	}
+
+	/**
+	 * Occupa tutti i posti indicati della partita oppure nessuno, e
+	 * restituisce i corrispondenti posti della partita.
+	 */
+	private ArrayList<Posto> occupaPosti(Partita partita, ArrayList<Posto> posti, SeatStatus nuovoStato)
+			throws PostoIndisponibileException {
+		if (posti.isEmpty()) {
+			throw new IllegalArgumentException("Nessun posto selezionato");
+		}
+
+		ArrayList<Posto> postiPartita = new ArrayList<>();
+		int[] indici = new int[posti.size()];
+
+		for (int i = 0; i < indici.length; i++) {
+			Posto postoPartita = partita.cercaPosto(posti.get(i));
+
+			if (postoPartita == null) {
+				throw new PostoIndisponibileException("Il posto non appartiene alla partita selezionata");
+			}
+			postiPartita.add(postoPartita);
+			indici[i] = partita.indicePosto(postoPartita);
+		}
+
+		int nonLibero = partita.getStatoPosti().occupaTutti(indici, nuovoStato);
+
+		if (nonLibero != -1) {
+			Posto posto = postiPartita.get(nonLibero);
+
+			throw new PostoIndisponibileException("Il posto " + posto.getNumeroPosto() + " della fila "
+					+ posto.getNumeroFila() + " (" + posto.getSettore().getNomeSettore() + ") e' gia' "
+					+ posto.getStato().toString().toLowerCase());
+		}
+		return postiPartita;
+	}
+
+	/**
+	 * Libera i posti occupati da un ordine di gruppo non andato a buon fine;
+	 * l'occupazione non era stata notificata agli ascoltatori, ne' vista da un
+	 * checkpoint in quanto avvenuta senza rilasciare la StrutturaSportiva.
+	 */
+	private void liberaPosti(Partita partita, ArrayList<Posto> postiPartita) {
+		for (Posto posto : postiPartita) {
+			partita.getStatoPosti().setStato(partita.indicePosto(posto), SeatStatus.LIBERO);
+		}
+	}
+
+	/**
+	 * Libera il posto di un biglietto della partita senza notificarlo agli
+	 * ascoltatori.
+	 */
+	private void liberaPosto(Partita partita, Posto posto) {
+		int indice = partita.indicePosto(posto);
+
+		if (indice != -1) {
+			partita.getStatoPosti().setStato(indice, SeatStatus.LIBERO);
+		}
+	}
+
+	/**
+	 * Restituisce tutte le partite programmate.
+	 * 
+	 * @return Tutte le partite programmate.
+	 * @author Maurizio Casciano
+	 */
+	public ArrayList<Partita> getPartiteProgrammate() {
+		return this.partiteProgrammate;
+	}
+
+	/**
+	 * Restituisce le partite programmate filtrate dal Filtro passato in input.
+	 * Le partite di una settimana e quelle non ancora iniziate sono ricavate
+	 * dal calendario, in ordine di data.
+	 * 
+	 * @param myFilter
+	 *            Il filtro da applicare.
+	 * @return Le partite programmate dopo l'applicazione del filtro.
+	 * @author Maurizio Casciano
+	 */
+	public ArrayList<Partita> getPartiteProgrammate(Filter myFilter) {
+		return this.getPartiteProgrammate(myFilter, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Restituisce al piu' {@code limite} partite programmate filtrate dal
+	 * Filtro passato in input. Se il filtro, anche combinato con
+	 * {@link MatchAndFilter}, richiede le partite di una settimana o quelle non
+	 * ancora iniziate, le partite candidate sono ricavate dal calendario, in
+	 * ordine di data, e ad esse si applica il filtro completo.
+	 * 
+	 * @param myFilter
+	 *            Il filtro da applicare.
+	 * @param limite
+	 *            - Il numero massimo di partite da restituire.
+	 * @return Le partite programmate dopo l'applicazione del filtro.
+	 * @author Maurizio Casciano
+	 */
+	public synchronized ArrayList<Partita> getPartiteProgrammate(Filter myFilter, int limite) {
+		ArrayList<Partita> candidate = this.getPartiteCandidate(myFilter);
+
+		if (candidate == null) {
+			candidate = this.partiteProgrammate;
+		}
+
+		ArrayList<Partita> filteredByWeek = new ArrayList<>();
+
+		for (int i = 0; i < candidate.size() && filteredByWeek.size() < limite; i++) {
+			if (myFilter.accept(candidate.get(i))) {
+				filteredByWeek.add(candidate.get(i));
+			}
+		}
+		return filteredByWeek;
+	}
+
+	/**
+	 * Restituisce le partite del calendario tra cui cercare quelle che
+	 * soddisfano il filtro, scegliendo tra i filtri combinati quello che ne
+	 * seleziona di meno, oppure {@code null} se bisogna esaminarle tutte.
+	 */
+	private ArrayList<Partita> getPartiteCandidate(Filter myFilter) {
+		if (myFilter.getClass() == MatchByWeekFilter.class) {
+			return this.getCalendario().getPerSettimana(((MatchByWeekFilter) myFilter).getData());
+		}
 
-		if (this.stadi.contains(s)) {
-			throw new AlreadyExistsObjectException("Stadio con lo stesso nome gia' presente !!!");
+		if (myFilter.getClass() == MatchNotYetStartedFilter.class) {
+			return this.getCalendario().getDopo(System.currentTimeMillis());
 		}
 
-		this.stadi.add(s);
+		ArrayList<Partita> migliori = null;
+
+		if (myFilter.getClass() == MatchAndFilter.class) {
+			for (Filter filtro : ((MatchAndFilter) myFilter).getFiltri()) {
+				ArrayList<Partita> candidate = this.getPartiteCandidate(filtro);
+
+				if (candidate != null && (migliori == null || candidate.size() < migliori.size())) {
+					migliori = candidate;
+				}
+			}
+		}
+		return migliori;
 	}
 
 	/**
-	 * Aggiunge una politica di sconto ({@link Sconto}) al database.
+	 * Restituisce le partite programmate che iniziano tra le due date passate
+	 * in input, estremi compresi, in ordine di data.
 	 * 
-	 * @param sconto
-	 *            - La politica di sconto da inserire.
-	 * @throws AlreadyExistsObjectException
-	 *             Ecceziona lanciata nel caso in cui la politica di sconto che
-	 *             si vuole inserire gia' e' nel database
-	 * @author Gaetano Antonucci
+	 * @param da
+	 *            - La data di inizio dell'intervallo.
+	 * @param a
+	 *            - La data di fine dell'intervallo.
+	 * @return Le partite dell'intervallo.
 	 * @author Maurizio Casciano
 	 */
-	public void addSconto(Sconto sconto) throws AlreadyExistsObjectException {
-
-		if (this.sconti.contains(sconto)) {
-			throw new AlreadyExistsObjectException("Politica di Sconto gia' presente !!!");
-		}
-		this.sconti.add(sconto);
+	public synchronized ArrayList<Partita> getPartiteTra(GregorianCalendar da, GregorianCalendar a) {
+		return this.getCalendario().getTra(da.getTimeInMillis(), a.getTimeInMillis());
 	}
 
 	/**
-	 * Aggiunge una {@link Prenotazione} al database.
+	 * Restituisce la settimana di una partita, nella forma
+	 * {@code anno * 100 + settimana dell'anno}, letta dal calendario delle
+	 * partite senza calcolare i campi della data.
 	 * 
-	 * @param pren
-	 *            - La prenotazione da inserire.
-	 * @throws AlreadyExistsObjectException
-	 *             Ecceziona lanciata nel caso in cui la prenotazione che si
-	 *             vuole inserire gia' e' nel database
-	 * @author Gaetano Antonucci
+	 * @param partita
+	 *            - La partita.
+	 * @return La settimana della partita.
 	 * @author Maurizio Casciano
 	 */
-	public void addPrenotazione(Prenotazione pren) throws AlreadyExistsObjectException {
-
-		if (this.prenotazioni.contains(pren)) {
-			throw new AlreadyExistsObjectException("Prenotazione gia' presente !!!");
-		}
-		this.prenotazioni.add(pren);
+	public synchronized int getSettimana(Partita partita) {
+		return this.getCalendario().getSettimana(partita);
 	}
 
 	/**
-	 * Aggiunge l'acquisto di un biglietto al database.
+	 * Restituisce la settimana di una data, nella stessa forma di
+	 * {@link #getSettimana(Partita)}.
 	 * 
-	 * @param acq
-	 *            - L'acquisto da inserire
-	 * @throws AlreadyExistsObjectException
-	 *             Ecceziona lanciata nel caso in cui l'acquisto che si vuole
-	 *             inserire gia' e' nel database
-	 * @author Gaetano Antonucci
+	 * @param data
+	 *            - La data.
+	 * @return La settimana della data.
 	 * @author Maurizio Casciano
 	 */
-	public void addAcquisto(Acquisto acq) throws AlreadyExistsObjectException {
+	public static int getSettimana(GregorianCalendar data) {
+		return CalendarioPartite.settimana(data);
+	}
 
-		if (this.acquisti.contains(acq)) {
-			throw new AlreadyExistsObjectException("Acquisto gia' presente !!!");
+	/**
+	 * Restituisce l'insieme degli stadi, usato per verificare che non ci siano
+	 * due stadi con lo stesso nome, creandolo alla prima richiesta oppure dopo
+	 * {@link #invalidaIndici()}.
+	 */
+	private HashSet<Stadio> getInsiemeStadi() {
+		if (this.insiemeStadi == null) {
+			this.insiemeStadi = new HashSet<>(this.stadi);
 		}
-		this.acquisti.add(acq);
+		return this.insiemeStadi;
 	}
 
 	/**
-	 * Restituisce tutte le partite programmate.
-	 * 
-	 * @return Tutte le partite programmate.
-	 * @author Maurizio Casciano
+	 * Restituisce l'insieme degli sconti, usato per verificare che non ci
+	 * siano due sconti uguali, creandolo alla prima richiesta oppure dopo
+	 * {@link #invalidaIndici()}.
 	 */
-	public ArrayList<Partita> getPartiteProgrammate() {
-		return this.partiteProgrammate;
+	private HashSet<Sconto> getInsiemeSconti() {
+		if (this.insiemeSconti == null) {
+			this.insiemeSconti = new HashSet<>(this.sconti);
+		}
+		return this.insiemeSconti;
 	}
 
 	/**
-	 * Restituisce le partite programmate filtrate dal Filtro passato in input.
-	 * 
-	 * @param myFilter
-	 *            Il filtro da applicare.
-	 * @return Le partite programmate dopo l'applicazione del filtro.
-	 * @author Maurizio Casciano
+	 * Restituisce il calendario delle partite, creandolo alla prima richiesta
+	 * oppure dopo {@link #invalidaIndici()}.
 	 */
-	public ArrayList<Partita> getPartiteProgrammate(Filter myFilter) {
-		ArrayList<Partita> filteredByWeek = new ArrayList<>();
+	private CalendarioPartite getCalendario() {
+		if (this.calendario == null) {
+			this.calendario = new CalendarioPartite();
 
-		for (int i = 0; i < this.partiteProgrammate.size(); i++) {
-			if (myFilter.accept(this.partiteProgrammate.get(i))) {
-				filteredByWeek.add(this.partiteProgrammate.get(i));
+			for (Partita p : this.partiteProgrammate) {
+				this.calendario.aggiungi(p);
 			}
 		}
-		return filteredByWeek;
+		return this.calendario;
 	}
 
 	/**
@@ -278,25 +1100,104 @@ public class StrutturaSportiva implements Serializable {
 	}
 
 	/**
-	 * Restituisce le prenotazioni in base al filtro passato in input.
+	 * Restituisce le prenotazioni in base al filtro passato in input. I filtri
+	 * per cliente, partita o stadio sono risolti tramite l'indice delle
+	 * prenotazioni, gli altri esaminando tutte le prenotazioni.
 	 * 
 	 * @param filtroPrenotazioni
 	 *            Il filtro da applicare
 	 * @return ArrayList con le prenotazioni ottenute.
 	 * @author Gaetano Antonucci
+	 * @author Maurizio Casciano
 	 */
 	public ArrayList<Prenotazione> getPrenotazioniFiltrate(PrenotationFilter filtroPrenotazioni) {
+		return this.getPrenotazioniFiltrate(filtroPrenotazioni, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Restituisce al piu' {@code limite} prenotazioni, nell'ordine di
+	 * inserimento, in base al filtro passato in input. Le prenotazioni
+	 * candidate sono lette dall'indice delle prenotazioni quando il filtro,
+	 * anche combinato con {@link PrenotationAndFilter} e
+	 * {@link PrenotationOrFilter}, e' per cliente, partita o stadio: tra i
+	 * filtri in AND si usa quello con meno prenotazioni. Alle candidate si
+	 * applica poi il filtro completo, fermandosi raggiunto il limite.
+	 * 
+	 * @param filtroPrenotazioni
+	 *            - Il filtro da applicare.
+	 * @param limite
+	 *            - Il numero massimo di prenotazioni da restituire.
+	 * @return ArrayList con le prenotazioni ottenute.
+	 * @author Maurizio Casciano
+	 */
+	public synchronized ArrayList<Prenotazione> getPrenotazioniFiltrate(PrenotationFilter filtroPrenotazioni,
+			int limite) {
+		Iterator<Prenotazione> candidate = FusioneBiglietti
+				.scorri(this.getSorgentiPrenotazioni(filtroPrenotazioni), this.prenotazioni);
 		ArrayList<Prenotazione> filteredByChoice = new ArrayList<>();
 
-		for (int i = 0; i < this.prenotazioni.size(); i++) {
-			if (filtroPrenotazioni.accept(this.prenotazioni.get(i))) {
-				filteredByChoice.add(this.prenotazioni.get(i));
+		while (filteredByChoice.size() < limite && candidate.hasNext()) {
+			Prenotazione prenotazione = candidate.next();
+
+			if (filtroPrenotazioni.accept(prenotazione)) {
+				filteredByChoice.add(prenotazione);
 			}
 		}
 
 		return filteredByChoice;
 	}
 
+	/**
+	 * Restituisce le sorgenti dell'indice delle prenotazioni che contengono
+	 * tutte quelle che soddisfano il filtro, oppure {@code null} se bisogna
+	 * esaminare tutte le prenotazioni.
+	 */
+	private ArrayList<TreeMap<Long, Prenotazione>> getSorgentiPrenotazioni(PrenotationFilter filtro) {
+		IndiceBiglietti<Prenotazione> indice = this.getIndicePrenotazioni();
+
+		if (filtro.getClass() == PrenotationByCustomerFilter.class) {
+			return indice.getSorgentiPerCliente(((PrenotationByCustomerFilter) filtro).getCliente());
+		}
+
+		if (filtro.getClass() == PrenotationByMatchFilter.class) {
+			return indice.getSorgentiPerPartita(((PrenotationByMatchFilter) filtro).getPartita());
+		}
+
+		if (filtro.getClass() == PrenotationByStadiumFilter.class) {
+			return indice.getSorgentiPerStadio(((PrenotationByStadiumFilter) filtro).getStadio());
+		}
+
+		if (filtro.getClass() == PrenotationAndFilter.class) {
+			ArrayList<TreeMap<Long, Prenotazione>> migliori = null;
+
+			for (PrenotationFilter f : ((PrenotationAndFilter) filtro).getFiltri()) {
+				ArrayList<TreeMap<Long, Prenotazione>> sorgenti = this.getSorgentiPrenotazioni(f);
+
+				if (sorgenti != null
+						&& (migliori == null || IndiceBiglietti.conta(sorgenti) < IndiceBiglietti.conta(migliori))) {
+					migliori = sorgenti;
+				}
+			}
+			return migliori;
+		}
+
+		if (filtro.getClass() == PrenotationOrFilter.class) {
+			ArrayList<TreeMap<Long, Prenotazione>> unione = new ArrayList<>();
+
+			for (PrenotationFilter f : ((PrenotationOrFilter) filtro).getFiltri()) {
+				ArrayList<TreeMap<Long, Prenotazione>> sorgenti = this.getSorgentiPrenotazioni(f);
+
+				if (sorgenti == null) {
+					return null;
+				}
+				unione.addAll(sorgenti);
+			}
+			return unione;
+		}
+
+		return null;
+	}
+
 	/**
 	 * Cancella una prenotazione dal database in base al cliente e alla partita
 	 * 
@@ -306,13 +1207,18 @@ public class StrutturaSportiva implements Serializable {
 	 *            La partita per cui e' stata fatta una prenotazione
 	 * @author Gaetano Antonucci
 	 */
-	public void cancellaPrenotazioneCliente(Cliente c, Partita part) {
+	public synchronized void cancellaPrenotazioneCliente(Cliente c, Partita part) {
 
 		for (int i = (this.prenotazioni.size() - 1); i >= 0; i--) {
 			if ((this.prenotazioni.get(i).getBigliettoPrenotato().getCliente().equals(c))
 					&& this.prenotazioni.get(i).getBigliettoPrenotato().getPartita().equals(part)) {
 
-				this.prenotazioni.remove(i);
+				Prenotazione rimossa = this.prenotazioni.remove(i);
+				this.rimuoviDagliIndici(rimossa);
+
+				for (StrutturaSportivaListener l : this.getListeners()) {
+					l.prenotazioneCancellata(rimossa);
+				}
 			}
 		}
 	}
@@ -326,12 +1232,17 @@ public class StrutturaSportiva implements Serializable {
 	 * 
 	 * @author Gaetano Antonucci
 	 */
-	public void cancellaPrenotazione(Prenotazione prenotazioneDaCancellare) {
+	public synchronized void cancellaPrenotazione(Prenotazione prenotazioneDaCancellare) {
 
 		if (prenotazioneDaCancellare != null) {
 			for (int i = (this.prenotazioni.size() - 1); i >= 0; i--) {
 				if (this.prenotazioni.get(i).equals(prenotazioneDaCancellare)) {
-					this.prenotazioni.remove(i);
+					Prenotazione rimossa = this.prenotazioni.remove(i);
+					this.rimuoviDagliIndici(rimossa);
+
+					for (StrutturaSportivaListener l : this.getListeners()) {
+						l.prenotazioneCancellata(rimossa);
+					}
 				}
 			}
 		}
@@ -349,17 +1260,8 @@ public class StrutturaSportiva implements Serializable {
 	 * @return {@code boolean} con l'esito della verifica.
 	 * @author Gaetano Antonucci
 	 */
-	public boolean verificaPrenotazione(Cliente clt, Partita prt) {
-		boolean result = false;
-
-		for (Prenotazione prenotazione : this.prenotazioni) {
-			if ((prenotazione.getBigliettoPrenotato().getCliente().equals(clt))
-					&& (prenotazione.getBigliettoPrenotato().getPartita().equals(prt))) {
-				result = true;
-			}
-		}
-
-		return result;
+	public synchronized boolean verificaPrenotazione(Cliente clt, Partita prt) {
+		return !this.getIndicePrenotazioni().get(clt, prt).isEmpty();
 	}
 
 	/**
@@ -373,24 +1275,102 @@ public class StrutturaSportiva implements Serializable {
 	}
 
 	/**
-	 * Restituisce gli acquisti in base al filtro passato in input.
+	 * Restituisce gli acquisti in base al filtro passato in input. I filtri
+	 * per cliente, partita o stadio sono risolti tramite l'indice degli
+	 * acquisti, gli altri esaminando tutti gli acquisti.
 	 * 
 	 * @param filtroAcquisti
 	 *            - Il filtro da applicare.
 	 * @return ArrayList con gli acquisti ottenuti.
 	 * @author Gaetano Antonucci
+	 * @author Maurizio Casciano
 	 */
 	public ArrayList<Acquisto> getAcquistiFiltrati(PurchaseFilter filtroAcquisti) {
+		return this.getAcquistiFiltrati(filtroAcquisti, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Restituisce al piu' {@code limite} acquisti, nell'ordine di inserimento,
+	 * in base al filtro passato in input. Gli acquisti candidati sono letti
+	 * dall'indice degli acquisti quando il filtro, anche combinato con
+	 * {@link PurchaseAndFilter} e {@link PurchaseOrFilter}, e' per cliente,
+	 * partita o stadio: tra i filtri in AND si usa quello con meno acquisti.
+	 * Ai candidati si applica poi il filtro completo, fermandosi raggiunto il
+	 * limite.
+	 * 
+	 * @param filtroAcquisti
+	 *            - Il filtro da applicare.
+	 * @param limite
+	 *            - Il numero massimo di acquisti da restituire.
+	 * @return ArrayList con gli acquisti ottenuti.
+	 * @author Maurizio Casciano
+	 */
+	public synchronized ArrayList<Acquisto> getAcquistiFiltrati(PurchaseFilter filtroAcquisti, int limite) {
+		Iterator<Acquisto> candidati = FusioneBiglietti.scorri(this.getSorgentiAcquisti(filtroAcquisti),
+				this.acquisti);
 		ArrayList<Acquisto> filteredByChoice = new ArrayList<>();
 
-		for (int i = 0; i < this.acquisti.size(); i++) {
-			if (filtroAcquisti.accept(this.acquisti.get(i))) {
-				filteredByChoice.add(this.acquisti.get(i));
+		while (filteredByChoice.size() < limite && candidati.hasNext()) {
+			Acquisto acquisto = candidati.next();
+
+			if (filtroAcquisti.accept(acquisto)) {
+				filteredByChoice.add(acquisto);
 			}
 		}
 		return filteredByChoice;
 	}
 
+	/**
+	 * Restituisce le sorgenti dell'indice degli acquisti che contengono tutti
+	 * quelli che soddisfano il filtro, oppure {@code null} se bisogna
+	 * esaminare tutti gli acquisti.
+	 */
+	private ArrayList<TreeMap<Long, Acquisto>> getSorgentiAcquisti(PurchaseFilter filtro) {
+		IndiceBiglietti<Acquisto> indice = this.getIndiceAcquisti();
+
+		if (filtro.getClass() == PurchaseByCustomerFilter.class) {
+			return indice.getSorgentiPerCliente(((PurchaseByCustomerFilter) filtro).getCliente());
+		}
+
+		if (filtro.getClass() == PurchaseByMatchFilter.class) {
+			return indice.getSorgentiPerPartita(((PurchaseByMatchFilter) filtro).getPartita());
+		}
+
+		if (filtro.getClass() == PurchaseByStadiumFilter.class) {
+			return indice.getSorgentiPerStadio(((PurchaseByStadiumFilter) filtro).getStadio());
+		}
+
+		if (filtro.getClass() == PurchaseAndFilter.class) {
+			ArrayList<TreeMap<Long, Acquisto>> migliori = null;
+
+			for (PurchaseFilter f : ((PurchaseAndFilter) filtro).getFiltri()) {
+				ArrayList<TreeMap<Long, Acquisto>> sorgenti = this.getSorgentiAcquisti(f);
+
+				if (sorgenti != null
+						&& (migliori == null || IndiceBiglietti.conta(sorgenti) < IndiceBiglietti.conta(migliori))) {
+					migliori = sorgenti;
+				}
+			}
+			return migliori;
+		}
+
+		if (filtro.getClass() == PurchaseOrFilter.class) {
+			ArrayList<TreeMap<Long, Acquisto>> unione = new ArrayList<>();
+
+			for (PurchaseFilter f : ((PurchaseOrFilter) filtro).getFiltri()) {
+				ArrayList<TreeMap<Long, Acquisto>> sorgenti = this.getSorgentiAcquisti(f);
+
+				if (sorgenti == null) {
+					return null;
+				}
+				unione.addAll(sorgenti);
+			}
+			return unione;
+		}
+
+		return null;
+	}
+
 	/**
 	 * Verifica se un biglietto per una determinata partita e' stato acquistato
 	 * da un determinato cliente.
@@ -402,17 +1382,8 @@ public class StrutturaSportiva implements Serializable {
 	 * @return {@code boolean} con l'esito della verifica.
 	 * @author Gaetano Antonucci
 	 */
-	public boolean verificaAcquisto(Cliente clt, Partita prt) {
-		boolean result = false;
-
-		for (Acquisto acquisto : this.acquisti) {
-			if ((acquisto.getBiglietto().getCliente().equals(clt))
-					&& (acquisto.getBiglietto().getPartita().equals(prt))) {
-				result = true;
-			}
-		}
-
-		return result;
+	public synchronized boolean verificaAcquisto(Cliente clt, Partita prt) {
+		return !this.getIndiceAcquisti().get(clt, prt).isEmpty();
 	}
 
 	/**
@@ -423,49 +1394,104 @@ public class StrutturaSportiva implements Serializable {
 	 *            - L'acquisto da cancellare.
 	 * @author Gaetano Antonucci
 	 */
-	public void cancellaAcquisto(Acquisto acquistoDaCancellare) {
+	public synchronized void cancellaAcquisto(Acquisto acquistoDaCancellare) {
 
 		if (acquistoDaCancellare != null) {
 			for (int i = (this.acquisti.size() - 1); i >= 0; i--) {
 				if (this.acquisti.get(i).equals(acquistoDaCancellare)) {
-					this.acquisti.remove(i);
+					Acquisto rimosso = this.acquisti.remove(i);
+
+					if (this.indiceAcquisti != null) {
+						this.indiceAcquisti.rimuovi(rimosso.getCliente(), rimosso.getPartita(), rimosso);
+						this.incassi.rimuovi(rimosso);
+					}
+
+					for (StrutturaSportivaListener l : this.getListeners()) {
+						l.acquistoCancellato(rimosso);
+					}
 				}
 			}
 		}
 	}
 
 	/**
-	 * Cancella le prenotazioni e gli acquisti di una determinata partita
+	 * Cancella le prenotazioni, gli acquisti e gli sconti di una determinata
+	 * partita e ne libera i posti. Le prenotazioni e gli acquisti vengono
+	 * individuati tramite gli indici per partita e rimossi con un'unica
+	 * scansione delle rispettive liste; la cancellazione viene notificata agli
+	 * ascoltatori con un'unica modifica.
 	 * 
 	 * @param partita
 	 *            - La partita per cui si desidera eliminare acquisti e
 	 *            prenotazioni
 	 * @author Gaetano Antonucci
+	 * @author Maurizio Casciano
 	 */
-	public void cancellaPrenotazioniAcquistiScontiPerPartita(Partita partita) {
+	public synchronized void cancellaPrenotazioniAcquistiScontiPerPartita(Partita partita) {
 
 		ArrayList<Prenotazione> prenotazioniDaCancellare;
 		ArrayList<Acquisto> acquistiDaCancellare;
+		ArrayList<Sconto> scontiDaCancellare = new ArrayList<>();
 
 		if (partita != null) {
-			prenotazioniDaCancellare = this.getPrenotazioniFiltrate(new PrenotationByMatchFilter(partita));
-			acquistiDaCancellare = this.getAcquistiFiltrati(new PurchaseByMatchFilter(partita));
+			prenotazioniDaCancellare = this.getIndicePrenotazioni().getPerPartita(partita);
+			acquistiDaCancellare = this.getIndiceAcquisti().getPerPartita(partita);
 
 			// Cancella gli sconti attivi sulla partita
-			for (int i = this.sconti.size() - 1; i >= 0; i--) {
-				if (this.sconti.get(i).getPartita().equals(partita)) {
-					this.sconti.remove(i);
+			int rimasti = 0;
+			for (Sconto sconto : this.sconti) {
+				if (partita.equals(sconto.getPartita())) {
+					scontiDaCancellare.add(sconto);
+				} else {
+					this.sconti.set(rimasti++, sconto);
 				}
 			}
+			this.sconti.subList(rimasti, this.sconti.size()).clear();
+
+			if (!scontiDaCancellare.isEmpty()) {
+				this.indiceSconti = null;
+				this.insiemeSconti = null;
+			}
 
 			// Cancella le prenotazioni sulla partita
-			for (Prenotazione pren : prenotazioniDaCancellare) {
-				this.cancellaPrenotazione(pren);
+			if (!prenotazioniDaCancellare.isEmpty()) {
+				rimasti = 0;
+				for (Prenotazione pren : this.prenotazioni) {
+					if (pren.getPartita() != partita) {
+						this.prenotazioni.set(rimasti++, pren);
+					}
+				}
+				this.prenotazioni.subList(rimasti, this.prenotazioni.size()).clear();
+
+				for (Prenotazione pren : prenotazioniDaCancellare) {
+					this.rimuoviDagliIndici(pren);
+					this.liberaPosto(partita, pren.getPosto());
+				}
 			}
 
 			// Cancella gli acquisti sulla partita
-			for (Acquisto acq : acquistiDaCancellare) {
-				this.cancellaAcquisto(acq);
+			if (!acquistiDaCancellare.isEmpty()) {
+				rimasti = 0;
+				for (Acquisto acq : this.acquisti) {
+					if (acq.getPartita() != partita) {
+						this.acquisti.set(rimasti++, acq);
+					}
+				}
+				this.acquisti.subList(rimasti, this.acquisti.size()).clear();
+
+				for (Acquisto acq : acquistiDaCancellare) {
+					this.indiceAcquisti.rimuovi(acq.getCliente(), acq.getPartita(), acq);
+					this.incassi.rimuovi(acq);
+					this.liberaPosto(partita, acq.getPosto());
+				}
+			}
+
+			if (!scontiDaCancellare.isEmpty() || !prenotazioniDaCancellare.isEmpty()
+					|| !acquistiDaCancellare.isEmpty()) {
+				for (StrutturaSportivaListener l : this.getListeners()) {
+					l.prenotazioniAcquistiScontiCancellati(partita, prenotazioniDaCancellare, acquistiDaCancellare,
+							scontiDaCancellare);
+				}
 			}
 		}
 	}
@@ -485,13 +1511,7 @@ public class StrutturaSportiva implements Serializable {
 
 		GregorianCalendar dataAttuale = new GregorianCalendar();
 
-		long dataAttualeMillis = dataAttuale.getTimeInMillis();
-		long dataPartitaMillis = prenotazione.getBigliettoPrenotato().getPartita().getData().getTimeInMillis();
-
-		double dataAttualeOre = (((dataAttualeMillis / 1000) / 60) / 60);
-		double dataPartitaOre = (((dataPartitaMillis / 1000) / 60) / 60);
-
-		if (dataAttualeOre < (dataPartitaOre - ORE_SCADENZA_PRENOTAZIONE)) {
+		if (dataAttuale.getTimeInMillis() < this.calcolaScadenza(prenotazione)) {
 			result = true;
 		}
 
@@ -499,21 +1519,116 @@ public class StrutturaSportiva implements Serializable {
 	}
 
 	/**
-	 * Cancella tutte le prenotazioni che non sono piu valide.
+	 * Restituisce l'istante, in millisecondi, in cui scade una prenotazione.
+	 */
+	private long calcolaScadenza(Prenotazione prenotazione) {
+		long dataPartitaMillis = prenotazione.getBigliettoPrenotato().getPartita().getData().getTimeInMillis();
+
+		return dataPartitaMillis - ORE_SCADENZA_PRENOTAZIONE * 60L * 60L * 1000L;
+	}
+
+	/**
+	 * Cancella tutte le prenotazioni che non sono piu valide e ne libera i
+	 * posti. Le scadenze sono registrate in una ruota temporale, per cui il
+	 * controllo esamina soltanto le prenotazioni scadute dall'ultima
+	 * chiamata: puo' quindi essere ripetuto ad ogni
+	 * {@link #INTERVALLO_CONTROLLO_SCADENZE}. Le prenotazioni scadute vengono
+	 * rimosse con un'unica scansione della lista, e ciascuna cancellazione
+	 * viene poi notificata agli ascoltatori.
 	 * 
+	 * @return Il numero di prenotazioni cancellate.
 	 * @author Gaetano Antonucci
+	 * @author Maurizio Casciano
 	 */
-	public void cancellaPrenotazioniScadute() {
+	public synchronized int cancellaPrenotazioniScadute() {
+		RuotaScadenze<Prenotazione> ruota = this.getScadenze();
+		ArrayList<Prenotazione> scadute = new ArrayList<>();
+
+		for (Prenotazione prenotazioneScaduta : ruota.avanza(new GregorianCalendar().getTimeInMillis())) {
+			if (this.verificaValiditaPrenotazione(prenotazioneScaduta)) {
+				// la data della partita e' stata posticipata
+				ruota.aggiungi(prenotazioneScaduta, this.calcolaScadenza(prenotazioneScaduta));
+			} else {
+				scadute.add(prenotazioneScaduta);
+			}
+		}
 
-		for (int i = (this.prenotazioni.size() - 1); i >= 0; i--) {
-			if (!this.verificaValiditaPrenotazione(this.prenotazioni.get(i))) {
+		if (!scadute.isEmpty()) {
+			this.rimuoviPrenotazioni(scadute);
+
+			for (Prenotazione prenotazioneScaduta : scadute) {
 				// metodo di reset dei posti
-				Prenotazione prenotazioneScaduta = this.prenotazioni.get(i);
-				Partita partita = prenotazioneScaduta.getPartita();
-				partita.resetSeatStatus(prenotazioneScaduta, SeatStatus.LIBERO);
-				this.cancellaPrenotazione(this.prenotazioni.get(i));
+				this.aggiornaStatoPosto(prenotazioneScaduta.getPartita(), prenotazioneScaduta.getPosto(),
+						SeatStatus.LIBERO);
+
+				for (StrutturaSportivaListener l : this.getListeners()) {
+					l.prenotazioneCancellata(prenotazioneScaduta);
+				}
+			}
+		}
+		return scadute.size();
+	}
+
+	/**
+	 * Restituisce la ruota delle scadenze delle prenotazioni, creandola alla
+	 * prima richiesta oppure dopo {@link #invalidaIndici()}.
+	 */
+	private RuotaScadenze<Prenotazione> getScadenze() {
+		if (this.scadenze == null) {
+			this.scadenze = new RuotaScadenze<>(INTERVALLO_CONTROLLO_SCADENZE,
+					new GregorianCalendar().getTimeInMillis());
+
+			for (Prenotazione pren : this.prenotazioni) {
+				this.scadenze.aggiungi(pren, this.calcolaScadenza(pren));
+			}
+		}
+		return this.scadenze;
+	}
+
+	/**
+	 * Restituisce l'indice delle politiche di sconto, ricreandolo se la lista
+	 * degli sconti e' stata modificata.
+	 */
+	private synchronized IndiceSconti getIndiceSconti() {
+		if (this.indiceSconti == null) {
+			this.indiceSconti = new IndiceSconti(this.sconti);
+		}
+		return this.indiceSconti;
+	}
+
+	/**
+	 * Rimuove dal database le prenotazioni indicate con un'unica scansione
+	 * della lista, senza liberarne i posti ne' notificarlo agli ascoltatori.
+	 */
+	private void rimuoviPrenotazioni(ArrayList<Prenotazione> daRimuovere) {
+		Set<Prenotazione> insieme = Collections.newSetFromMap(new IdentityHashMap<Prenotazione, Boolean>());
+		insieme.addAll(daRimuovere);
+
+		int rimaste = 0;
+		for (Prenotazione pren : this.prenotazioni) {
+			if (!insieme.contains(pren)) {
+				this.prenotazioni.set(rimaste++, pren);
 			}
 		}
+		this.prenotazioni.subList(rimaste, this.prenotazioni.size()).clear();
+
+		for (Prenotazione pren : daRimuovere) {
+			this.rimuoviDagliIndici(pren);
+		}
+	}
+
+	/**
+	 * Rimuove una prenotazione cancellata dall'indice e dalla ruota delle
+	 * scadenze.
+	 */
+	private void rimuoviDagliIndici(Prenotazione prenotazione) {
+		if (this.indicePrenotazioni != null) {
+			this.indicePrenotazioni.rimuovi(prenotazione.getCliente(), prenotazione.getPartita(), prenotazione);
+		}
+
+		if (this.scadenze != null) {
+			this.scadenze.rimuovi(prenotazione);
+		}
 	}
 
 	/**
@@ -526,15 +1641,75 @@ public class StrutturaSportiva implements Serializable {
 	 * @return la prenotazione trovata
 	 * @author Gaetano Antonucci
 	 */
-	public Prenotazione getPrenotazioneCliente(Cliente clt, Partita partita) {
-		Prenotazione risultato = null;
-		for (Prenotazione p : this.prenotazioni) {
-			if (p.getBigliettoPrenotato().getCliente().equals(clt)
-					&& p.getBigliettoPrenotato().getPartita().equals(partita)) {
-				risultato = p;
+	public synchronized Prenotazione getPrenotazioneCliente(Cliente clt, Partita partita) {
+		List<Prenotazione> trovate = this.getIndicePrenotazioni().get(clt, partita);
+
+		return trovate.isEmpty() ? null : trovate.get(trovate.size() - 1);
+	}
+
+	/**
+	 * Scarta gli indici costruiti sulle liste della StrutturaSportiva, che
+	 * saranno ricreati alla prima richiesta. Va chiamato dopo aver modificato
+	 * direttamente le liste restituite da {@link #getUtenti()},
+	 * {@link #getStadi()}, {@link #getPartiteProgrammate()},
+	 * {@link #getSconti()}, {@link #getPrenotazioni()} o {@link #getAcquisti()},
+	 * ad esempio durante il caricamento: gli indici vengono aggiornati soltanto
+	 * dai metodi della StrutturaSportiva.
+	 * 
+	 * @author Maurizio Casciano
+	 */
+	public synchronized void invalidaIndici() {
+		this.indiceUtenti = null;
+		this.insiemeStadi = null;
+		this.insiemeSconti = null;
+		this.indiceSconti = null;
+		this.indicePrenotazioni = null;
+		this.scadenze = null;
+		this.indiceAcquisti = null;
+		this.incassi = null;
+		this.calendario = null;
+	}
+
+	/**
+	 * Restituisce l'indice delle prenotazioni per cliente e partita, creandolo
+	 * alla prima richiesta oppure dopo {@link #invalidaIndici()}.
+	 */
+	private IndiceBiglietti<Prenotazione> getIndicePrenotazioni() {
+		if (this.indicePrenotazioni == null) {
+			this.indicePrenotazioni = new IndiceBiglietti<>();
+
+			for (Prenotazione pren : this.prenotazioni) {
+				this.indicePrenotazioni.aggiungi(pren.getCliente(), pren.getPartita(), pren);
+			}
+		}
+		return this.indicePrenotazioni;
+	}
+
+	/**
+	 * Restituisce l'indice degli acquisti per cliente e partita, creandolo
+	 * insieme ai totali degli incassi alla prima richiesta oppure dopo
+	 * {@link #invalidaIndici()}.
+	 */
+	private IndiceBiglietti<Acquisto> getIndiceAcquisti() {
+		if (this.indiceAcquisti == null) {
+			this.indiceAcquisti = new IndiceBiglietti<>();
+			this.incassi = new IncassiAcquisti();
+
+			for (Acquisto acq : this.acquisti) {
+				this.indiceAcquisti.aggiungi(acq.getCliente(), acq.getPartita(), acq);
+				this.incassi.aggiungi(acq);
 			}
 		}
-		return risultato;
+		return this.indiceAcquisti;
+	}
+
+	/**
+	 * Restituisce i totali degli incassi, aggiornati insieme all'indice degli
+	 * acquisti.
+	 */
+	private IncassiAcquisti getIncassi() {
+		this.getIndiceAcquisti();
+		return this.incassi;
 	}
 
 	/**
@@ -558,49 +1733,90 @@ public class StrutturaSportiva implements Serializable {
 		return sommaPrezzi;
 	}
 
-	public double getBestAvailablePrice(Partita partita, GregorianCalendar dataBiglietto) {
+	/**
+	 * @return L'incasso complessivo della struttura sportiva.
+	 * @author Maurizio Casciano
+	 */
+	public synchronized double getIncassoTotale() {
+		return this.getIncassi().getTotale();
+	}
 
-		double prezzoDiPartenza = partita.getStadio().getPrezzoPerPartita();
+	/**
+	 * @param stadio
+	 *            - Lo stadio.
+	 * @return L'incasso delle partite che si giocano nello stadio.
+	 * @author Maurizio Casciano
+	 */
+	public synchronized double getIncassoPerStadio(Stadio stadio) {
+		return this.getIncassi().getPerStadio(stadio);
+	}
 
-		ArrayList<Sconto> perPartita = this.getScontiApplicabili(new ScontoByMatchFilter(this.getSconti()), partita,
-				dataBiglietto);
-		ArrayList<Sconto> perStadio = this.getScontiApplicabili(new ScontoByStadiumFilter(this.getSconti()), partita,
-				dataBiglietto);
-		ArrayList<Sconto> perGiorno = this.getScontiApplicabili(new ScontoByDayOfWeekFilter(this.getSconti()), partita,
-				dataBiglietto);
+	/**
+	 * @param partita
+	 *            - La partita.
+	 * @return L'incasso della partita.
+	 * @author Maurizio Casciano
+	 */
+	public synchronized double getIncassoPerPartita(Partita partita) {
+		return this.getIncassi().getPerPartita(partita);
+	}
 
-		double maxScontoPartita = 0.00;
-		double maxScontoStadio = 0.00;
-		double maxScontoGiorno = 0.00;
+	/**
+	 * @param cliente
+	 *            - Il cliente.
+	 * @return L'incasso degli acquisti del cliente.
+	 * @author Maurizio Casciano
+	 */
+	public synchronized double getIncassoPerCliente(Cliente cliente) {
+		return this.getIncassi().getPerCliente(cliente);
+	}
 
-		for (Sconto s1 : perPartita) {
-			if (maxScontoPartita <= s1.getPercetualeSconto()) {
-				maxScontoPartita = s1.getPercetualeSconto();
-			}
-		}
+	/**
+	 * @param giorno
+	 *            - Una data qualsiasi del giorno.
+	 * @return L'incasso degli acquisti effettuati nel giorno.
+	 * @author Maurizio Casciano
+	 */
+	public synchronized double getIncassoPerGiorno(GregorianCalendar giorno) {
+		return this.getIncassi().getPerGiorno(giorno);
+	}
 
-		for (Sconto s2 : perStadio) {
-			if (maxScontoStadio <= s2.getPercetualeSconto()) {
-				maxScontoStadio = s2.getPercetualeSconto();
-			}
+	/**
+	 * Cerca n posti liberi vicini per un gruppo: n posti contigui nella
+	 * stessa fila, preferendo i settori e le file indicati nelle preferenze,
+	 * oppure la divisione su piu' file piu' vicina. I posti non vengono
+	 * occupati e devono essere prenotati o acquistati come di consueto.
+	 * 
+	 * @param partita
+	 *            La partita.
+	 * @param n
+	 *            Il numero di posti.
+	 * @param preferenze
+	 *            Le preferenze del cliente, oppure {@code null} per le
+	 *            preferenze predefinite.
+	 * @return I posti trovati, oppure {@code null} se non ci sono abbastanza
+	 *         posti liberi.
+	 * @author Maurizio Casciano
+	 */
+	public ArrayList<Posto> findBestAvailable(Partita partita, int n, PreferenzePosti preferenze) {
+		if (preferenze == null) {
+			preferenze = new PreferenzePosti();
 		}
+		return partita.cercaPostiContigui(n, preferenze);
+	}
 
-		for (Sconto s3 : perGiorno) {
-			if (maxScontoGiorno <= s3.getPercetualeSconto()) {
-				maxScontoGiorno = s3.getPercetualeSconto();
-			}
-		}
+	public double getBestAvailablePrice(Partita partita, GregorianCalendar dataBiglietto) {
 
-		double[] scontiMassimi = { maxScontoPartita, maxScontoGiorno, maxScontoStadio };
-		Arrays.sort(scontiMassimi);
-		double maxSconto = scontiMassimi[scontiMassimi.length - 1];
+		double prezzoDiPartenza = partita.getStadio().getPrezzoPerPartita();
 
 		/*
-		 * System.out.println("Verifica Sconto su Biglietto");
-		 * System.out.println("maxScontoPartita " + maxScontoPartita);
-		 * System.out.println("maxScontoStadio " + maxScontoStadio);
-		 * System.out.println("maxScontoGiorno " + maxScontoGiorno);
+		 * Il piu' alto tra gli sconti sulla partita, sul suo stadio e sul
+		 * giorno della settimana validi alla data del biglietto. L'indice
+		 * ricorda l'ultimo sconto calcolato per ogni partita e viene ricreato
+		 * quando cambiano gli sconti; il prezzo di partenza e' letto ogni
+		 * volta dallo stadio.
 		 */
+		double maxSconto = this.getIndiceSconti().getScontoMassimo(partita, dataBiglietto);
 
 		double prezzoFinale = prezzoDiPartenza - (prezzoDiPartenza * maxSconto);
 
@@ -650,6 +1866,21 @@ public class StrutturaSportiva implements Serializable {
 	private ArrayList<Sconto> sconti;
 	private ArrayList<Prenotazione> prenotazioni;
 	private ArrayList<Acquisto> acquisti;
+	private transient ArrayList<StrutturaSportivaListener> listeners;
+	private transient RuotaScadenze<Prenotazione> scadenze;
+	private transient ConcurrentHashMap<String, Utente> indiceUtenti;
+	private transient IndiceBiglietti<Prenotazione> indicePrenotazioni;
+	private transient IndiceBiglietti<Acquisto> indiceAcquisti;
+	private transient IncassiAcquisti incassi;
+	private transient CalendarioPartite calendario;
+	private transient HashSet<Stadio> insiemeStadi;
+	private transient HashSet<Sconto> insiemeSconti;
+	private transient IndiceSconti indiceSconti;
 
 	private static final int ORE_SCADENZA_PRENOTAZIONE = 12;
+
+	/**
+	 * Intervallo in millisecondi tra due controlli delle prenotazioni scadute.
+	 */
+	public static final long INTERVALLO_CONTROLLO_SCADENZE = 1000;
 }
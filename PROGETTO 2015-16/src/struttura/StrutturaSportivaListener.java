@@ -0,0 +1,177 @@
+package struttura;
+
+import java.util.ArrayList;
+
+import user.Utente;
+
+/**
+ * Interfaccia che modella un ascoltatore delle modifiche effettuate su una
+ * {@link StrutturaSportiva}. Ogni metodo viene invocato dopo che la modifica
+ * e' stata applicata.
+ * 
+ * @author Maurizio Casciano
+ */
+public interface StrutturaSportivaListener {
+
+	/**
+	 * Notifica la registrazione di un nuovo {@link Utente}.
+	 * 
+	 * @param utente
+	 *            L'utente registrato.
+	 */
+	void utenteAggiunto(Utente utente);
+
+	/**
+	 * Notifica l'aggiunta di un nuovo {@link Stadio}.
+	 * 
+	 * @param stadio
+	 *            Lo stadio aggiunto.
+	 */
+	void stadioAggiunto(Stadio stadio);
+
+	/**
+	 * Notifica la modifica della capienza o del prezzo di uno {@link Stadio}.
+	 * 
+	 * @param stadio
+	 *            Lo stadio modificato.
+	 */
+	void stadioModificato(Stadio stadio);
+
+	/**
+	 * Notifica l'aggiunta di una {@link Partita} in fondo alle partite
+	 * programmate.
+	 * 
+	 * @param partita
+	 *            La partita aggiunta.
+	 */
+	void partitaAggiunta(Partita partita);
+
+	/**
+	 * Notifica la modifica delle squadre, dello stadio o della data di una
+	 * {@link Partita}.
+	 * 
+	 * @param partita
+	 *            La partita modificata.
+	 */
+	void partitaModificata(Partita partita);
+
+	/**
+	 * Notifica la rimozione di una {@link Partita} dalle partite programmate.
+	 * 
+	 * @param indice
+	 *            La posizione occupata dalla partita prima della rimozione.
+	 */
+	void partitaRimossa(int indice);
+
+	/**
+	 * Notifica l'aggiunta di una politica di sconto.
+	 * 
+	 * @param sconto
+	 *            Lo sconto aggiunto.
+	 */
+	void scontoAggiunto(Sconto sconto);
+
+	/**
+	 * Notifica la rimozione di una politica di sconto.
+	 * 
+	 * @param sconto
+	 *            Lo sconto rimosso.
+	 */
+	void scontoRimosso(Sconto sconto);
+
+	/**
+	 * Notifica l'aggiunta di una {@link Prenotazione}.
+	 * 
+	 * @param prenotazione
+	 *            La prenotazione aggiunta.
+	 */
+	void prenotazioneAggiunta(Prenotazione prenotazione);
+
+	/**
+	 * Notifica la cancellazione di una {@link Prenotazione}.
+	 * 
+	 * @param prenotazione
+	 *            La prenotazione cancellata.
+	 */
+	void prenotazioneCancellata(Prenotazione prenotazione);
+
+	/**
+	 * Notifica l'aggiunta di un {@link Acquisto}.
+	 * 
+	 * @param acquisto
+	 *            L'acquisto aggiunto.
+	 */
+	void acquistoAggiunto(Acquisto acquisto);
+
+	/**
+	 * Notifica la cancellazione di un {@link Acquisto}.
+	 * 
+	 * @param acquisto
+	 *            L'acquisto cancellato.
+	 */
+	void acquistoCancellato(Acquisto acquisto);
+
+	/**
+	 * Notifica l'aggiunta delle prenotazioni di un ordine di gruppo (piu'
+	 * posti per lo stesso cliente e la stessa partita); i posti delle
+	 * prenotazioni sono gia' stati impostati come {@link SeatStatus#PRENOTATO}
+	 * e non vengono notificati singolarmente.
+	 * 
+	 * @param prenotazioni
+	 *            Le prenotazioni aggiunte.
+	 */
+	void prenotazioniAggiunte(ArrayList<Prenotazione> prenotazioni);
+
+	/**
+	 * Notifica l'aggiunta degli acquisti di un ordine di gruppo (piu' posti
+	 * per lo stesso cliente e la stessa partita); i posti degli acquisti sono
+	 * gia' stati impostati come {@link SeatStatus#VENDUTO} e non vengono
+	 * notificati singolarmente.
+	 * 
+	 * @param acquisti
+	 *            Gli acquisti aggiunti.
+	 */
+	void acquistiAggiunti(ArrayList<Acquisto> acquisti);
+
+	/**
+	 * Notifica il completamento delle prenotazioni di un cliente per una
+	 * partita con un'unica modifica: le prenotazioni sono state cancellate e
+	 * sostituite dagli acquisti, i cui posti sono gia' stati impostati come
+	 * {@link SeatStatus#VENDUTO} e non vengono notificati singolarmente.
+	 * 
+	 * @param prenotazioni
+	 *            Le prenotazioni completate.
+	 * @param acquisti
+	 *            Gli acquisti aggiunti.
+	 */
+	void prenotazioniCompletate(ArrayList<Prenotazione> prenotazioni, ArrayList<Acquisto> acquisti);
+
+	/**
+	 * Notifica la cancellazione di tutte le prenotazioni, gli acquisti e gli
+	 * sconti di una {@link Partita} con un'unica modifica; i posti delle
+	 * prenotazioni e degli acquisti sono gia' stati liberati e non vengono
+	 * notificati singolarmente.
+	 * 
+	 * @param partita
+	 *            La partita.
+	 * @param prenotazioni
+	 *            Le prenotazioni cancellate.
+	 * @param acquisti
+	 *            Gli acquisti cancellati.
+	 * @param sconti
+	 *            Gli sconti rimossi.
+	 */
+	void prenotazioniAcquistiScontiCancellati(Partita partita, ArrayList<Prenotazione> prenotazioni,
+			ArrayList<Acquisto> acquisti, ArrayList<Sconto> sconti);
+
+	/**
+	 * Notifica il cambiamento di stato di un {@link Posto} di una
+	 * {@link Partita}.
+	 * 
+	 * @param partita
+	 *            La partita a cui appartiene il posto.
+	 * @param posto
+	 *            Il posto della partita il cui stato e' cambiato.
+	 */
+	void statoPostoModificato(Partita partita, Posto posto);
+}
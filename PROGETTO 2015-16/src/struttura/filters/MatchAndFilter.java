@@ -0,0 +1,52 @@
+package struttura.filters;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import struttura.Partita;
+
+/**
+ * Classe di call-back per l'interfaccia Filter che accetta le partite che
+ * soddisfano tutti i filtri passati al costruttore. I filtri vengono valutati
+ * nell'ordine indicato e la valutazione si interrompe al primo filtro non
+ * soddisfatto.
+ * 
+ * @author Maurizio Casciano
+ */
+public class MatchAndFilter implements Filter, Serializable {
+
+	/**
+	 * Costruisce un filtro che combina i filtri passati come parametro.
+	 * 
+	 * @param filtri
+	 *            - i filtri da combinare
+	 */
+	public MatchAndFilter(Filter... filtri) {
+		this.filtri = filtri.clone();
+	}
+
+	@Override
+	public boolean accept(Partita partitaDiCalcio) {
+		for (Filter filtro : this.filtri) {
+			if (!filtro.accept(partitaDiCalcio)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Restituisce i filtri combinati.
+	 * 
+	 * @return I filtri, in una lista non modificabile.
+	 */
+	public List<Filter> getFiltri() {
+		return Collections.unmodifiableList(Arrays.asList(this.filtri));
+	}
+
+	private Filter[] filtri;
+
+	private static final long serialVersionUID = -4328745316079886294L;
+}
@@ -5,6 +5,7 @@ import java.util.Calendar;
 import java.util.GregorianCalendar;
 
 import struttura.Partita;
+import struttura.StrutturaSportiva;
 
 /**
  * Classe di call-back che modella un filto su una partita in base alla settimana in cui si gioca.
@@ -23,6 +24,23 @@ public class MatchByWeekFilter implements Filter, Serializable {
 		this.data = data;
 	}
 
+	/**
+	 * Costruisce un Filter con la data(settimana) passata in input, che legge
+	 * la settimana delle partite dal calendario della StrutturaSportiva invece
+	 * di calcolarla dalla loro data.
+	 * 
+	 * @param data
+	 *            La data in cui si vuole che la partita si giochi.
+	 * @param strutturaSportiva
+	 *            La StrutturaSportiva a cui appartengono le partite.
+	 * @author Maurizio Casciano
+	 */
+	public MatchByWeekFilter(GregorianCalendar data, StrutturaSportiva strutturaSportiva) {
+		this.data = data;
+		this.strutturaSportiva = strutturaSportiva;
+		this.settimana = StrutturaSportiva.getSettimana(data);
+	}
+
 	/**
 	 * Filtra una PartitaDiCalcio in base alla data (settimana) in cui si gioca.
 	 * 
@@ -33,6 +51,10 @@ public class MatchByWeekFilter implements Filter, Serializable {
 	 */
 	@Override
 	public boolean accept(Partita partitaDiCalcio) {
+		if (this.strutturaSportiva != null) {
+			return this.strutturaSportiva.getSettimana(partitaDiCalcio) == this.settimana;
+		}
+
 		if (partitaDiCalcio.getData().get(Calendar.YEAR) == this.data.get(Calendar.YEAR)) {
 			return partitaDiCalcio.getData().get(Calendar.WEEK_OF_YEAR) == data.get(Calendar.WEEK_OF_YEAR);
 		} else {
@@ -40,6 +62,18 @@ public class MatchByWeekFilter implements Filter, Serializable {
 		}
 	}
 
+	/**
+	 * Restituisce la data (settimana) in base alla quale si filtrano le
+	 * partite.
+	 * 
+	 * @return La data del filtro.
+	 */
+	public GregorianCalendar getData() {
+		return this.data;
+	}
+
 	private static final long serialVersionUID = -9100419677952099595L;
 	private GregorianCalendar data;
+	private transient StrutturaSportiva strutturaSportiva;
+	private int settimana;
 }
@@ -0,0 +1,42 @@
+package struttura.filters;
+
+import java.io.Serializable;
+
+import struttura.Partita;
+
+/**
+ * Classe di call-back per l'interfaccia Filter che accetta le partite scartate
+ * dal filtro passato al costruttore.
+ * 
+ * @author Maurizio Casciano
+ */
+public class MatchNotFilter implements Filter, Serializable {
+
+	/**
+	 * Costruisce un filtro che nega quello passato come parametro.
+	 * 
+	 * @param filtro
+	 *            - il filtro da negare
+	 */
+	public MatchNotFilter(Filter filtro) {
+		this.filtro = filtro;
+	}
+
+	@Override
+	public boolean accept(Partita partitaDiCalcio) {
+		return !this.filtro.accept(partitaDiCalcio);
+	}
+
+	/**
+	 * Restituisce il filtro negato.
+	 * 
+	 * @return Il filtro negato.
+	 */
+	public Filter getFiltro() {
+		return this.filtro;
+	}
+
+	private Filter filtro;
+
+	private static final long serialVersionUID = 4124166108753111098L;
+}
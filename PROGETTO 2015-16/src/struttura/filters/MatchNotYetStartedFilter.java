@@ -1,7 +1,6 @@
 package struttura.filters;
 
 import java.io.Serializable;
-import java.util.GregorianCalendar;
 
 import struttura.Partita;
 
@@ -22,7 +21,7 @@ public class MatchNotYetStartedFilter implements Filter, Serializable {
 	 */
 	@Override
 	public boolean accept(Partita partitaDiCalcio) {
-		return partitaDiCalcio.getData().after(new GregorianCalendar());
+		return partitaDiCalcio.getData().getTimeInMillis() > System.currentTimeMillis();
 	}
 
 	private static final long serialVersionUID = -3531701089734504572L;
@@ -0,0 +1,52 @@
+package struttura.filters;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import struttura.Prenotazione;
+
+/**
+ * Classe di call-back per l'interfaccia PrenotationFilter che accetta le
+ * prenotazioni che soddisfano tutti i filtri passati al costruttore. I filtri
+ * vengono valutati nell'ordine indicato e la valutazione si interrompe al primo
+ * filtro non soddisfatto.
+ * 
+ * @author Maurizio Casciano
+ */
+public class PrenotationAndFilter implements PrenotationFilter, Serializable {
+
+	/**
+	 * Costruisce un filtro che combina i filtri passati come parametro.
+	 * 
+	 * @param filtri
+	 *            - i filtri da combinare
+	 */
+	public PrenotationAndFilter(PrenotationFilter... filtri) {
+		this.filtri = filtri.clone();
+	}
+
+	@Override
+	public boolean accept(Prenotazione prenotazione) {
+		for (PrenotationFilter filtro : this.filtri) {
+			if (!filtro.accept(prenotazione)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Restituisce i filtri combinati.
+	 * 
+	 * @return I filtri, in una lista non modificabile.
+	 */
+	public List<PrenotationFilter> getFiltri() {
+		return Collections.unmodifiableList(Arrays.asList(this.filtri));
+	}
+
+	private PrenotationFilter[] filtri;
+
+	private static final long serialVersionUID = -3971214240677331933L;
+}
@@ -32,6 +32,15 @@ public class PrenotationByCustomerFilter implements PrenotationFilter, Serializa
 		return result;
 	}
 	
+	/**
+	 * Restituisce il cliente in base al quale si filtrano i dati.
+	 * 
+	 * @return Il cliente del filtro.
+	 */
+	public Cliente getCliente() {
+		return this.cliente;
+	}
+	
 	private Cliente cliente;
 	
 	private static final long serialVersionUID = 5824418745962263670L;
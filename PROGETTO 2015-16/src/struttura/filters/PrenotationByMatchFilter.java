@@ -33,6 +33,15 @@ public class PrenotationByMatchFilter implements PrenotationFilter, Serializable
 		return result;
 	}
 	
+	/**
+	 * Restituisce la partita in base alla quale si filtrano i dati.
+	 * 
+	 * @return La partita del filtro.
+	 */
+	public Partita getPartita() {
+		return this.partita;
+	}
+	
 	private Partita partita;
 	
 	private static final long serialVersionUID = 2154947496110081855L;
@@ -34,6 +34,15 @@ public class PrenotationByStadiumFilter implements PrenotationFilter, Serializab
 	}
 	
 	
+	/**
+	 * Restituisce lo stadio in base al quale si filtrano i dati.
+	 * 
+	 * @return Lo stadio del filtro.
+	 */
+	public Stadio getStadio() {
+		return this.stadio;
+	}
+	
 	private Stadio stadio;
 
 	private static final long serialVersionUID = -3926849092030927287L;
@@ -0,0 +1,42 @@
+package struttura.filters;
+
+import java.io.Serializable;
+
+import struttura.Prenotazione;
+
+/**
+ * Classe di call-back per l'interfaccia PrenotationFilter che accetta le
+ * prenotazioni scartate dal filtro passato al costruttore.
+ * 
+ * @author Maurizio Casciano
+ */
+public class PrenotationNotFilter implements PrenotationFilter, Serializable {
+
+	/**
+	 * Costruisce un filtro che nega quello passato come parametro.
+	 * 
+	 * @param filtro
+	 *            - il filtro da negare
+	 */
+	public PrenotationNotFilter(PrenotationFilter filtro) {
+		this.filtro = filtro;
+	}
+
+	@Override
+	public boolean accept(Prenotazione prenotazione) {
+		return !this.filtro.accept(prenotazione);
+	}
+
+	/**
+	 * Restituisce il filtro negato.
+	 * 
+	 * @return Il filtro negato.
+	 */
+	public PrenotationFilter getFiltro() {
+		return this.filtro;
+	}
+
+	private PrenotationFilter filtro;
+
+	private static final long serialVersionUID = -975187739914946791L;
+}
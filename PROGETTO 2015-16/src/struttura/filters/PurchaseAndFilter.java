@@ -0,0 +1,52 @@
+package struttura.filters;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import struttura.Acquisto;
+
+/**
+ * Classe di call-back per l'interfaccia PurchaseFilter che accetta gli acquisti
+ * che soddisfano tutti i filtri passati al costruttore. I filtri vengono
+ * valutati nell'ordine indicato e la valutazione si interrompe al primo filtro
+ * non soddisfatto.
+ * 
+ * @author Maurizio Casciano
+ */
+public class PurchaseAndFilter implements PurchaseFilter, Serializable {
+
+	/**
+	 * Costruisce un filtro che combina i filtri passati come parametro.
+	 * 
+	 * @param filtri
+	 *            - i filtri da combinare
+	 */
+	public PurchaseAndFilter(PurchaseFilter... filtri) {
+		this.filtri = filtri.clone();
+	}
+
+	@Override
+	public boolean accept(Acquisto acquisto) {
+		for (PurchaseFilter filtro : this.filtri) {
+			if (!filtro.accept(acquisto)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Restituisce i filtri combinati.
+	 * 
+	 * @return I filtri, in una lista non modificabile.
+	 */
+	public List<PurchaseFilter> getFiltri() {
+		return Collections.unmodifiableList(Arrays.asList(this.filtri));
+	}
+
+	private PurchaseFilter[] filtri;
+
+	private static final long serialVersionUID = 1208327938324213700L;
+}
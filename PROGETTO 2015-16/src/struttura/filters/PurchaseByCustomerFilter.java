@@ -33,6 +33,15 @@ public class PurchaseByCustomerFilter implements PurchaseFilter, Serializable{
 		return result;
 	}
 	
+	/**
+	 * Restituisce il cliente in base al quale si filtrano i dati.
+	 * 
+	 * @return Il cliente del filtro.
+	 */
+	public Cliente getCliente() {
+		return this.cliente;
+	}
+	
 	private Cliente cliente;
 	
 	private static final long serialVersionUID = -2916057589041551270L;
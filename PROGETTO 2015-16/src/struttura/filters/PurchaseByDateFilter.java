@@ -0,0 +1,58 @@
+package struttura.filters;
+
+import java.io.Serializable;
+import java.util.GregorianCalendar;
+
+import struttura.Acquisto;
+
+/**
+ * Classe di call-back per l'interfaccia PurchaseFilter per gli Acquisti in base alla
+ * data di emissione del biglietto, compresa tra due date (estremi compresi).
+ * 
+ * @author Maurizio Casciano
+ */
+public class PurchaseByDateFilter implements PurchaseFilter, Serializable {
+
+	/**
+	 * Costruisce un filtro sugli Acquisti emessi tra le due date passate come
+	 * parametro, estremi compresi.
+	 * 
+	 * @param da
+	 *            - la data di inizio dell'intervallo
+	 * @param a
+	 *            - la data di fine dell'intervallo
+	 */
+	public PurchaseByDateFilter(GregorianCalendar da, GregorianCalendar a) {
+		this.da = da;
+		this.a = a;
+	}
+
+	@Override
+	public boolean accept(Acquisto acquisto) {
+		GregorianCalendar data = acquisto.getBiglietto().getDataBiglietto();
+
+		return data.compareTo(this.da) >= 0 && data.compareTo(this.a) <= 0;
+	}
+
+	/**
+	 * Restituisce la data di inizio dell'intervallo.
+	 * 
+	 * @return La data di inizio.
+	 */
+	public GregorianCalendar getDa() {
+		return this.da;
+	}
+
+	/**
+	 * Restituisce la data di fine dell'intervallo.
+	 * 
+	 * @return La data di fine.
+	 */
+	public GregorianCalendar getA() {
+		return this.a;
+	}
+
+	private GregorianCalendar da, a;
+
+	private static final long serialVersionUID = -4472210859036652941L;
+}
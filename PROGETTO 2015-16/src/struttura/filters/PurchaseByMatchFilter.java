@@ -32,6 +32,15 @@ public class PurchaseByMatchFilter implements PurchaseFilter, Serializable{
 		return result;
 	}
 	
+	/**
+	 * Restituisce la partita in base alla quale si filtrano i dati.
+	 * 
+	 * @return La partita del filtro.
+	 */
+	public Partita getPartita() {
+		return this.partita;
+	}
+	
 	private Partita partita;
 
 	private static final long serialVersionUID = 8796230365851580724L;
@@ -34,6 +34,15 @@ public class PurchaseByStadiumFilter implements PurchaseFilter, Serializable{
 		return result;
 	}
 	
+	/**
+	 * Restituisce lo stadio in base al quale si filtrano i dati.
+	 * 
+	 * @return Lo stadio del filtro.
+	 */
+	public Stadio getStadio() {
+		return this.stadio;
+	}
+	
 	private Stadio stadio;
 	
 	private static final long serialVersionUID = -1659887821611524157L;
@@ -0,0 +1,42 @@
+package struttura.filters;
+
+import java.io.Serializable;
+
+import struttura.Acquisto;
+
+/**
+ * Classe di call-back per l'interfaccia PurchaseFilter che accetta gli acquisti
+ * scartati dal filtro passato al costruttore.
+ * 
+ * @author Maurizio Casciano
+ */
+public class PurchaseNotFilter implements PurchaseFilter, Serializable {
+
+	/**
+	 * Costruisce un filtro che nega quello passato come parametro.
+	 * 
+	 * @param filtro
+	 *            - il filtro da negare
+	 */
+	public PurchaseNotFilter(PurchaseFilter filtro) {
+		this.filtro = filtro;
+	}
+
+	@Override
+	public boolean accept(Acquisto acquisto) {
+		return !this.filtro.accept(acquisto);
+	}
+
+	/**
+	 * Restituisce il filtro negato.
+	 * 
+	 * @return Il filtro negato.
+	 */
+	public PurchaseFilter getFiltro() {
+		return this.filtro;
+	}
+
+	private PurchaseFilter filtro;
+
+	private static final long serialVersionUID = 1903977455276249632L;
+}
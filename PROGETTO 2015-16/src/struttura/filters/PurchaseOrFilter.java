@@ -0,0 +1,52 @@
+package struttura.filters;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import struttura.Acquisto;
+
+/**
+ * Classe di call-back per l'interfaccia PurchaseFilter che accetta gli acquisti
+ * che soddisfano almeno uno tra i filtri passati al costruttore. I filtri
+ * vengono valutati nell'ordine indicato e la valutazione si interrompe al primo
+ * filtro soddisfatto.
+ * 
+ * @author Maurizio Casciano
+ */
+public class PurchaseOrFilter implements PurchaseFilter, Serializable {
+
+	/**
+	 * Costruisce un filtro che combina i filtri passati come parametro.
+	 * 
+	 * @param filtri
+	 *            - i filtri da combinare
+	 */
+	public PurchaseOrFilter(PurchaseFilter... filtri) {
+		this.filtri = filtri.clone();
+	}
+
+	@Override
+	public boolean accept(Acquisto acquisto) {
+		for (PurchaseFilter filtro : this.filtri) {
+			if (filtro.accept(acquisto)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Restituisce i filtri combinati.
+	 * 
+	 * @return I filtri, in una lista non modificabile.
+	 */
+	public List<PurchaseFilter> getFiltri() {
+		return Collections.unmodifiableList(Arrays.asList(this.filtri));
+	}
+
+	private PurchaseFilter[] filtri;
+
+	private static final long serialVersionUID = 1960798653554676072L;
+}
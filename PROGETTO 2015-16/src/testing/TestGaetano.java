@@ -489,6 +489,7 @@ public class TestGaetano {
 			for (int i = (struct.getPrenotazioni().size() - 1); i >= 0; i--) {
 				if (struct.getPrenotazioni().get(i).equals(prenotazioneDaCancellare)) {
 					struct.getPrenotazioni().remove(i);
+					struct.invalidaIndici();
 				}
 			}
 		}
@@ -30,6 +30,28 @@ public class Cliente extends Utente implements Serializable, Cloneable {
 		super(nome, cognome, username, password);
 	}
 
+	private Cliente(String nome, String cognome, String username, String passwordHash, boolean daRipristinare) {
+		super(nome, cognome, username, passwordHash, daRipristinare);
+	}
+
+	/**
+	 * Ripristina un Cliente salvato su file a partire dall'hash della sua
+	 * password.
+	 * 
+	 * @param nome
+	 *            Il nome del Cliente.
+	 * @param cognome
+	 *            Il cognome del Cliente.
+	 * @param username
+	 *            L'username del Cliente.
+	 * @param passwordHash
+	 *            L'hash della password del Cliente.
+	 * @return Il Cliente ripristinato.
+	 */
+	public static Cliente ripristina(String nome, String cognome, String username, String passwordHash) {
+		return new Cliente(nome, cognome, username, passwordHash, true);
+	}
+
 	@Override
 	public String toString() {
 		return super.toString();
@@ -32,6 +32,28 @@ public class Gestore extends Utente implements Serializable, Cloneable {
 		super(nome, cognome, username, password);
 	}
 
+	private Gestore(String nome, String cognome, String username, String passwordHash, boolean daRipristinare) {
+		super(nome, cognome, username, passwordHash, daRipristinare);
+	}
+
+	/**
+	 * Ripristina un Gestore salvato su file a partire dall'hash della sua
+	 * password.
+	 * 
+	 * @param nome
+	 *            Il nome del Gestore.
+	 * @param cognome
+	 *            Il cognome del Gestore.
+	 * @param username
+	 *            L'username del Gestore.
+	 * @param passwordHash
+	 *            L'hash della password del Gestore.
+	 * @return Il Gestore ripristinato.
+	 */
+	public static Gestore ripristina(String nome, String cognome, String username, String passwordHash) {
+		return new Gestore(nome, cognome, username, passwordHash, true);
+	}
+
 	@Override
 	public String toString() {
 		return super.toString();
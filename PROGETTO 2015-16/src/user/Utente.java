@@ -40,6 +40,31 @@ public abstract class Utente implements Serializable, Cloneable {
 		this.passwordHash = PasswordHash.createHash(password);
 	}
 
+	/**
+	 * Crea un Utente a partire dall'hash di una password gia' calcolato. Usato
+	 * per ripristinare gli utenti salvati su file, per i quali la password in
+	 * chiaro non e' piu' disponibile.
+	 * 
+	 * @param nome
+	 *            Il nome dell'Utente.
+	 * @param cognome
+	 *            Il cognome dell'Utente.
+	 * @param username
+	 *            L'username dell'Utente.
+	 * @param passwordHash
+	 *            L'hash della password, come restituito da
+	 *            {@link #getPasswordHash()}.
+	 * @param daRipristinare
+	 *            Parametro usato solo per distinguere questo costruttore da
+	 *            quello che riceve la password in chiaro.
+	 */
+	protected Utente(String nome, String cognome, String username, String passwordHash, boolean daRipristinare) {
+		this.nome = nome;
+		this.cognome = cognome;
+		this.username = username;
+		this.passwordHash = passwordHash;
+	}
+
 	/**
 	 * Restituisce il nome dell'Utente.
 	 * 
@@ -80,6 +105,16 @@ public abstract class Utente implements Serializable, Cloneable {
 		return PasswordHash.validatePassword(password, this.passwordHash);
 	}
 
+	/**
+	 * Restituisce l'hash della password di questo Utente, necessario per
+	 * salvarlo su file senza conoscere la password in chiaro.
+	 * 
+	 * @return L'hash della password dell'Utente.
+	 */
+	public String getPasswordHash() {
+		return this.passwordHash;
+	}
+
 	/**
 	 * Restituisce una stringa (nome, cognome, username) rappresentante questo
 	 * Utente.
@@ -118,6 +153,25 @@ public abstract class Utente implements Serializable, Cloneable {
 		return true;
 	}
 
+	/**
+	 * Restituisce il codice hash dell'utente, calcolato sulla username senza
+	 * distinguere maiuscole e minuscole, coerente con
+	 * {@link #equals(Object)}.
+	 * 
+	 * @return il codice hash dell'utente.
+	 */
+	@Override
+	public int hashCode() {
+		if (username == null)
+			return 0;
+
+		int result = 0;
+		for (int i = 0; i < username.length(); i++) {
+			result = 31 * result + Character.toLowerCase(Character.toUpperCase(username.charAt(i)));
+		}
+		return result;
+	}
+
 	@Override
 	public Object clone() {
 		try {